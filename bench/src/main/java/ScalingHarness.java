@@ -0,0 +1,264 @@
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Board size sweep of the whole game.
+ *
+ * For every density and every board size from 10^2 cells up to --max-cells
+ * (step 10x) it measures a new game, the first click, an offscreen repaint
+ * of the widget and a full game played by MinesBot,
+ * together with the peak heap. The widget is painted at least 1024x768 and
+ * large enough for one pixel per field, up to 4096x4096, so boards over
+ * 4096^2 cells are not painted and their repaint is skipped. Then it fits time = c * cells^k for every
+ * phase and fails when k is above --max-exponent, or when a run is slower
+ * than the stored baseline by more than --margin.
+ *
+ * Options (all optional):
+ * --max-cells=N (default 10^8, needs about -Xmx8g)
+ * --bot-max-cells=N (default 10^6)
+ * --densities=0.05,0.15
+ * --margin=0.5 (allowed slowdown against the baseline, 0.5 = 50 %)
+ * --max-exponent=1.25
+ * --floor-ms=5 (shorter times are not compared or fitted)
+ * --baseline=bench/scaling-baseline.properties
+ * --record (store the results as the new baseline)
+ *
+ * java -Xmx8g -cp bench/target/benchmarks.jar ScalingHarness
+ */
+public class ScalingHarness {
+
+    private static final String[] PHASES = {"newGame", "firstClick", "repaint", "botSolve"};
+    private static final long SEED = 0x5EED_2024L;
+    // Biggest side of the painted widget in pixels
+    private static final int PAINT_MAX_PX = 4096;
+
+    private long maxCells = 100_000_000L;
+    private long botMaxCells = 1_000_000L;
+    private double[] densities = {0.05, 0.15};
+    private double margin = 0.5;
+    private double maxExponent = 1.25;
+    private double floorMs = 5;
+    private Path baseline = Paths.get("bench", "scaling-baseline.properties");
+    private boolean record;
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        ScalingHarness harness = new ScalingHarness();
+        harness.parse(args);
+        System.exit(harness.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--max-cells=")) {
+                maxCells = (long) Double.parseDouble(value);
+            } else if (arg.startsWith("--bot-max-cells=")) {
+                botMaxCells = (long) Double.parseDouble(value);
+            } else if (arg.startsWith("--densities=")) {
+                String[] parts = value.split(",");
+                densities = new double[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    densities[i] = Double.parseDouble(parts[i]);
+                }
+            } else if (arg.startsWith("--margin=")) {
+                margin = Double.parseDouble(value);
+            } else if (arg.startsWith("--max-exponent=")) {
+                maxExponent = Double.parseDouble(value);
+            } else if (arg.startsWith("--floor-ms=")) {
+                floorMs = Double.parseDouble(value);
+            } else if (arg.startsWith("--baseline=")) {
+                baseline = Paths.get(value);
+            } else if (arg.equals("--record")) {
+                record = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    /**
+     * Runs the sweep.
+     *
+     * @return true if no check failed
+     */
+    private boolean run() throws IOException {
+        Properties previous = new Properties();
+        if (Files.exists(baseline)) {
+            try (InputStream in = Files.newInputStream(baseline)) {
+                previous.load(in);
+            }
+        }
+        Properties results = new Properties();
+        // Warm up the JIT on small boards first
+        for (long cells = 100; cells <= Math.min(maxCells, 100_000); cells *= 10) {
+            int side = (int) Math.round(Math.sqrt(cells));
+            measure(side, densities[0], cells <= botMaxCells);
+        }
+        System.out.printf(Locale.ROOT, "%-8s %12s %12s %12s %12s %12s %10s%n",
+                "density", "cells", "newGame", "firstClick", "repaint", "botSolve", "heapMB");
+        for (double density : densities) {
+            List<long[]> sizes = new ArrayList<>();
+            List<double[]> times = new ArrayList<>();
+            for (long cells = 100; cells <= maxCells; cells *= 10) {
+                int side = (int) Math.round(Math.sqrt(cells));
+                long real = (long) side * side;
+                double[] t = measure(side, density, real <= botMaxCells);
+                long heap = peakHeapMB();
+                sizes.add(new long[]{real});
+                times.add(t);
+                System.out.printf(Locale.ROOT, "%-8.3f %12d %12.1f %12.1f %12s %12s %10d%n",
+                        density, real, t[0], t[1], format(t[2]), format(t[3]), heap);
+                for (int p = 0; p < PHASES.length; p++) {
+                    if (Double.isNaN(t[p])) {
+                        continue;
+                    }
+                    String key = key(PHASES[p], density, cells);
+                    results.setProperty(key, String.format(Locale.ROOT, "%.3f", t[p]));
+                    compare(key, t[p], previous.getProperty(key));
+                }
+                results.setProperty(key("heapMB", density, cells), Long.toString(heap));
+            }
+            for (int p = 0; p < PHASES.length; p++) {
+                fit(PHASES[p], density, sizes, times, p);
+            }
+        }
+        if (record) {
+            try (OutputStream out = Files.newOutputStream(baseline)) {
+                results.store(out, "ScalingHarness baseline, times in ms");
+            }
+            System.out.println("Baseline stored to " + baseline);
+        }
+        for (String failure : failures) {
+            System.out.println("FAIL " + failure);
+        }
+        return failures.isEmpty();
+    }
+
+    /**
+     * Measures all phases on one board.
+     *
+     * @return times in ms in the order of PHASES, NaN if the phase was skipped
+     */
+    private double[] measure(int side, double density, boolean bot) {
+        double[] t = new double[PHASES.length];
+        int mines = Math.max(1, Math.min(side * side - 10, (int) Math.round((double) side * side * density)));
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        long start = System.nanoTime();
+        MinesGame game = new MinesGame(side, side, mines, new Random(SEED));
+        t[0] = millisSince(start);
+
+        start = System.nanoTime();
+        game.uncover(side / 2, side / 2);
+        t[1] = millisSince(start);
+
+        // A widget with less than one pixel per field paints nothing
+        int width = Math.max(1024, side);
+        int height = Math.max(768, side);
+        if (width <= PAINT_MAX_PX && height <= PAINT_MAX_PX) {
+            // The widget paints the snapshot taken by its engine, stopped at
+            // once so that the bot is the only one using the game
+            MinesWidget widget = new MinesWidget(game);
+            widget.dispose();
+            widget.setSize(width, height);
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            start = System.nanoTime();
+            widget.paint(g);
+            t[2] = millisSince(start);
+            g.dispose();
+        } else {
+            t[2] = Double.NaN;
+        }
+
+        if (bot) {
+            start = System.nanoTime();
+            new MinesBot(game).solve();
+            t[3] = millisSince(start);
+        } else {
+            t[3] = Double.NaN;
+        }
+        return t;
+    }
+
+    private void compare(String key, double ms, String stored) {
+        if (stored == null) {
+            return;
+        }
+        double base = Double.parseDouble(stored);
+        if (base >= floorMs && ms > base * (1 + margin) && ms - base > floorMs) {
+            failures.add(String.format(Locale.ROOT, "%s took %.1f ms, baseline %.1f ms", key, ms, base));
+        }
+    }
+
+    /**
+     * Least squares fit of log(time) = log(c) + k * log(cells).
+     */
+    private void fit(String phase, double density, List<long[]> sizes, List<double[]> times, int p) {
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        int n = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            double ms = times.get(i)[p];
+            if (Double.isNaN(ms) || ms < floorMs) {
+                continue;
+            }
+            double x = Math.log(sizes.get(i)[0]);
+            double y = Math.log(ms);
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+            n++;
+        }
+        if (n < 3) {
+            System.out.printf(Locale.ROOT, "%s density %.3f: not enough points above %.0f ms to fit%n", phase, density, floorMs);
+            return;
+        }
+        double k = (n * sxy - sx * sy) / (n * sxx - sx * sx);
+        System.out.printf(Locale.ROOT, "%s density %.3f: time ~ cells^%.2f%n", phase, density, k);
+        if (k > maxExponent) {
+            failures.add(String.format(Locale.ROOT, "%s at density %.3f grows as cells^%.2f, limit %.2f", phase, density, k, maxExponent));
+        }
+    }
+
+    private static String format(double ms) {
+        return Double.isNaN(ms) ? "-" : String.format(Locale.ROOT, "%.1f", ms);
+    }
+
+    private static String key(String phase, double density, long cells) {
+        return String.format(Locale.ROOT, "%s.d%.3f.c%d", phase, density, cells);
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static long peakHeapMB() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024 * 1024);
+    }
+}
@@ -0,0 +1,57 @@
+package minesbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * First click on a fresh board, which uncovers the free area around it.
+ *
+ * Every invocation gets a new covered game built from the same fixture, the
+ * building is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class CascadeBenchmark {
+
+    @Param({"100", "500", "1000", "2000", "5000"})
+    public int size;
+
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    private int[] layout;
+    private int click;
+    private Object game;
+
+    @Setup(Level.Trial)
+    public void fixture() {
+        layout = Fixtures.layout(size, size, density, Fixtures.SEED);
+        click = Fixtures.firstClick(Fixtures.plan(size, size, layout), size, size);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshGame() {
+        game = Mines.newGame(Fixtures.plan(size, size, layout));
+    }
+
+    @Benchmark
+    public Object firstClick() {
+        Mines.uncover(game, click % size, click / size);
+        return game;
+    }
+}
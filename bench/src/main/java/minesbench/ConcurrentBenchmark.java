@@ -0,0 +1,63 @@
+package minesbench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of moves on one shared ConcurrentMinesGame.
+ *
+ * Every benchmark thread works in its own band of rows, so the moves do not
+ * overlap. Run with -t 1,2,4,... to see how the throughput scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ConcurrentBenchmark {
+
+    static final int SIZE = 4096;
+    static final int BAND_ROWS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Board {
+
+        Object game;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            game = Mines.newConcurrentGame(SIZE, SIZE, SIZE * SIZE / 10, new Random(Fixtures.SEED));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+
+        int firstRow;
+        int cell;
+
+        @Setup
+        public void setup(Board board) {
+            firstRow = board.threads.getAndIncrement() * BAND_ROWS % SIZE;
+        }
+    }
+
+    @Benchmark
+    public void switchMarked(Board board, Player player) {
+        int cell = player.cell;
+        player.cell = (cell + 1) % (BAND_ROWS * SIZE);
+        Mines.concurrentSwitchMarked(board.game, cell % SIZE, player.firstRow + cell / SIZE);
+    }
+}
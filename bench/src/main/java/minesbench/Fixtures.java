@@ -0,0 +1,81 @@
+package minesbench;
+
+import java.util.Random;
+
+/**
+ * Reproducible boards for the benchmarks.
+ *
+ * Mines are placed by this class from a fixed seed, so the same board is
+ * measured on every commit, whatever the game does with its own random
+ * generator.
+ */
+final class Fixtures {
+
+    static final long SEED = 0x5EED_2024L;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Number of mines for given board size and density, at least 1.
+     */
+    static int mines(int w, int h, double density) {
+        return Math.max(1, Math.min(w * h - 1, (int) Math.round((double) w * h * density)));
+    }
+
+    /**
+     * Mine positions as flat indices y * w + x, generated from the seed.
+     */
+    static int[] layout(int w, int h, double density, long seed) {
+        int cells = w * h;
+        int count = mines(w, h, density);
+        boolean[] used = new boolean[cells];
+        int[] layout = new int[count];
+        Random random = new Random(seed);
+        for (int i = 0; i < count; ) {
+            int cell = random.nextInt(cells);
+            if (!used[cell]) {
+                used[cell] = true;
+                layout[i++] = cell;
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * New covered plan with the given layout.
+     */
+    static Object plan(int w, int h, int[] layout) {
+        Object plan = Mines.newPlan(w, h);
+        for (int cell : layout) {
+            Mines.setMineAt(plan, cell % w, cell / w);
+        }
+        return plan;
+    }
+
+    /**
+     * Covered game with given size and density generated from the seed.
+     */
+    static Object game(int w, int h, double density) {
+        return Mines.newGame(plan(w, h, layout(w, h, density, SEED)));
+    }
+
+    /**
+     * Field with no mine in the vicinity nearest to the middle of the plan,
+     * used as the first click, as y * w + x.
+     */
+    static int firstClick(Object plan, int w, int h) {
+        int cx = w / 2;
+        int cy = h / 2;
+        for (int r = 0; r < Math.max(w, h); r++) {
+            for (int y = Math.max(0, cy - r); y <= Math.min(h - 1, cy + r); y++) {
+                for (int x = Math.max(0, cx - r); x <= Math.min(w - 1, cx + r); x++) {
+                    if (!Mines.isMineAt(plan, x, y) && Mines.getNumberOfMines(plan, x, y) == 0) {
+                        return y * w + x;
+                    }
+                }
+            }
+        }
+        return cy * w + cx;
+    }
+}
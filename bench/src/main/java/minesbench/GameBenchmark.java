@@ -0,0 +1,42 @@
+package minesbench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * New game construction including placeMines at several densities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GameBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"0.01", "0.1", "0.2"})
+    public double density;
+
+    @Benchmark
+    public Object newGame() {
+        return Mines.newGame(size, size, Fixtures.mines(size, size, density), new Random(Fixtures.SEED));
+    }
+
+    @Benchmark
+    public int getState() {
+        return Mines.getState(Mines.newGame(size, size, Fixtures.mines(size, size, density), new Random(Fixtures.SEED)));
+    }
+}
@@ -0,0 +1,241 @@
+package minesbench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import javax.swing.JComponent;
+
+/**
+ * Access to the game classes from the benchmarks.
+ *
+ * The game lives in the unnamed package, which cannot be imported, and JMH
+ * does not accept benchmarks in the unnamed package. The game methods are
+ * therefore called through constant method handles, which the JIT inlines
+ * like direct calls.
+ */
+final class Mines {
+
+    private static final MethodHandle NEW_PLAN;
+    private static final MethodHandle NEW_GAME;
+    private static final MethodHandle NEW_GAME_FROM_PLAN;
+    private static final MethodHandle NEW_WIDGET;
+    private static final MethodHandle DISPOSE_WIDGET;
+    private static final MethodHandle GET_PLAN;
+    private static final MethodHandle UNCOVER;
+    private static final MethodHandle GET_STATE;
+    private static final MethodHandle SNAPSHOT;
+    private static final MethodHandle IS_MINE_AT;
+    private static final MethodHandle IS_COVERED_AT;
+    private static final MethodHandle IS_MARKED_AT;
+    private static final MethodHandle SET_MINE_AT;
+    private static final MethodHandle NUMBER_OF_MINES_AT;
+    private static final MethodHandle NUMBER_OF_COVERED;
+    private static final MethodHandle NEW_CONCURRENT_GAME;
+    private static final MethodHandle CONCURRENT_UNCOVER;
+    private static final MethodHandle CONCURRENT_SWITCH_MARKED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> plan = Class.forName("MinesPlan");
+            Class<?> game = Class.forName("MinesGame");
+            Class<?> widget = Class.forName("MinesWidget");
+            Class<?> snapshot = Class.forName("MinesSnapshot");
+            Class<?> concurrentGame = Class.forName("ConcurrentMinesGame");
+            NEW_PLAN = lookup.findConstructor(plan, MethodType.methodType(void.class, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class));
+            NEW_GAME = lookup.findConstructor(game, MethodType.methodType(void.class, int.class, int.class, int.class, Random.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, int.class, Random.class));
+            NEW_GAME_FROM_PLAN = lookup.findConstructor(game, MethodType.methodType(void.class, plan))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            NEW_WIDGET = lookup.findConstructor(widget, MethodType.methodType(void.class, game))
+                    .asType(MethodType.methodType(JComponent.class, Object.class));
+            DISPOSE_WIDGET = virtual(lookup, widget, "dispose", void.class);
+            GET_PLAN = virtual(lookup, game, "getPlan", plan);
+            UNCOVER = virtual(lookup, game, "uncover", void.class, int.class, int.class);
+            GET_STATE = virtual(lookup, game, "getState", int.class);
+            SNAPSHOT = virtual(lookup, game, "snapshot", snapshot);
+            IS_MINE_AT = virtual(lookup, plan, "isMineAt", boolean.class, int.class, int.class);
+            IS_COVERED_AT = virtual(lookup, plan, "isCoveredAt", boolean.class, int.class, int.class);
+            IS_MARKED_AT = virtual(lookup, plan, "isMarkedAt", boolean.class, int.class, int.class);
+            SET_MINE_AT = virtual(lookup, plan, "setMineAt", void.class, int.class, int.class);
+            NUMBER_OF_MINES_AT = virtual(lookup, plan, "getNumberOfMines", int.class, int.class, int.class);
+            NUMBER_OF_COVERED = virtual(lookup, plan, "getNumberOfCovered", int.class);
+            NEW_CONCURRENT_GAME = lookup.findConstructor(concurrentGame, MethodType.methodType(void.class, int.class, int.class, int.class, Random.class))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, int.class, Random.class));
+            CONCURRENT_UNCOVER = virtual(lookup, concurrentGame, "uncover", void.class, int.class, int.class);
+            CONCURRENT_SWITCH_MARKED = virtual(lookup, concurrentGame, "switchMarked", void.class, int.class, int.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private Mines() {
+    }
+
+    /**
+     * Finds a public method and erases its receiver and object results to
+     * Object.
+     */
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> owner, String name,
+            Class<?> result, Class<?>... params) throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(owner, name, MethodType.methodType(result, params));
+        return handle.asType(handle.type().changeParameterType(0, Object.class)
+                .changeReturnType(result.isPrimitive() ? result : Object.class));
+    }
+
+    static Object newPlan(int w, int h) {
+        try {
+            return NEW_PLAN.invokeExact(w, h);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newGame(int w, int h, int mines, Random random) {
+        try {
+            return NEW_GAME.invokeExact(w, h, mines, random);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newGame(Object plan) {
+        try {
+            return NEW_GAME_FROM_PLAN.invokeExact(plan);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static JComponent newWidget(Object game) {
+        try {
+            return (JComponent) NEW_WIDGET.invokeExact(game);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void disposeWidget(JComponent widget) {
+        try {
+            DISPOSE_WIDGET.invokeExact((Object) widget);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object getPlan(Object game) {
+        try {
+            return GET_PLAN.invokeExact(game);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void uncover(Object game, int x, int y) {
+        try {
+            UNCOVER.invokeExact(game, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getState(Object game) {
+        try {
+            return (int) GET_STATE.invokeExact(game);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object snapshot(Object game) {
+        try {
+            return SNAPSHOT.invokeExact(game);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean isMineAt(Object plan, int x, int y) {
+        try {
+            return (boolean) IS_MINE_AT.invokeExact(plan, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean isCoveredAt(Object plan, int x, int y) {
+        try {
+            return (boolean) IS_COVERED_AT.invokeExact(plan, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean isMarkedAt(Object plan, int x, int y) {
+        try {
+            return (boolean) IS_MARKED_AT.invokeExact(plan, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setMineAt(Object plan, int x, int y) {
+        try {
+            SET_MINE_AT.invokeExact(plan, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getNumberOfMines(Object plan, int x, int y) {
+        try {
+            return (int) NUMBER_OF_MINES_AT.invokeExact(plan, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getNumberOfCovered(Object plan) {
+        try {
+            return (int) NUMBER_OF_COVERED.invokeExact(plan);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newConcurrentGame(int w, int h, int mines, Random random) {
+        try {
+            return NEW_CONCURRENT_GAME.invokeExact(w, h, mines, random);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void concurrentUncover(Object game, int x, int y) {
+        try {
+            CONCURRENT_UNCOVER.invokeExact(game, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void concurrentSwitchMarked(Object game, int x, int y) {
+        try {
+            CONCURRENT_SWITCH_MARKED.invokeExact(game, x, y);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+}
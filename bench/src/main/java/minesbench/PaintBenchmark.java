@@ -0,0 +1,71 @@
+package minesbench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Offscreen painting of a half-played board into a BufferedImage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector"})
+public class PaintBenchmark {
+
+    private static final int IMAGE_WIDTH = 1024;
+    private static final int IMAGE_HEIGHT = 768;
+
+    @Param({"10", "100", "500"})
+    public int size;
+
+    private Object game;
+    private JComponent widget;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() {
+        game = Fixtures.game(size, size, 0.15);
+        int click = Fixtures.firstClick(Mines.getPlan(game), size, size);
+        Mines.uncover(game, click % size, click / size);
+        widget = Mines.newWidget(game);
+        // The widget paints the snapshot taken by its engine, stopped at once
+        // so that the benchmark thread is the only one using the game
+        Mines.disposeWidget(widget);
+        widget.setSize(IMAGE_WIDTH, IMAGE_HEIGHT);
+        image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        widget.paint(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public Object snapshot() {
+        return Mines.snapshot(game);
+    }
+}
@@ -0,0 +1,77 @@
+package minesbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-plan sweeps over the MinesPlan accessors.
+ *
+ * Every benchmark visits all fields once, so the score divided by size^2 is
+ * the cost of one access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PlanBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"0.15"})
+    public double density;
+
+    private Object plan;
+
+    @Setup
+    public void setup() {
+        plan = Fixtures.plan(size, size, Fixtures.layout(size, size, density, Fixtures.SEED));
+    }
+
+    @Benchmark
+    public int accessors() {
+        int sum = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (Mines.isMineAt(plan, x, y)) {
+                    sum++;
+                }
+                if (Mines.isCoveredAt(plan, x, y)) {
+                    sum += 2;
+                }
+                if (Mines.isMarkedAt(plan, x, y)) {
+                    sum += 4;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int numberOfMinesAt() {
+        int sum = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                sum += Mines.getNumberOfMines(plan, x, y);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int numberOfCovered() {
+        return Mines.getNumberOfCovered(plan);
+    }
+}
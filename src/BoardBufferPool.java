@@ -0,0 +1,137 @@
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of field buffers for game plans.
+ *
+ * Buffers are grouped by size classes of powers of two, so a buffer released
+ * by a finished game can be reused by any later game of a similar size. Every
+ * class keeps only a limited number of free buffers, the rest is left to the
+ * garbage collector. Boolean and byte buffers are kept apart. Safe for use
+ * from many threads.
+ */
+public class BoardBufferPool {
+
+    private static final int CLASSES = 32;
+    // Smallest class, tiny boards share it
+    private static final int MIN_CLASS = 6;
+
+    private final List<ArrayDeque<boolean[]>> free = new ArrayList<>(CLASSES);
+    private final List<ArrayDeque<byte[]>> freeBytes = new ArrayList<>(CLASSES);
+    private final int maxFree;
+
+    /**
+     * Pool constructor.
+     *
+     * @param maxFree maximum number of free buffers kept in every size class
+     */
+    public BoardBufferPool(int maxFree) {
+        if (maxFree < 0) {
+            throw new BadNumberException("Negative number of buffers.");
+        }
+        this.maxFree = maxFree;
+        for (int i = 0; i < CLASSES; i++) {
+            free.add(new ArrayDeque<>());
+            freeBytes.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Returns a buffer with at least the given length. The content of the
+     * buffer is undefined.
+     *
+     * @param cells number of fields
+     * @return boolean[]
+     */
+    public boolean[] acquire(int cells) {
+        int c = sizeClass(cells);
+        if (c == CLASSES - 1) {
+            // Too big for a power of two
+            return new boolean[cells];
+        }
+        boolean[] buffer = take(free.get(c));
+        return buffer != null ? buffer : new boolean[1 << c];
+    }
+
+    /**
+     * Returns a byte buffer with at least the given length. The content of
+     * the buffer is undefined.
+     *
+     * @param cells number of fields
+     * @return byte[]
+     */
+    public byte[] acquireBytes(int cells) {
+        int c = sizeClass(cells);
+        if (c == CLASSES - 1) {
+            return new byte[cells];
+        }
+        byte[] buffer = take(freeBytes.get(c));
+        return buffer != null ? buffer : new byte[1 << c];
+    }
+
+    /**
+     * Returns the buffer to the pool. The buffer must not be used any more.
+     *
+     * @param buffer buffer got from acquire()
+     */
+    public void release(boolean[] buffer) {
+        int c = sizeClass(buffer.length);
+        if (c != CLASSES - 1 && buffer.length == 1 << c) {
+            give(free.get(c), buffer);
+        }
+    }
+
+    /**
+     * Returns the byte buffer to the pool. The buffer must not be used any
+     * more.
+     *
+     * @param buffer buffer got from acquireBytes()
+     */
+    public void release(byte[] buffer) {
+        int c = sizeClass(buffer.length);
+        if (c != CLASSES - 1 && buffer.length == 1 << c) {
+            give(freeBytes.get(c), buffer);
+        }
+    }
+
+    /**
+     * Returns number of free buffers in all classes.
+     *
+     * @return int
+     */
+    public int getNumberOfFree() {
+        int count = 0;
+        for (int i = 0; i < CLASSES; i++) {
+            synchronized (free.get(i)) {
+                count += free.get(i).size();
+            }
+            synchronized (freeBytes.get(i)) {
+                count += freeBytes.get(i).size();
+            }
+        }
+        return count;
+    }
+
+    private static <T> T take(ArrayDeque<T> queue) {
+        synchronized (queue) {
+            return queue.pollLast();
+        }
+    }
+
+    private <T> void give(ArrayDeque<T> queue, T buffer) {
+        synchronized (queue) {
+            if (queue.size() < maxFree) {
+                queue.addLast(buffer);
+            }
+        }
+    }
+
+    private static int sizeClass(int cells) {
+        if (cells <= 1 << MIN_CLASS) {
+            return MIN_CLASS;
+        }
+        return Math.min(CLASSES - 1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+    }
+}
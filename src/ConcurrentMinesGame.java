@@ -0,0 +1,259 @@
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Minesweeper game shared by many players at the same time.
+ *
+ * Every move changes fields only by compare and set on the plan, so moves on
+ * different parts of the board run in parallel without locks and a free area
+ * uncovered by two players at once is simply split between them. The number
+ * of covered free fields is counted per band of rows, so players in
+ * different bands do not share a counter. The end of the game is decided by
+ * a single compare and set of the state: the first player uncovering a mine
+ * or the last free field wins the race, later moves change nothing.
+ *
+ * Unlike MinesGame, mines are not moved on the first click.
+ */
+public class ConcurrentMinesGame {
+
+    private static final int BAND_ROWS = 16;
+    // Counters of neighbouring bands are kept in different cache lines
+    private static final int PAD = 16;
+
+    private final ConcurrentMinesPlan plan;
+    private final AtomicInteger state = new AtomicInteger(MinesGame.STATE_PLAYING);
+    private final AtomicIntegerArray coveredFree;
+    private final AtomicInteger bandsLeft = new AtomicInteger();
+
+    /**
+     * Game constructor for new game.
+     *
+     * @param w plan width (min. 2)
+     * @param h plan height (min. 2)
+     * @param mines number of mines (min. 1, max. w*h-1)
+     * @param random random generator for mine placing
+     * @throws BadNumberException if w, h or mines has a bad value
+     */
+    public ConcurrentMinesGame(int w, int h, int mines, Random random) {
+        this(placeMines(w, h, mines, random));
+    }
+
+    /**
+     * Game constructor for given plan.
+     *
+     * @param plan ready to use game plan
+     * @throws BadNumberException if there is no mine in the plan
+     * @throws NullPointerException if plan is null
+     */
+    public ConcurrentMinesGame(ConcurrentMinesPlan plan) {
+        if (plan == null) {
+            throw new NullPointerException("Plan is null");
+        }
+        if (plan.getNumberOfMines() == 0) {
+            throw new BadNumberException("There is no mine.");
+        }
+        this.plan = plan;
+        int bands = (plan.getHeight() + BAND_ROWS - 1) / BAND_ROWS;
+        this.coveredFree = new AtomicIntegerArray(bands * PAD);
+        int w = plan.getWidth();
+        boolean exploded = false;
+        for (int cell = 0; cell < w * plan.getHeight(); cell++) {
+            int bits = plan.bits(cell);
+            if ((bits & ConcurrentMinesPlan.COVERED) != 0 && (bits & ConcurrentMinesPlan.MINE) == 0) {
+                coveredFree.incrementAndGet(cell / w / BAND_ROWS * PAD);
+            }
+            if ((bits & ConcurrentMinesPlan.COVERED) == 0 && (bits & ConcurrentMinesPlan.MINE) != 0) {
+                exploded = true;
+            }
+        }
+        for (int band = 0; band < bands; band++) {
+            if (coveredFree.get(band * PAD) > 0) {
+                bandsLeft.incrementAndGet();
+            }
+        }
+        if (exploded) {
+            state.set(MinesGame.STATE_EXPLODED);
+        } else if (bandsLeft.get() == 0) {
+            state.set(MinesGame.STATE_DONE);
+        }
+    }
+
+    private static ConcurrentMinesPlan placeMines(int w, int h, int mines, Random random) {
+        if (random == null) {
+            throw new NullPointerException("Random is null");
+        }
+        if (mines < 1 || mines > (long) w * h - 1) {
+            throw new BadNumberException("Incorrect mine number.");
+        }
+        ConcurrentMinesPlan plan = new ConcurrentMinesPlan(w, h);
+        while (mines > 0) {
+            int x = random.nextInt(w);
+            int y = random.nextInt(h);
+            if (!plan.isMineAt(x, y)) {
+                plan.setMineAt(x, y);
+                mines--;
+            }
+        }
+        return plan;
+    }
+
+    public ConcurrentMinesPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Returns game state.
+     *
+     * @return one of MinesGame.STATE_* values
+     */
+    public int getState() {
+        return state.get();
+    }
+
+    /**
+     * Change marking state of a covered field.
+     *
+     * It will not make the change if the game is not playable.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @throws WrongActionException if field is uncovered
+     * @throws BadCoordsException if coordinates are out of plan
+     */
+    public void switchMarked(int x, int y) {
+        if (x < 0 || x >= plan.getWidth() || y < 0 || y >= plan.getHeight()) {
+            throw new BadCoordsException("Marking or unmarking a wrong coordinate.");
+        }
+        int cell = y * plan.getWidth() + x;
+        while (state.get() == MinesGame.STATE_PLAYING) {
+            int bits = plan.bits(cell);
+            if ((bits & ConcurrentMinesPlan.COVERED) == 0) {
+                throw new WrongActionException("Trying to mark an uncovered coordinate.");
+            }
+            if (plan.compareAndSet(cell, bits, bits ^ ConcurrentMinesPlan.MARKED)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Uncover field during game.
+     *
+     * Does nothing if the game is not playable or the field is marked or
+     * already uncovered. At 0 mines in the vicinity the whole free area is
+     * uncovered.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @throws BadCoordsException if the coordinates are outside the game plan.
+     */
+    public void uncover(int x, int y) {
+        if (x < 0 || x >= plan.getWidth() || y < 0 || y >= plan.getHeight()) {
+            throw new BadCoordsException("Uncovering a wrong coordinate.");
+        }
+        if (state.get() != MinesGame.STATE_PLAYING) {
+            return;
+        }
+        int cell = y * plan.getWidth() + x;
+        int bits = plan.bits(cell);
+        if ((bits & ConcurrentMinesPlan.MINE) != 0) {
+            if (bits == (ConcurrentMinesPlan.MINE | ConcurrentMinesPlan.COVERED)
+                    && plan.compareAndSet(cell, bits, ConcurrentMinesPlan.MINE)
+                    && !state.compareAndSet(MinesGame.STATE_PLAYING, MinesGame.STATE_EXPLODED)) {
+                // The game ended in the meantime, nobody else changes an uncovered field
+                plan.compareAndSet(cell, ConcurrentMinesPlan.MINE, bits);
+            }
+            return;
+        }
+        if (!uncoverFree(cell) || plan.minesAround(x, y) != 0) {
+            return;
+        }
+        uncoverArea(cell);
+    }
+
+    /**
+     * Uncovers the free area around a field with no mine in the vicinity.
+     */
+    private void uncoverArea(int start) {
+        int w = plan.getWidth();
+        int h = plan.getHeight();
+        int[] queue = new int[64];
+        int size = 0;
+        queue[size++] = start;
+        while (size > 0 && state.get() == MinesGame.STATE_PLAYING) {
+            int cell = queue[--size];
+            int x = cell % w;
+            int y = cell / w;
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if ((i == 0 && j == 0) || x + i < 0 || x + i >= w || y + j < 0 || y + j >= h) {
+                        continue;
+                    }
+                    int next = (y + j) * w + x + i;
+                    if (!uncoverFree(next) || plan.minesAround(x + i, y + j) != 0) {
+                        continue;
+                    }
+                    if (size == queue.length) {
+                        queue = Arrays.copyOf(queue, size * 2);
+                    }
+                    queue[size++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Uncovers a covered unmarked field without a mine.
+     *
+     * @return true if this call uncovered the field
+     */
+    private boolean uncoverFree(int cell) {
+        if (!plan.compareAndSet(cell, ConcurrentMinesPlan.COVERED, 0)) {
+            return false;
+        }
+        int band = cell / plan.getWidth() / BAND_ROWS * PAD;
+        if (coveredFree.decrementAndGet(band) == 0 && bandsLeft.decrementAndGet() == 0) {
+            state.compareAndSet(MinesGame.STATE_PLAYING, MinesGame.STATE_DONE);
+        }
+        return true;
+    }
+
+    /**
+     * Returns render snapshot of the game.
+     *
+     * Fields changed by other threads while the snapshot is taken may or may
+     * not be included.
+     *
+     * @return MinesSnapshot
+     */
+    public MinesSnapshot snapshot() {
+        int s = state.get();
+        int w = plan.getWidth();
+        int h = plan.getHeight();
+        byte[][] tiles = MinesSnapshot.newTiles(w * h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int cell = y * w + x;
+                int bits = plan.bits(cell);
+                boolean mine = (bits & ConcurrentMinesPlan.MINE) != 0;
+                boolean marked = (bits & ConcurrentMinesPlan.MARKED) != 0;
+                boolean covered = (bits & ConcurrentMinesPlan.COVERED) != 0;
+                int code;
+                if (s == MinesGame.STATE_EXPLODED && marked && !mine) {
+                    code = MinesSnapshot.CODE_WRONG_FLAG;
+                } else if (s == MinesGame.STATE_EXPLODED && mine && !marked) {
+                    code = covered ? MinesSnapshot.CODE_MINE : MinesSnapshot.CODE_EXPLODED;
+                } else if (covered) {
+                    code = marked ? MinesSnapshot.CODE_FLAG : MinesSnapshot.CODE_COVERED;
+                } else {
+                    code = plan.minesAround(x, y);
+                }
+                tiles[cell >>> MinesSnapshot.TILE_BITS][cell & MinesSnapshot.TILE_MASK] = (byte) code;
+            }
+        }
+        return new MinesSnapshot(w, h, s, tiles);
+    }
+}
@@ -0,0 +1,247 @@
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Minesweeper game plan safe for use from many threads.
+ *
+ * Every field takes 4 bits (mine, covered, marked) and 16 fields are packed
+ * into one long of an AtomicLongArray. Fields change only by compare and set,
+ * so moves on different fields never block each other. Numbers of mines and
+ * covered fields are kept in striped counters for the same reason.
+ */
+public class ConcurrentMinesPlan {
+
+    public static final int MINE = 1;
+    public static final int COVERED = 2;
+    public static final int MARKED = 4;
+
+    private static final int BITS = 4;
+    private static final int PER_WORD = 64 / BITS;
+
+    private final int width;
+    private final int height;
+    private final AtomicLongArray cells;
+    private final LongAdder mineCount = new LongAdder();
+    private final LongAdder coveredCount = new LongAdder();
+
+    /**
+     * Constructor for covered plan without mines.
+     *
+     * @param w width
+     * @param h height
+     * @throws BadNumberException if w or h is smaller than 2 or the plan has
+     * too many fields for an int index
+     */
+    public ConcurrentMinesPlan(int w, int h) {
+        if (w < 2) {
+            throw new BadNumberException("Width of the map must be at least 2.");
+        }
+        if (h < 2) {
+            throw new BadNumberException("Height of the map must be at least 2.");
+        }
+        if ((long) w * h > Integer.MAX_VALUE - 8) {
+            throw new BadNumberException("The map is too big.");
+        }
+        this.width = w;
+        this.height = h;
+        int words = (int) (((long) w * h + PER_WORD - 1) / PER_WORD);
+        this.cells = new AtomicLongArray(words);
+        long covered = 0;
+        for (int i = 0; i < PER_WORD; i++) {
+            covered |= (long) COVERED << (i * BITS);
+        }
+        for (int i = 0; i < words; i++) {
+            cells.set(i, covered);
+        }
+        coveredCount.add(w * h);
+    }
+
+    /**
+     * Copy constructor from a single threaded plan.
+     *
+     * @param plan plan to copy
+     * @throws NullPointerException if plan is null
+     */
+    public ConcurrentMinesPlan(MinesPlan plan) {
+        this(plan.getWidth(), plan.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int bits = (plan.isMineAt(x, y) ? MINE : 0)
+                        | (plan.isCoveredAt(x, y) ? COVERED : 0)
+                        | (plan.isMarkedAt(x, y) ? MARKED : 0);
+                set(y * width + x, bits);
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns state bits of the field without bounds checking.
+     *
+     * @param cell y * width + x
+     * @return combination of MINE, COVERED and MARKED
+     */
+    int bits(int cell) {
+        return (int) (cells.get(cell / PER_WORD) >>> (cell % PER_WORD * BITS)) & ((1 << BITS) - 1);
+    }
+
+    /**
+     * Atomically changes state bits of the field if they have the expected
+     * value. Fields sharing the same long do not affect the result.
+     *
+     * @param cell y * width + x
+     * @param expect expected bits
+     * @param update new bits
+     * @return true if the bits were changed
+     */
+    boolean compareAndSet(int cell, int expect, int update) {
+        int word = cell / PER_WORD;
+        int shift = cell % PER_WORD * BITS;
+        long mask = ((1L << BITS) - 1) << shift;
+        while (true) {
+            long current = cells.get(word);
+            if ((int) ((current & mask) >>> shift) != expect) {
+                return false;
+            }
+            long next = (current & ~mask) | ((long) update << shift);
+            if (cells.compareAndSet(word, current, next)) {
+                if (((expect ^ update) & MINE) != 0) {
+                    mineCount.add((update & MINE) != 0 ? 1 : -1);
+                }
+                if (((expect ^ update) & COVERED) != 0) {
+                    coveredCount.add((update & COVERED) != 0 ? 1 : -1);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void set(int cell, int bits) {
+        while (true) {
+            int current = bits(cell);
+            if (compareAndSet(cell, current, bits)) {
+                return;
+            }
+        }
+    }
+
+    private int cell(int x, int y) {
+        if (x < 0 || x >= this.width) {
+            throw new BadCoordsException("Incorrect x coordinate.");
+        }
+        if (y < 0 || y >= this.height) {
+            throw new BadCoordsException("Incorrect y coordinate.");
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Checks if there is a mine in the specified field.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return boolean
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public boolean isMineAt(int x, int y) {
+        return (bits(cell(x, y)) & MINE) != 0;
+    }
+
+    /**
+     * Checks if the specified field is covered.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return boolean
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public boolean isCoveredAt(int x, int y) {
+        return (bits(cell(x, y)) & COVERED) != 0;
+    }
+
+    /**
+     * Checks if the specified field is marked.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return boolean
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public boolean isMarkedAt(int x, int y) {
+        return (bits(cell(x, y)) & MARKED) != 0;
+    }
+
+    /**
+     * Sets new mine at given coordinates.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public void setMineAt(int x, int y) {
+        int cell = cell(x, y);
+        while (true) {
+            int current = bits(cell);
+            if (compareAndSet(cell, current, current | MINE)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of mines in the surrounding 8 fields.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return int
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public int getNumberOfMines(int x, int y) {
+        cell(x, y);
+        return minesAround(x, y);
+    }
+
+    /**
+     * Number of mines around the field without bounds checking of the field.
+     */
+    int minesAround(int x, int y) {
+        int mineCounter = 0;
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                if ((i == 0 && j == 0) || x + i < 0 || x + i >= width || y + j < 0 || y + j >= height) {
+                    continue;
+                }
+                if ((bits((y + j) * width + x + i) & MINE) != 0) {
+                    mineCounter++;
+                }
+            }
+        }
+        return mineCounter;
+    }
+
+    /**
+     * Returns number of all mines in the game plan.
+     *
+     * @return int
+     */
+    public int getNumberOfMines() {
+        return mineCount.intValue();
+    }
+
+    /**
+     * Returns number of covered fields in the game plan.
+     *
+     * @return int
+     */
+    public int getNumberOfCovered() {
+        return coveredCount.intValue();
+    }
+}
@@ -0,0 +1,260 @@
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Manager of many short game sessions.
+ *
+ * Sessions are created, looked up by id, closed and expired after some idle
+ * time. Plans take their buffers from a BoardBufferPool and return them when
+ * the session ends, so hosting many short games allocates almost nothing.
+ *
+ * Idle sessions are found with a time wheel: every session sits in the slot
+ * of the tick it expires in and expire() only looks at the slots of the
+ * ticks passed since the previous call. A session used in the meantime is
+ * moved to its new slot when its old slot comes, so a lookup only stores the
+ * time of the access.
+ *
+ * The number of fields of all running sessions can be limited, a session
+ * over the limit is not created.
+ *
+ * Like the games, the manager is used by one thread only.
+ */
+public class GameSessionManager {
+
+    /**
+     * Running session.
+     */
+    private static class Session {
+
+        final int id;
+        final MinesGame game;
+        final MinesPlan plan;
+        long lastAccess;
+        boolean closed;
+
+        Session(int id, MinesGame game, MinesPlan plan, long lastAccess) {
+            this.id = id;
+            this.game = game;
+            this.plan = plan;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    private final BoardBufferPool pool;
+    private final Random random = new Random();
+    private final LongSupplier clock;
+    private final long idleNanos;
+    private final long tickNanos;
+    private final List<ArrayList<Session>> wheel;
+    private final int mask;
+    private ArrayList<Session> spare = new ArrayList<>();
+    private long currentTick;
+    private int nextId = 1;
+    private IntConsumer evictionListener;
+    private long maxCells = Long.MAX_VALUE;
+    private long cells;
+
+    /**
+     * Manager constructor.
+     *
+     * @param idleMillis time after which an unused session expires
+     * @param tickMillis precision of the expiration
+     * @param pool pool of plan buffers
+     * @throws BadNumberException if idleMillis or tickMillis is not positive
+     */
+    public GameSessionManager(long idleMillis, long tickMillis, BoardBufferPool pool) {
+        this(idleMillis, tickMillis, pool, System::nanoTime);
+    }
+
+    /**
+     * Manager constructor with given clock.
+     *
+     * @param clock time source in nanoseconds
+     */
+    GameSessionManager(long idleMillis, long tickMillis, BoardBufferPool pool, LongSupplier clock) {
+        if (idleMillis <= 0 || tickMillis <= 0) {
+            throw new BadNumberException("Times must be positive.");
+        }
+        if (pool == null) {
+            throw new NullPointerException("Pool is null");
+        }
+        this.pool = pool;
+        this.clock = clock;
+        this.idleNanos = idleMillis * 1_000_000;
+        this.tickNanos = tickMillis * 1_000_000;
+        long ticks = (idleMillis + tickMillis - 1) / tickMillis + 1;
+        int slots = Integer.highestOneBit((int) Math.min(1 << 20, ticks * 2 - 1));
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = slots - 1;
+        this.currentTick = tick(clock.getAsLong());
+    }
+
+    /**
+     * Sets listener called with the id of every expired session.
+     *
+     * @param listener listener or null
+     */
+    public void setEvictionListener(IntConsumer listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Sets the limit of fields of all running sessions (no limit by
+     * default). Running sessions are kept when the limit is lowered.
+     *
+     * @param maxCells maximum number of fields
+     * @throws BadNumberException if maxCells is not positive
+     */
+    public void setMaxCells(long maxCells) {
+        if (maxCells <= 0) {
+            throw new BadNumberException("Limit of fields must be positive.");
+        }
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Returns number of fields of all running sessions.
+     *
+     * @return long
+     */
+    public long getCells() {
+        return cells;
+    }
+
+    /**
+     * Creates new session with a new game.
+     *
+     * @param w plan width (min. 2)
+     * @param h plan height (min. 2)
+     * @param mines number of mines (min. 1, max. w*h-1)
+     * @return session id
+     * @throws BadNumberException if w, h or mines has a bad value or the
+     * fields of the new session would exceed the limit
+     */
+    public int create(int w, int h, int mines) {
+        if (w > 0 && h > 0 && (long) w * h > maxCells - cells) {
+            throw new BadNumberException("Too many fields in running sessions.");
+        }
+        MinesPlan plan = new MinesPlan(w, h, pool);
+        MinesGame game;
+        try {
+            game = new MinesGame(plan, mines, random);
+        } catch (BadNumberException ex) {
+            plan.release();
+            throw ex;
+        }
+        int id = nextId++;
+        cells += (long) w * h;
+        Session session = new Session(id, game, plan, clock.getAsLong());
+        sessions.put(id, session);
+        schedule(session);
+        return id;
+    }
+
+    /**
+     * Returns game of the session and marks the session as used.
+     *
+     * @param id session id
+     * @return MinesGame or null if there is no such session
+     */
+    public MinesGame get(int id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        session.lastAccess = clock.getAsLong();
+        return session.game;
+    }
+
+    /**
+     * Ends the session. Its game must not be used any more.
+     *
+     * @param id session id
+     * @return true if the session existed
+     */
+    public boolean close(int id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        end(session);
+        return true;
+    }
+
+    /**
+     * Returns number of running sessions.
+     *
+     * @return int
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Ends sessions unused for the idle time. Should be called at least once
+     * per tick.
+     *
+     * @return number of expired sessions
+     */
+    public int expire() {
+        long nowTick = tick(clock.getAsLong());
+        // After a long pause every slot is looked at once
+        long tick = Math.max(currentTick, nowTick - wheel.size());
+        int expired = 0;
+        while (tick < nowTick) {
+            tick++;
+            ArrayList<Session> slot = wheel.get((int) (tick & mask));
+            if (slot.isEmpty()) {
+                continue;
+            }
+            wheel.set((int) (tick & mask), spare);
+            for (Session session : slot) {
+                if (session.closed) {
+                    continue;
+                }
+                if (expiry(session) <= tick) {
+                    sessions.remove(session.id);
+                    end(session);
+                    expired++;
+                    if (evictionListener != null) {
+                        evictionListener.accept(session.id);
+                    }
+                } else {
+                    schedule(session);
+                }
+            }
+            slot.clear();
+            spare = slot;
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+
+    private void schedule(Session session) {
+        wheel.get((int) (expiry(session) & mask)).add(session);
+    }
+
+    private long expiry(Session session) {
+        return tick(session.lastAccess + idleNanos) + 1;
+    }
+
+    private long tick(long nanos) {
+        return Math.floorDiv(nanos, tickNanos);
+    }
+
+    private void end(Session session) {
+        session.closed = true;
+        cells -= (long) session.plan.getWidth() * session.plan.getHeight();
+        session.plan.release();
+    }
+}
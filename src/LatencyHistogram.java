@@ -0,0 +1,141 @@
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative long values with logarithmic buckets.
+ *
+ * Every power of two is split into 16 linear buckets, so a value is counted
+ * with a relative error below 1/16. Recording is lock-free and allocates
+ * nothing, so it can be called from hot paths.
+ */
+public class LatencyHistogram {
+
+    private static final int HALF = 16;
+    private static final int SUB_BITS = 5;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * HALF;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Histogram constructor.
+     *
+     * @param name histogram name used in reports
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one value, negative values are recorded as 0.
+     *
+     * @param value recorded value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Records time elapsed since given System.nanoTime() value.
+     *
+     * @param startNanos start time
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns mean of recorded values.
+     *
+     * @return mean or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : (double) sum.get() / c;
+    }
+
+    /**
+     * Returns value at given percentile.
+     *
+     * The value is the upper bound of the bucket containing the percentile,
+     * but never more than the maximum recorded value.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return (shift + 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 2 * HALF) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        long low = (long) (bucket % HALF + HALF) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d mean=%.0f p50=%d p99=%d max=%d",
+                name, getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,135 @@
+
+import java.util.function.IntConsumer;
+
+/**
+ * Set of mine positions for plans with few mines.
+ *
+ * Open addressing hash set of ints with linear probing, kept at most half
+ * full. Position 0 is a border field of every plan, so it never holds a mine
+ * and marks an empty slot. Memory grows with the number of mines, not with
+ * the size of the plan.
+ */
+final class MineSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] table;
+    private int mask;
+    private int shift;
+    private int size;
+
+    /**
+     * Set constructor.
+     *
+     * @param expected number of mines the set should hold without growing
+     */
+    MineSet(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        resize(capacity);
+    }
+
+    /**
+     * Returns a copy of the set.
+     *
+     * @return MineSet
+     */
+    MineSet copy() {
+        MineSet copy = new MineSet(0);
+        copy.table = table.clone();
+        copy.mask = mask;
+        copy.shift = shift;
+        copy.size = size;
+        return copy;
+    }
+
+    private void resize(int capacity) {
+        int[] old = table;
+        table = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        if (old != null) {
+            for (int pos : old) {
+                if (pos != 0) {
+                    table[slot(pos)] = pos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the first slot to look at for the position, or the slot
+     * holding it if it is in the set.
+     */
+    private int slot(int pos) {
+        int i = (pos * 0x9E3779B9) >>> shift;
+        while (table[i] != 0 && table[i] != pos) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    boolean contains(int pos) {
+        return pos != 0 && table[slot(pos)] == pos;
+    }
+
+    /**
+     * Adds the position.
+     *
+     * @param pos position of a real field, not 0
+     * @return true if it was not in the set
+     */
+    boolean add(int pos) {
+        int i = slot(pos);
+        if (table[i] == pos) {
+            return false;
+        }
+        table[i] = pos;
+        if (++size * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the position.
+     *
+     * @param pos position of a real field
+     * @return true if it was in the set
+     */
+    boolean remove(int pos) {
+        int i = slot(pos);
+        if (table[i] != pos) {
+            return false;
+        }
+        table[i] = 0;
+        size--;
+        // Moves back the following entries that would not be found past the gap
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = (table[j] * 0x9E3779B9) >>> shift;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = 0;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Passes all positions of the set to the action, in no particular order.
+     */
+    void forEach(IntConsumer action) {
+        for (int pos : table) {
+            if (pos != 0) {
+                action.accept(pos);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk computation of the numbers of mines around all fields.
+ *
+ * Works on the bordered layout of MinesPlan: rows of width + 2 fields with a
+ * border row above and below the plan. The count of a field is the 3x3 box
+ * sum of mines around it without the field itself.
+ *
+ * When the JVM runs with --add-modules jdk.incubator.vector, whole row slices
+ * are summed by VectorAdjacency, otherwise by a scalar separable box sum.
+ * Big plans are split into bands of rows counted in parallel. Mines kept in a
+ * MineSet are counted by adding one around every mine instead.
+ */
+final class MinesAdjacency {
+
+    private static final Logger LOG = Logger.getLogger(MinesAdjacency.class.getName());
+    // Plans with fewer fields are counted by the calling thread only
+    private static final int PARALLEL_CELLS = 1 << 20;
+    private static final int BAND_ROWS = 64;
+
+    /**
+     * Counter of a range of rows.
+     */
+    interface RowCounter {
+
+        /**
+         * Counts mines around all fields of the rows.
+         *
+         * @param mines bordered mine layer
+         * @param counts bordered counts, written for the real fields only
+         * @param width plan width
+         * @param from first row (1 is the first real row)
+         * @param to row after the last one
+         */
+        void countRows(boolean[] mines, byte[] counts, int width, int from, int to);
+    }
+
+    private static final RowCounter SCALAR = MinesAdjacency::countRowsScalar;
+    private static final RowCounter COUNTER = loadCounter();
+
+    private MinesAdjacency() {
+    }
+
+    private static RowCounter loadCounter() {
+        if (Boolean.getBoolean("mines.novector")
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return SCALAR;
+        }
+        try {
+            // Loaded by name, so the class is not linked without the module
+            return (RowCounter) Class.forName("VectorAdjacency").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            LOG.log(Level.FINE, "Vector API not usable, counting mines by scalar code.", ex);
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Checks if the Vector API is used.
+     *
+     * @return boolean
+     */
+    static boolean isVectorized() {
+        return COUNTER != SCALAR;
+    }
+
+    /**
+     * Counts mines around all fields of the plan.
+     *
+     * @param mines bordered mine layer
+     * @param counts bordered counts, written for the real fields only
+     * @param width plan width
+     * @param height plan height
+     */
+    static void count(boolean[] mines, byte[] counts, int width, int height) {
+        count(COUNTER, mines, counts, width, height);
+    }
+
+    /**
+     * Counts mines around all fields of the plan by given counter.
+     */
+    static void count(RowCounter counter, boolean[] mines, byte[] counts, int width, int height) {
+        if ((long) width * height < PARALLEL_CELLS) {
+            counter.countRows(mines, counts, width, 1, height + 1);
+            return;
+        }
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band
+                -> counter.countRows(mines, counts, width, 1 + band * BAND_ROWS,
+                        1 + Math.min(height, (band + 1) * BAND_ROWS)));
+    }
+
+    /**
+     * Counts mines of the set around all fields of the plan. Fields with a
+     * mine get MinesPlan.MINE_BIT too.
+     *
+     * @param mines positions of mines
+     * @param counts bordered counts, the border gets counted too
+     * @param offsets position differences of the eight neighbours
+     * @param size number of bordered positions
+     */
+    static void count(MineSet mines, byte[] counts, int[] offsets, int size) {
+        Arrays.fill(counts, 0, size, (byte) 0);
+        mines.forEach(pos -> {
+            counts[pos] |= MinesPlan.MINE_BIT;
+            for (int offset : offsets) {
+                counts[pos + offset]++;
+            }
+        });
+    }
+
+    /**
+     * Separable box sum: column sums of three rows, then sums of three
+     * columns.
+     */
+    static void countRowsScalar(boolean[] mines, byte[] counts, int width, int from, int to) {
+        int stride = width + 2;
+        int[] column = new int[stride];
+        for (int y = from; y < to; y++) {
+            int up = (y - 1) * stride;
+            int row = y * stride;
+            int down = (y + 1) * stride;
+            for (int x = 0; x < stride; x++) {
+                column[x] = (mines[up + x] ? 1 : 0) + (mines[row + x] ? 1 : 0) + (mines[down + x] ? 1 : 0);
+            }
+            for (int x = 1; x <= width; x++) {
+                counts[row + x] = (byte) (column[x - 1] + column[x] + column[x + 1] - (mines[row + x] ? 1 : 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,464 @@
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind autosave of a running game.
+ *
+ * The listener runs on the game thread and only notes the new state of the
+ * changed fields. A background thread writes them every quarter of a second
+ * as a record of the journal file and compacts the journal into a full
+ * snapshot when it grows bigger than the snapshot or older than a minute. A
+ * snapshot is written to a temporary file and renamed over the old one, then
+ * a new journal is started the same way, so the save is consistent after a
+ * crash at any moment: a game is restored from the last snapshot and the
+ * journal records written after it, a torn last record is ignored.
+ *
+ * The writes are limited to 4 MB per second (at least one snapshot at a
+ * time). Changes waiting for the writer are merged, a field changed many
+ * times is written once, and when more than a quarter of the plan waits the
+ * whole plan is taken instead. So a fast player on a huge plan makes the
+ * saves less frequent, neither the memory nor the disk traffic grows.
+ *
+ * An area uncovered progressively is saved as far as it got.
+ *
+ * File formats, big endian:
+ * snapshot: int SNAPSHOT_MAGIC, long generation, int w, int h, byte state of
+ * every field, int CRC-32 of all before
+ * journal: int JOURNAL_MAGIC, long generation of its snapshot, records of int
+ * length, int CRC-32 of the data and the data: int field index and byte state
+ * of every changed field
+ * Field state has bit 0 set for a mine, bit 1 for covered and bit 2 for a
+ * flag.
+ */
+public class MinesAutosave implements MinesGameListener {
+
+    private static final Logger LOG = Logger.getLogger(MinesAutosave.class.getName());
+    static final int SNAPSHOT_MAGIC = 0x4D534E50;
+    static final int JOURNAL_MAGIC = 0x4D4A524E;
+    private static final int MINE = 1;
+    private static final int COVERED = 2;
+    private static final int MARKED = 4;
+    private static final long FLUSH_MILLIS = 250;
+    private static final long COMPACT_MILLIS = 60_000;
+    private static final long BYTES_PER_SECOND = 4 << 20;
+
+    private final Path file;
+    private final Path journalFile;
+    private final long flushMillis;
+    private final long bytesPerSecond;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // Game thread only
+    private MinesGame game;
+    private boolean untouched;
+
+    // Waiting changes, guarded by this
+    private byte[] capture;
+    private int captureWidth;
+    private int captureHeight;
+    private int[] cells = new int[64];
+    private byte[] states = new byte[64];
+    private int count;
+
+    // Writer thread only
+    private byte[] mirror;
+    private int width;
+    private int height;
+    private long generation = System.currentTimeMillis();
+    private FileChannel journal;
+    private long journalBytes;
+    private long lastSnapshot;
+    private double allowance;
+    private long lastRefill = System.nanoTime();
+    private volatile long bytesWritten;
+
+    /**
+     * Autosave constructor, starts the writing thread.
+     *
+     * @param file snapshot file, the journal is next to it with the suffix
+     * .journal
+     */
+    public MinesAutosave(Path file) {
+        this(file, FLUSH_MILLIS, BYTES_PER_SECOND);
+    }
+
+    /**
+     * Autosave constructor with given limits.
+     *
+     * @param file snapshot file
+     * @param flushMillis interval of journal writes
+     * @param bytesPerSecond limit of the write rate
+     */
+    MinesAutosave(Path file, long flushMillis, long bytesPerSecond) {
+        this.file = file;
+        this.journalFile = file.resolveSibling(file.getFileName() + ".journal");
+        this.flushMillis = flushMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.thread = new Thread(this::run, "mines-autosave");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Starts saving the game, called on the game thread. A previous game is
+     * no longer saved.
+     *
+     * @param game game to save
+     */
+    public void attach(MinesGame game) {
+        if (this.game != null) {
+            this.game.removeListener(this);
+        }
+        this.game = game;
+        game.addListener(this);
+        captureAll();
+    }
+
+    /**
+     * Notes the changed fields, called on the game thread.
+     *
+     * @param event changes of a move
+     */
+    @Override
+    public void gameChanged(MinesChangeEvent event) {
+        if (event.getGame() != game) {
+            return;
+        }
+        MinesPlan plan = game.getPlan();
+        // The first click may move mines that are not in the event
+        boolean moved = untouched && plan.getNumberOfCovered() != plan.getWidth() * plan.getHeight();
+        if (event.isFull() || moved || plan.getWidth() != captureWidth || plan.getHeight() != captureHeight) {
+            captureAll();
+            return;
+        }
+        int[] changed = event.getCells();
+        synchronized (this) {
+            if (capture != null) {
+                for (int cell : changed) {
+                    capture[cell] = state(plan, cell);
+                }
+                return;
+            }
+            if (count + changed.length > plan.getWidth() * plan.getHeight() / 4) {
+                count = 0;
+            } else {
+                if (count + changed.length > cells.length) {
+                    int length = Math.max(cells.length * 2, count + changed.length);
+                    cells = Arrays.copyOf(cells, length);
+                    states = Arrays.copyOf(states, length);
+                }
+                for (int cell : changed) {
+                    cells[count] = cell;
+                    states[count++] = state(plan, cell);
+                }
+                return;
+            }
+        }
+        captureAll();
+    }
+
+    /**
+     * Takes the whole plan for the next snapshot, called on the game thread.
+     */
+    private void captureAll() {
+        MinesPlan plan = game.getPlan();
+        int w = plan.getWidth();
+        int h = plan.getHeight();
+        byte[] all = new byte[w * h];
+        for (int cell = 0; cell < all.length; cell++) {
+            all[cell] = state(plan, cell);
+        }
+        untouched = plan.getNumberOfCovered() == w * h;
+        synchronized (this) {
+            capture = all;
+            captureWidth = w;
+            captureHeight = h;
+            count = 0;
+        }
+    }
+
+    private static byte state(MinesPlan plan, int cell) {
+        int pos = plan.toPos(cell);
+        return (byte) ((plan.mineAt(pos) ? MINE : 0) | (plan.coveredAt(pos) ? COVERED : 0) | (plan.markedAt(pos) ? MARKED : 0));
+    }
+
+    /**
+     * Writes the waiting changes and stops the writing thread. Waits for the
+     * writes, which may be a whole snapshot, so it must not be called on the
+     * event dispatch thread.
+     */
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns number of bytes written so far.
+     *
+     * @return long
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void run() {
+        while (running) {
+            // Not interrupted, that would close the files
+            synchronized (this) {
+                try {
+                    if (running) {
+                        wait(flushMillis);
+                    }
+                } catch (InterruptedException ex) {
+                    break;
+                }
+            }
+            try {
+                flush(false);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Game not saved.", ex);
+            }
+        }
+        try {
+            flush(true);
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Game not saved.", ex);
+        }
+    }
+
+    /**
+     * Writes the waiting changes if the write rate allows it.
+     *
+     * @param last true to write regardless of the rate
+     */
+    private void flush(boolean last) throws IOException {
+        long now = System.nanoTime();
+        byte[] all;
+        int[] changed;
+        byte[] changedStates;
+        int changedCount;
+        synchronized (this) {
+            // At least one snapshot fits in the allowance
+            long snapshotSize = snapshotSize(captureWidth, captureHeight);
+            allowance = Math.min(Math.max(bytesPerSecond, snapshotSize), allowance + (now - lastRefill) / 1e9 * bytesPerSecond);
+            lastRefill = now;
+            if (capture != null) {
+                if (!last && allowance < snapshotSize) {
+                    return;
+                }
+                all = capture;
+                width = captureWidth;
+                height = captureHeight;
+                capture = null;
+                changed = null;
+                changedStates = null;
+                changedCount = 0;
+            } else {
+                if (count == 0 || (!last && allowance < 8 + 5 * count)) {
+                    return;
+                }
+                all = null;
+                changed = cells;
+                changedStates = states;
+                changedCount = count;
+                cells = new int[64];
+                states = new byte[64];
+                count = 0;
+            }
+        }
+        if (all != null) {
+            mirror = all;
+            writeSnapshot();
+            return;
+        }
+        for (int i = 0; i < changedCount; i++) {
+            mirror[changed[i]] = changedStates[i];
+        }
+        if (journal == null) {
+            // The last snapshot failed
+            writeSnapshot();
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(8 + 5 * changedCount);
+        record.putInt(5 * changedCount).putInt(0);
+        for (int i = 0; i < changedCount; i++) {
+            record.putInt(changed[i]).put(changedStates[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, 5 * changedCount);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        write(journal, record);
+        journal.force(false);
+        journalBytes += record.capacity();
+        boolean due = journalBytes > mirror.length || System.currentTimeMillis() - lastSnapshot > COMPACT_MILLIS;
+        if (due && (last || allowance >= snapshotSize(width, height))) {
+            writeSnapshot();
+        }
+    }
+
+    private static long snapshotSize(int w, int h) {
+        return 24 + (long) w * h;
+    }
+
+    /**
+     * Writes the mirror as a new snapshot and starts its journal.
+     */
+    private void writeSnapshot() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        generation++;
+        ByteBuffer data = ByteBuffer.allocate((int) snapshotSize(width, height));
+        data.putInt(SNAPSHOT_MAGIC).putLong(generation).putInt(width).putInt(height).put(mirror);
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.position());
+        data.putInt((int) crc.getValue());
+        data.flip();
+        replace(file, data);
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(JOURNAL_MAGIC).putLong(generation);
+        header.flip();
+        replace(journalFile, header);
+        journal = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalBytes = 0;
+        lastSnapshot = System.currentTimeMillis();
+    }
+
+    /**
+     * Replaces the file by a temporary one with the data.
+     */
+    private void replace(Path target, ByteBuffer data) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, data);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void write(FileChannel channel, ByteBuffer data) throws IOException {
+        int size = data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        allowance -= size;
+        bytesWritten += size;
+    }
+
+    /**
+     * Reads the saved game.
+     *
+     * @return the game or null if nothing is saved
+     * @throws IOException if the snapshot cannot be read or is broken
+     */
+    public MinesGame restore() throws IOException {
+        byte[] snapshot;
+        try {
+            snapshot = Files.readAllBytes(file);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(snapshot);
+        if (snapshot.length < 24 || data.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a saved game.");
+        }
+        long saved = data.getLong();
+        int w = data.getInt();
+        int h = data.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(snapshot, 0, snapshot.length - 4);
+        if (w < 2 || h < 2 || snapshotSize(w, h) != snapshot.length
+                || (int) crc.getValue() != data.getInt(snapshot.length - 4)) {
+            throw new IOException("Saved game is broken.");
+        }
+        byte[] fields = Arrays.copyOfRange(snapshot, 20, snapshot.length - 4);
+        applyJournal(saved, fields);
+        MinesPlan plan = new MinesPlan(w, h);
+        for (int cell = 0; cell < fields.length; cell++) {
+            if ((fields[cell] & MINE) != 0) {
+                plan.setMine(plan.toPos(cell));
+            }
+        }
+        if (plan.getNumberOfMines() == 0) {
+            throw new IOException("Saved game has no mine.");
+        }
+        for (int cell = 0; cell < fields.length; cell++) {
+            if ((fields[cell] & COVERED) == 0) {
+                plan.uncover(cell);
+            }
+            if ((fields[cell] & MARKED) != 0) {
+                plan.mark(cell, true);
+            }
+        }
+        return new MinesGame(plan);
+    }
+
+    /**
+     * Applies the journal records of the snapshot up to the first broken one.
+     * A record longer than the rest of the file or than a change of every
+     * field is broken, so a garbage length allocates nothing.
+     */
+    private void applyJournal(long saved, byte[] fields) throws IOException {
+        try (InputStream in = Files.newInputStream(journalFile)) {
+            long remaining = Files.size(journalFile) - 12;
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != JOURNAL_MAGIC || data.readLong() != saved) {
+                // Left from before the last snapshot
+                return;
+            }
+            while (true) {
+                int length = data.readInt();
+                int expected = data.readInt();
+                remaining -= 8;
+                if (length < 0 || length % 5 != 0 || length > remaining || length > 5L * fields.length) {
+                    return;
+                }
+                remaining -= length;
+                byte[] record = new byte[length];
+                data.readFully(record);
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != expected) {
+                    return;
+                }
+                ByteBuffer changes = ByteBuffer.wrap(record);
+                while (changes.hasRemaining()) {
+                    int cell = changes.getInt();
+                    byte state = changes.get();
+                    if (cell >= 0 && cell < fields.length) {
+                        fields[cell] = state;
+                    }
+                }
+            }
+        } catch (NoSuchFileException | EOFException ex) {
+            // No journal or the end of it, possibly torn
+        }
+    }
+}
@@ -0,0 +1,254 @@
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Difficulty metrics of a mine layout.
+ *
+ * An opening is a connected area of fields with no mine around, uncovered by
+ * one click with its border of numbers. An isolated number has no such field
+ * around, so it needs a click of its own. 3BV (Bechtel's Board Benchmark
+ * Value) is the sum of both, the fewest clicks clearing the plan without
+ * flags. A mine cluster is a connected group of mines. Fields are connected
+ * through all eight neighbours.
+ *
+ * Areas are found by union-find over the bordered positions of the plan in a
+ * single pass by rows, joining every field with its left and upper
+ * neighbours. The number of areas is the number of fields less the joins.
+ * Big plans are split into bands of rows counted in parallel, then the bands
+ * are joined along their edges.
+ */
+public final class MinesBoardMetrics {
+
+    // Plans with fewer fields are counted by the calling thread only
+    private static final int PARALLEL_CELLS = 1 << 20;
+    private static final int BAND_ROWS = 64;
+
+    // Kinds of fields, the border is none of them
+    private static final byte ZERO = 0;
+    private static final byte MINE = 1;
+    private static final byte NUMBER = 2;
+    private static final byte BORDER = -1;
+
+    // Band results: zeros, mines and isolated numbers by kind, then joins
+    // of zeros and of mines
+    private static final int JOINS = 3;
+
+    private final int openings;
+    private final int isolatedNumbers;
+    private final int mineClusters;
+
+    private MinesBoardMetrics(int openings, int isolatedNumbers, int mineClusters) {
+        this.openings = openings;
+        this.isolatedNumbers = isolatedNumbers;
+        this.mineClusters = mineClusters;
+    }
+
+    /**
+     * Computes the metrics of the mines of the plan. Covered state and marks
+     * are not taken into account.
+     *
+     * @param plan game plan, not changed while computing
+     * @return MinesBoardMetrics
+     */
+    public static MinesBoardMetrics compute(MinesPlan plan) {
+        int width = plan.getWidth();
+        int height = plan.getHeight();
+        // Counts are made on the first use, not by the bands at once
+        plan.getNumberOfMinesAround(0);
+        int[] parent = new int[plan.stride() * (height + 2)];
+        int[] total;
+        if ((long) width * height < PARALLEL_CELLS) {
+            total = band(plan, parent, 1, height + 1);
+        } else {
+            int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+            total = IntStream.range(0, bands).parallel()
+                    .mapToObj(b -> band(plan, parent, 1 + b * BAND_ROWS, 1 + Math.min(height, (b + 1) * BAND_ROWS)))
+                    .reduce(new int[5], MinesBoardMetrics::add);
+            byte[] up = new byte[plan.stride()];
+            byte[] row = new byte[plan.stride()];
+            for (int y = 1 + BAND_ROWS; y <= height; y += BAND_ROWS) {
+                kinds(plan, y - 1, up);
+                kinds(plan, y, row);
+                for (int x = 1; x <= width; x++) {
+                    if (row[x] != NUMBER) {
+                        total[JOINS + row[x]] += joinUp(parent, up, row[x], y * plan.stride() + x, x, plan.stride(), false);
+                    }
+                }
+            }
+        }
+        return new MinesBoardMetrics(total[ZERO] - total[JOINS + ZERO], total[NUMBER], total[MINE] - total[JOINS + MINE]);
+    }
+
+    private static int[] add(int[] a, int[] b) {
+        int[] sum = new int[a.length];
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Counts the rows. Only positions of the rows are written to parent.
+     *
+     * @param from first row (1 is the first real row)
+     * @param to row after the last one
+     * @return zeros, mines, isolated numbers and joins of zeros and mines
+     */
+    private static int[] band(MinesPlan plan, int[] parent, int from, int to) {
+        int width = plan.getWidth();
+        int stride = plan.stride();
+        int[] result = new int[5];
+        // Kinds of the fields of three rows around the current one
+        byte[] up = kinds(plan, from - 1, new byte[stride]);
+        byte[] row = kinds(plan, from, new byte[stride]);
+        byte[] down = new byte[stride];
+        for (int y = from; y < to; y++) {
+            kinds(plan, y + 1, down);
+            for (int x = 1; x <= width; x++) {
+                int pos = y * stride + x;
+                parent[pos] = pos;
+                byte kind = row[x];
+                if (kind == NUMBER) {
+                    if (!hasZero(up, x) && !hasZero(row, x) && !hasZero(down, x)) {
+                        result[NUMBER]++;
+                    }
+                    continue;
+                }
+                result[kind]++;
+                int joins = 0;
+                if (row[x - 1] == kind) {
+                    joins += join(parent, pos, pos - 1);
+                }
+                if (y > from) {
+                    joins += joinUp(parent, up, kind, pos, x, stride, row[x - 1] == kind);
+                }
+                result[JOINS + kind] += joins;
+            }
+            byte[] next = up;
+            up = row;
+            row = down;
+            down = next;
+        }
+        return result;
+    }
+
+    /**
+     * Writes kinds of the fields of the row, the border row is all BORDER.
+     *
+     * @return the row
+     */
+    private static byte[] kinds(MinesPlan plan, int y, byte[] row) {
+        row[0] = BORDER;
+        row[row.length - 1] = BORDER;
+        if (y < 1 || y > plan.getHeight()) {
+            Arrays.fill(row, BORDER);
+            return row;
+        }
+        int base = y * plan.stride();
+        for (int x = 1; x < row.length - 1; x++) {
+            if (plan.mineAt(base + x)) {
+                row[x] = MINE;
+            } else {
+                row[x] = plan.minesAround(base + x) == 0 ? ZERO : NUMBER;
+            }
+        }
+        return row;
+    }
+
+    private static boolean hasZero(byte[] row, int x) {
+        return row[x - 1] == ZERO || row[x] == ZERO || row[x + 1] == ZERO;
+    }
+
+    /**
+     * Joins the field with its upper neighbours of the same kind. Neighbours
+     * next to each other in the upper row are in one area already, and so is
+     * the upper left one with the left one.
+     *
+     * @param left true if the left neighbour is joined already
+     * @return number of joins
+     */
+    private static int joinUp(int[] parent, byte[] up, byte kind, int pos, int x, int stride, boolean left) {
+        if (up[x] == kind) {
+            return join(parent, pos, pos - stride);
+        }
+        int joins = 0;
+        if (up[x - 1] == kind && !left) {
+            joins += join(parent, pos, pos - stride - 1);
+        }
+        if (up[x + 1] == kind) {
+            joins += join(parent, pos, pos - stride + 1);
+        }
+        return joins;
+    }
+
+    /**
+     * Joins the areas of two positions.
+     *
+     * @return 1 if two areas were joined, 0 if they were one already
+     */
+    private static int join(int[] parent, int pos, int next) {
+        int a = find(parent, pos);
+        int b = find(parent, next);
+        if (a == b) {
+            return 0;
+        }
+        parent[Math.max(a, b)] = Math.min(a, b);
+        return 1;
+    }
+
+    private static int find(int[] parent, int pos) {
+        while (parent[pos] != pos) {
+            parent[pos] = parent[parent[pos]];
+            pos = parent[pos];
+        }
+        return pos;
+    }
+
+    /**
+     * Returns 3BV, the fewest clicks clearing the plan without flags.
+     *
+     * @return openings plus isolated numbers
+     */
+    public int get3BV() {
+        return openings + isolatedNumbers;
+    }
+
+    /**
+     * Returns number of connected areas of fields with no mine around.
+     *
+     * @return int
+     */
+    public int getOpenings() {
+        return openings;
+    }
+
+    /**
+     * Returns number of fields with a mine around but no field with no mine
+     * around next to them.
+     *
+     * @return int
+     */
+    public int getIsolatedNumbers() {
+        return isolatedNumbers;
+    }
+
+    /**
+     * Returns number of connected groups of mines.
+     *
+     * @return int
+     */
+    public int getMineClusters() {
+        return mineClusters;
+    }
+
+    /**
+     * Returns clicks per 3BV, 1 for the best possible play.
+     *
+     * @param clicks uncovering clicks of a game on the plan
+     * @return double
+     */
+    public double getEfficiency(int clicks) {
+        return (double) clicks / get3BV();
+    }
+}
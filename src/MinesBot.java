@@ -0,0 +1,289 @@
+
+import java.util.Arrays;
+
+/**
+ * Simple player using only what a human player can see.
+ *
+ * Uncovered numbers are checked from a work list. If a number already has
+ * all its mines marked, the other covered fields around it are uncovered. If
+ * the number of covered fields around it equals the number of mines left,
+ * they are all marked. Numbers giving no move this way are looked up in pairs
+ * with their neighbours in MinesPatterns. When no number gives a move, the
+ * bot guesses the first covered unmarked field. Every field enters the work
+ * list only when something around it changes, so a whole game takes time
+ * linear in the plan size.
+ */
+public class MinesBot {
+
+    private final MinesGame game;
+    private final MinesPlan plan;
+    private final int width;
+    private final int height;
+    // Uncovered fields already seen by the bot
+    private final boolean[] seen;
+    private int[] work = new int[64];
+    private int workSize;
+    // Numbers left by the simple rules for the patterns
+    private int[] pending = new int[64];
+    private int pendingSize;
+    private final MinesPatterns patterns = MinesPatterns.getDefault();
+    private final int[] forced = new int[MinesPatterns.SLOTS];
+    private int[] flood = new int[64];
+    private int guessCursor;
+    private int clicks;
+    private int guesses;
+
+    /**
+     * Bot constructor.
+     *
+     * @param game game to play
+     * @throws NullPointerException if game is null
+     */
+    public MinesBot(MinesGame game) {
+        if (game == null) {
+            throw new NullPointerException("Game is null");
+        }
+        this.game = game;
+        this.plan = game.getPlan();
+        this.width = plan.getWidth();
+        this.height = plan.getHeight();
+        this.seen = new boolean[width * height];
+    }
+
+    /**
+     * Plays until the game is over.
+     *
+     * The first click goes to the middle of the plan. A started game goes on
+     * from all its uncovered numbers.
+     *
+     * @return final game state
+     */
+    public int solve() {
+        if (game.getState() == MinesGame.STATE_PLAYING) {
+            if (plan.getNumberOfCovered() == width * height) {
+                click(height / 2 * width + width / 2);
+            } else {
+                for (int cell = 0; cell < seen.length; cell++) {
+                    if (!seen[cell] && !plan.isCovered(cell)) {
+                        seen[cell] = true;
+                        if (plan.getNumberOfMinesAround(cell) != 0) {
+                            push(cell);
+                        }
+                    }
+                }
+            }
+        }
+        while (game.getState() == MinesGame.STATE_PLAYING) {
+            if (!deduce() && !deducePatterns()) {
+                guess();
+            }
+        }
+        return game.getState();
+    }
+
+    /**
+     * Returns number of uncover and mark moves made so far.
+     *
+     * @return int
+     */
+    public int getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Returns number of uncover moves made without a deduction.
+     *
+     * @return int
+     */
+    public int getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * Processes the work list until a move is made or the list is empty.
+     *
+     * @return true if a move was made
+     */
+    private boolean deduce() {
+        while (workSize > 0) {
+            int cell = work[--workSize];
+            int x = cell % width;
+            int y = cell / width;
+            int number = plan.getNumberOfMines(x, y);
+            int marked = 0;
+            int covered = 0;
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (x + i < 0 || x + i >= width || y + j < 0 || y + j >= height) {
+                        continue;
+                    }
+                    if (plan.isMarkedAt(x + i, y + j)) {
+                        marked++;
+                    } else if (plan.isCoveredAt(x + i, y + j)) {
+                        covered++;
+                    }
+                }
+            }
+            if (covered == 0) {
+                continue;
+            }
+            if (number != marked && number - marked != covered) {
+                if (pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = cell;
+                continue;
+            }
+            boolean uncover = number == marked;
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (x + i < 0 || x + i >= width || y + j < 0 || y + j >= height) {
+                        continue;
+                    }
+                    if (plan.isMarkedAt(x + i, y + j) || !plan.isCoveredAt(x + i, y + j)) {
+                        continue;
+                    }
+                    if (uncover) {
+                        click((y + j) * width + x + i);
+                    } else {
+                        mark((y + j) * width + x + i);
+                    }
+                    if (game.getState() != MinesGame.STATE_PLAYING) {
+                        return true;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Looks up the numbers left by deduce() in pairs with their four
+     * neighbours until a move is made.
+     *
+     * @return true if a move was made
+     */
+    private boolean deducePatterns() {
+        while (pendingSize > 0) {
+            int cell = pending[--pendingSize];
+            boolean moved = applyPattern(cell, false) | applyPattern(cell, true);
+            if (cell % width > 0) {
+                moved |= applyPattern(cell - 1, false);
+            }
+            if (cell >= width) {
+                moved |= applyPattern(cell - width, true);
+            }
+            if (moved) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean applyPattern(int cell, boolean vertical) {
+        int count = patterns.deduce(plan, cell, vertical, forced);
+        boolean moved = false;
+        for (int i = 0; i < count && game.getState() == MinesGame.STATE_PLAYING; i++) {
+            int field = forced[i] >= 0 ? forced[i] : -1 - forced[i];
+            if (plan.isMarked(field) || !plan.isCovered(field)) {
+                continue;
+            }
+            if (forced[i] >= 0) {
+                click(field);
+            } else {
+                mark(field);
+            }
+            moved = true;
+        }
+        return moved;
+    }
+
+    private void guess() {
+        while (guessCursor < seen.length) {
+            int x = guessCursor % width;
+            int y = guessCursor / width;
+            if (plan.isCoveredAt(x, y) && !plan.isMarkedAt(x, y)) {
+                guesses++;
+                click(guessCursor);
+                return;
+            }
+            guessCursor++;
+        }
+        throw new IllegalStateException("No field left to guess.");
+    }
+
+    private void mark(int cell) {
+        game.switchMarked(cell % width, cell / width);
+        clicks++;
+        pushNumbersAround(cell);
+    }
+
+    /**
+     * Uncovers the field and puts all newly uncovered numbers to the work
+     * list. The uncovered area is found by a flood from the clicked field
+     * through the fields with no mine around.
+     */
+    private void click(int cell) {
+        game.uncover(cell % width, cell / width);
+        clicks++;
+        if (game.getState() == MinesGame.STATE_EXPLODED) {
+            return;
+        }
+        int floodSize = 0;
+        flood[floodSize++] = cell;
+        seen[cell] = true;
+        while (floodSize > 0) {
+            int current = flood[--floodSize];
+            int x = current % width;
+            int y = current / width;
+            pushNumbersAround(current);
+            if (plan.getNumberOfMines(x, y) != 0) {
+                push(current);
+                continue;
+            }
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (x + i < 0 || x + i >= width || y + j < 0 || y + j >= height) {
+                        continue;
+                    }
+                    int next = (y + j) * width + x + i;
+                    if (seen[next] || plan.isCoveredAt(x + i, y + j)) {
+                        continue;
+                    }
+                    seen[next] = true;
+                    if (floodSize == flood.length) {
+                        flood = Arrays.copyOf(flood, floodSize * 2);
+                    }
+                    flood[floodSize++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts uncovered numbers around the changed field to the work list.
+     */
+    private void pushNumbersAround(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                if ((i == 0 && j == 0) || x + i < 0 || x + i >= width || y + j < 0 || y + j >= height) {
+                    continue;
+                }
+                int next = (y + j) * width + x + i;
+                if (seen[next] && plan.getNumberOfMines(x + i, y + j) != 0) {
+                    push(next);
+                }
+            }
+        }
+    }
+
+    private void push(int cell) {
+        if (workSize == work.length) {
+            work = Arrays.copyOf(work, workSize * 2);
+        }
+        work[workSize++] = cell;
+    }
+}
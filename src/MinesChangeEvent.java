@@ -0,0 +1,143 @@
+
+/**
+ * Changes of a game made by one move.
+ *
+ * Lists every field whose display code changed with its old and new code, in
+ * the order of change. When too many fields changed or the plan was replaced,
+ * the event is full: it has no list, but a snapshot of the whole game after
+ * the move instead.
+ *
+ * The arrays are not copied and must not be changed by listeners.
+ */
+public final class MinesChangeEvent {
+
+    private static final int[] NO_CELLS = new int[0];
+    private static final byte[] NO_CODES = new byte[0];
+
+    private final MinesGame game;
+    private final int oldState;
+    private final int newState;
+    private final int[] cells;
+    private final byte[] oldCodes;
+    private final byte[] newCodes;
+    private final MinesSnapshot snapshot;
+
+    /**
+     * Constructor of an event with the list of changed fields.
+     *
+     * @param game changed game
+     * @param oldState state before the move
+     * @param newState state after the move
+     * @param cells changed fields, y * width + x
+     * @param oldCodes codes of the fields before the move
+     * @param newCodes codes of the fields after the move
+     */
+    MinesChangeEvent(MinesGame game, int oldState, int newState, int[] cells, byte[] oldCodes, byte[] newCodes) {
+        this.game = game;
+        this.oldState = oldState;
+        this.newState = newState;
+        this.cells = cells;
+        this.oldCodes = oldCodes;
+        this.newCodes = newCodes;
+        this.snapshot = null;
+    }
+
+    /**
+     * Constructor of a full event.
+     *
+     * @param game changed game
+     * @param oldState state before the move
+     * @param snapshot the game after the move
+     */
+    MinesChangeEvent(MinesGame game, int oldState, MinesSnapshot snapshot) {
+        this.game = game;
+        this.oldState = oldState;
+        this.newState = snapshot.getState();
+        this.cells = NO_CELLS;
+        this.oldCodes = NO_CODES;
+        this.newCodes = NO_CODES;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the changed game. It must be used only by the thread owning
+     * the game.
+     *
+     * @return MinesGame
+     */
+    public MinesGame getGame() {
+        return game;
+    }
+
+    /**
+     * Returns game state before the move.
+     *
+     * @return one of MinesGame.STATE_* values
+     */
+    public int getOldState() {
+        return oldState;
+    }
+
+    /**
+     * Returns game state after the move.
+     *
+     * @return one of MinesGame.STATE_* values
+     */
+    public int getNewState() {
+        return newState;
+    }
+
+    /**
+     * Checks if the move changed the game state.
+     *
+     * @return boolean
+     */
+    public boolean isStateChanged() {
+        return oldState != newState;
+    }
+
+    /**
+     * Checks if the event has the whole game instead of a list of fields.
+     *
+     * @return boolean
+     */
+    public boolean isFull() {
+        return snapshot != null;
+    }
+
+    /**
+     * Returns the game after the move for a full event.
+     *
+     * @return MinesSnapshot, null if the event is not full
+     */
+    public MinesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the changed fields.
+     *
+     * @return field indices y * width + x, empty for a full event
+     */
+    public int[] getCells() {
+        return cells;
+    }
+
+    /**
+     * Returns display codes of the changed fields before the move.
+     *
+     * @return MinesSnapshot codes in the order of getCells()
+     */
+    public byte[] getOldCodes() {
+        return oldCodes;
+    }
+
+    /**
+     * Returns display codes of the changed fields after the move.
+     *
+     * @return MinesSnapshot codes in the order of getCells()
+     */
+    public byte[] getNewCodes() {
+        return newCodes;
+    }
+}
@@ -0,0 +1,249 @@
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Encoder of board updates for one viewer of one game.
+ *
+ * Fields changed by the moves, as reported to a MinesGameListener, are
+ * collected with addChanges() and merged until the viewer is ready for the next update, so a
+ * slow viewer gets one bigger update instead of a backlog of small ones. The
+ * update is encoded either as a delta or as a full snapshot, whichever is
+ * smaller.
+ *
+ * Update data, following the game state byte:
+ * FULL int w, int h, codes of all fields packed two per byte
+ * DELTA runs up to the end of the frame, every run is varint gap from the end
+ * of the previous run (from 0 for the first one), varint number of fields and
+ * their codes packed two per byte
+ */
+public class MinesDeltaEncoder {
+
+    public static final byte FULL = 0;
+    public static final byte DELTA = 1;
+
+    // Unchanged fields between two runs cheaper to send than a new run
+    private static final int MERGE_GAP = 2;
+
+    private final BitSet pending = new BitSet();
+    private int[] cells = new int[16];
+    private int count;
+    private boolean full = true;
+
+    /**
+     * Adds changed fields to the next update.
+     *
+     * @param changed field indices y * width + x, null if everything changed
+     * @param size number of fields of the plan
+     */
+    public void addChanges(int[] changed, int size) {
+        if (full) {
+            return;
+        }
+        if (changed == null || count + changed.length > size / 4) {
+            // Such update would not be smaller than a full snapshot anyway
+            requestFull();
+            return;
+        }
+        for (int cell : changed) {
+            if (pending.get(cell)) {
+                continue;
+            }
+            pending.set(cell);
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            cells[count++] = cell;
+        }
+    }
+
+    /**
+     * Adds the fields changed by a move to the next update. Must be called on
+     * the game thread.
+     *
+     * @param event change event of the game
+     */
+    public void addChanges(MinesChangeEvent event) {
+        MinesPlan plan = event.getGame().getPlan();
+        addChanges(event.isFull() ? null : event.getCells(), plan.getWidth() * plan.getHeight());
+    }
+
+    /**
+     * Makes the next update a full snapshot.
+     */
+    public void requestFull() {
+        full = true;
+        pending.clear();
+        count = 0;
+    }
+
+    /**
+     * Checks if there is an update to send.
+     *
+     * @return boolean
+     */
+    public boolean hasUpdate() {
+        return full || count > 0;
+    }
+
+    /**
+     * Encodes the update and starts collecting the next one.
+     *
+     * @param game game the changes come from
+     * @return update data (FULL or DELTA kind byte and the data)
+     */
+    public byte[] encode(MinesGame game) {
+        int w = game.getPlan().getWidth();
+        int h = game.getPlan().getHeight();
+        int state = game.getState();
+        int fullSize = 9 + (w * h + 1) / 2;
+        byte[] result = null;
+        if (!full) {
+            Arrays.sort(cells, 0, count);
+            int size = 1;
+            int end = 0;
+            int i = 0;
+            while (i < count) {
+                int first = cells[i];
+                int last = runEnd(i);
+                size += varintSize(first - end) + varintSize(last - first + 1) + (last - first + 2) / 2;
+                end = last + 1;
+                i = next(i, last);
+            }
+            if (size < fullSize) {
+                result = encodeDelta(game, state, size);
+            }
+        }
+        if (result == null) {
+            ByteBuffer b = ByteBuffer.allocate(fullSize);
+            b.put(FULL).putInt(w).putInt(h);
+            int packed = 0;
+            for (int cell = 0; cell < w * h; cell++) {
+                packed = (packed << 4) | game.codeAt(cell, state);
+                if ((cell & 1) == 1) {
+                    b.put((byte) packed);
+                    packed = 0;
+                }
+            }
+            if ((w * h & 1) == 1) {
+                b.put((byte) (packed << 4));
+            }
+            result = b.array();
+        }
+        full = false;
+        pending.clear();
+        count = 0;
+        return result;
+    }
+
+    private byte[] encodeDelta(MinesGame game, int state, int size) {
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.put(DELTA);
+        int end = 0;
+        int i = 0;
+        while (i < count) {
+            int first = cells[i];
+            int last = runEnd(i);
+            putVarint(b, first - end);
+            putVarint(b, last - first + 1);
+            for (int cell = first; cell <= last; cell += 2) {
+                int high = game.codeAt(cell, state);
+                int low = cell < last ? game.codeAt(cell + 1, state) : 0;
+                b.put((byte) (high << 4 | low));
+            }
+            end = last + 1;
+            i = next(i, last);
+        }
+        return b.array();
+    }
+
+    /**
+     * Returns the last field of the run starting at sorted index i.
+     */
+    private int runEnd(int i) {
+        int last = cells[i];
+        for (int j = i + 1; j < count && cells[j] - last <= MERGE_GAP + 1; j++) {
+            last = cells[j];
+        }
+        return last;
+    }
+
+    /**
+     * Returns sorted index of the first field after the run ending at last.
+     */
+    private int next(int i, int last) {
+        while (i < count && cells[i] <= last) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Applies update data to the codes of the viewer.
+     *
+     * @param codes display codes of all fields, y * width + x, updated in place
+     * @param data update data as produced by encode, positioned at the kind
+     * byte, it is read up to its limit
+     * @throws BadNumberException if a full snapshot does not fit the codes
+     */
+    public static void apply(byte[] codes, ByteBuffer data) {
+        byte kind = data.get();
+        if (kind == FULL) {
+            int w = data.getInt();
+            int h = data.getInt();
+            if (w * h != codes.length) {
+                throw new BadNumberException("Snapshot does not fit the board.");
+            }
+            for (int cell = 0; cell < codes.length; cell += 2) {
+                int packed = data.get() & 0xFF;
+                codes[cell] = (byte) (packed >> 4);
+                if (cell + 1 < codes.length) {
+                    codes[cell + 1] = (byte) (packed & 0xF);
+                }
+            }
+            return;
+        }
+        int end = 0;
+        while (data.hasRemaining()) {
+            int first = end + getVarint(data);
+            int length = getVarint(data);
+            for (int k = 0; k < length; k += 2) {
+                int packed = data.get() & 0xFF;
+                codes[first + k] = (byte) (packed >> 4);
+                if (k + 1 < length) {
+                    codes[first + k + 1] = (byte) (packed & 0xF);
+                }
+            }
+            end = first + length;
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer b, int value) {
+        while ((value & ~0x7F) != 0) {
+            b.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        b.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer b) {
+        int value = 0;
+        int shift = 0;
+        byte part;
+        do {
+            part = b.get();
+            value |= (part & 0x7F) << shift;
+            shift += 7;
+        } while (part < 0);
+        return value;
+    }
+}
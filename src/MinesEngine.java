@@ -0,0 +1,322 @@
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs a game on its own thread.
+ *
+ * All moves are queued and executed one by one on the engine thread, which is
+ * the only thread touching the game. After the queue is drained a new
+ * snapshot is published and the listener is called on the event dispatch
+ * thread. The snapshot is the previous one with the fields changed by the
+ * moves, as reported by the game listener, so the game is not read again
+ * field by field, and shares all tiles without a change with the previous one.
+ *
+ * In progressive mode a big free area is uncovered in slices of limited
+ * size and time. A snapshot is published after every slice and moves arriving
+ * in the meantime are executed between the slices.
+ */
+public class MinesEngine {
+
+    private static final Logger LOG = Logger.getLogger(MinesEngine.class.getName());
+    // Limits of one slice of progressive uncovering
+    private static final int SLICE_CELLS = 4096;
+    private static final long SLICE_NANOS = 4_000_000;
+    // Minimal time between two snapshots published during uncovering
+    private static final long FRAME_NANOS = 16_000_000;
+
+    private final LinkedBlockingQueue<Runnable> moves = new LinkedBlockingQueue<>();
+    private final AtomicBoolean notifyPending = new AtomicBoolean();
+    private final Consumer<MinesSnapshot> listener;
+    private final Thread thread;
+    private final MinesGameListener changes = this::gameChanged;
+    private MinesGame game;
+    private MinesAutosave autosave;
+    // Changes since the last snapshot, engine thread only
+    private int[] pendingCells = new int[16];
+    private byte[] pendingCodes = new byte[16];
+    private int pendingCount;
+    private boolean pendingFull;
+    private volatile MinesSnapshot snapshot;
+    private volatile boolean running = true;
+    private volatile boolean progressive = true;
+    private long lastPublish;
+
+    /**
+     * Engine constructor, starts the engine thread.
+     *
+     * @param game game to run
+     * @param listener called on the event dispatch thread with each new
+     * snapshot, may be null
+     * @throws NullPointerException if game is null
+     */
+    public MinesEngine(MinesGame game, Consumer<MinesSnapshot> listener) {
+        if (game == null) {
+            throw new NullPointerException("Game is null");
+        }
+        this.listener = listener;
+        attach(game);
+        this.snapshot = game.snapshot();
+        this.pendingFull = false;
+        this.thread = new Thread(this::run, "mines-engine");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the last published snapshot.
+     *
+     * @return MinesSnapshot
+     */
+    public MinesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the running game. It must be used only from engine moves.
+     *
+     * @return MinesGame
+     */
+    MinesGame getGame() {
+        return game;
+    }
+
+    /**
+     * Checks if big areas are uncovered progressively.
+     *
+     * @return boolean
+     */
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    /**
+     * Turns progressive uncovering on or off (on by default).
+     *
+     * @param progressive progressive mode
+     */
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    /**
+     * Queues uncovering of the field.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     */
+    public void uncover(int x, int y) {
+        enqueue(() -> {
+            if (progressive) {
+                game.startUncover(x, y);
+            } else {
+                game.uncover(x, y);
+            }
+        });
+    }
+
+    /**
+     * Queues switching the mark of the field.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     */
+    public void switchMarked(int x, int y) {
+        enqueue(() -> game.switchMarked(x, y));
+    }
+
+    /**
+     * Queues creation of a new game. The game is built on the engine thread.
+     *
+     * @param w plan width
+     * @param h plan height
+     * @param mines number of mines
+     */
+    public void newGame(int w, int h, int mines) {
+        enqueue(() -> attach(new MinesGame(w, h, mines)));
+    }
+
+    /**
+     * Queues replacing of the running game.
+     *
+     * @param game new game
+     * @throws NullPointerException if game is null
+     */
+    public void setGame(MinesGame game) {
+        if (game == null) {
+            throw new NullPointerException("Setting a null game.");
+        }
+        enqueue(() -> attach(game));
+    }
+
+    /**
+     * Queues restoring of the game saved by the autosave and saving of this
+     * and all next games by it. A restored game still in play replaces the
+     * running one. The files are read on the engine thread.
+     *
+     * @param autosave autosave of the games
+     * @throws NullPointerException if autosave is null
+     */
+    public void setAutosave(MinesAutosave autosave) {
+        if (autosave == null) {
+            throw new NullPointerException("Autosave is null");
+        }
+        enqueue(() -> {
+            this.autosave = autosave;
+            MinesGame saved = null;
+            try {
+                saved = autosave.restore();
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Saved game not restored.", ex);
+            }
+            if (saved != null && saved.getState() == MinesGame.STATE_PLAYING) {
+                attach(saved);
+            } else {
+                autosave.attach(game);
+            }
+        });
+    }
+
+    /**
+     * Queues a move working directly with the game.
+     *
+     * @param move move to run on the engine thread
+     */
+    public void submit(Runnable move) {
+        // The move may change the plan directly, so the whole game is read
+        enqueue(() -> {
+            pendingFull = true;
+            move.run();
+        });
+    }
+
+    private void enqueue(Runnable move) {
+        if (!running) {
+            throw new IllegalStateException("Engine is stopped.");
+        }
+        moves.add(move);
+    }
+
+    /**
+     * Makes the game the running one.
+     */
+    private void attach(MinesGame game) {
+        if (this.game != null) {
+            this.game.removeListener(changes);
+        }
+        this.game = game;
+        game.addListener(changes);
+        if (autosave != null) {
+            autosave.attach(game);
+        }
+        pendingFull = true;
+    }
+
+    private void gameChanged(MinesChangeEvent event) {
+        if (pendingFull) {
+            return;
+        }
+        int[] cells = event.getCells();
+        if (event.isFull() || pendingCount + cells.length > snapshot.getWidth() * snapshot.getHeight() / 4) {
+            pendingFull = true;
+            return;
+        }
+        if (pendingCount + cells.length > pendingCells.length) {
+            int length = Math.max(pendingCells.length * 2, pendingCount + cells.length);
+            pendingCells = Arrays.copyOf(pendingCells, length);
+            pendingCodes = Arrays.copyOf(pendingCodes, length);
+        }
+        System.arraycopy(cells, 0, pendingCells, pendingCount, cells.length);
+        System.arraycopy(event.getNewCodes(), 0, pendingCodes, pendingCount, cells.length);
+        pendingCount += cells.length;
+    }
+
+    /**
+     * Stops the engine thread without waiting for it. A move in progress is
+     * finished, queued moves are discarded and no move can be queued
+     * afterwards. The engine thread closes the autosave, which writes the last
+     * changes, when it ends.
+     */
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * Waits for the engine thread to end after the shutdown.
+     *
+     * @param millis time limit, 0 waits forever
+     * @return true if the engine thread ended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        thread.join(millis);
+        return !thread.isAlive();
+    }
+
+    private void run() {
+        while (running) {
+            Runnable move;
+            try {
+                move = game.isRevealing() ? moves.poll() : moves.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+            if (move != null) {
+                try {
+                    move.run();
+                } catch (BadCoordsException | BadNumberException | WrongActionException ex) {
+                    LOG.log(Level.FINE, "Move rejected: {0}", ex.getMessage());
+                } catch (CancellationException ex) {
+                    // New game given up by the shutdown
+                    LOG.log(Level.FINE, "Move cancelled: {0}", ex.getMessage());
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.SEVERE, "Move failed.", ex);
+                }
+            }
+            if (game.isRevealing()) {
+                long deadline = System.nanoTime() + SLICE_NANOS;
+                do {
+                    game.revealStep(SLICE_CELLS);
+                } while (game.isRevealing() && System.nanoTime() < deadline);
+                if (!game.isRevealing() || System.nanoTime() - lastPublish >= FRAME_NANOS) {
+                    publish();
+                }
+            } else if (moves.isEmpty()) {
+                publish();
+            }
+        }
+        if (autosave != null) {
+            // The interrupt of the shutdown would stop waiting for the writer
+            Thread.interrupted();
+            autosave.close();
+        }
+    }
+
+    private void publish() {
+        lastPublish = System.nanoTime();
+        int state = game.getState();
+        if (pendingFull) {
+            snapshot = game.snapshot();
+        } else if (pendingCount > 0 || state != snapshot.getState()) {
+            snapshot = snapshot.withChanges(state, pendingCells, pendingCodes, pendingCount);
+        } else {
+            return;
+        }
+        pendingFull = false;
+        pendingCount = 0;
+        if (listener != null && notifyPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                notifyPending.set(false);
+                listener.accept(snapshot);
+            });
+        }
+    }
+}
@@ -0,0 +1,186 @@
+
+/**
+ * Result of a MinesEstimator run so far.
+ *
+ * Has the share of playouts won by the bot and the share of sampled layouts
+ * with a mine in every covered field, both with 95% Wilson score intervals.
+ * The best move is the covered field with the fewest sampled mines.
+ */
+public final class MinesEstimate {
+
+    // Normal quantile of the 95% interval
+    private static final double Z = 1.96;
+
+    private final int width;
+    private final int height;
+    private final int samples;
+    private final int wins;
+    // Samples with a mine by field index
+    private final int[] mines;
+    private final int bestMove;
+    private final long millis;
+    private final boolean finished;
+
+    /**
+     * Estimate constructor.
+     *
+     * @param width plan width
+     * @param height plan height
+     * @param covered covered fields of the estimated game
+     * @param samples number of sampled layouts
+     * @param wins number of playouts won
+     * @param mines samples with a mine by field index, not copied
+     * @param millis time of the run so far
+     * @param finished true if the run ended
+     */
+    MinesEstimate(int width, int height, int[] covered, int samples, int wins, int[] mines, long millis, boolean finished) {
+        this.width = width;
+        this.height = height;
+        this.samples = samples;
+        this.wins = wins;
+        this.mines = mines;
+        this.millis = millis;
+        this.finished = finished;
+        int best = -1;
+        if (samples > 0) {
+            for (int cell : covered) {
+                if (best < 0 || mines[cell] < mines[best]) {
+                    best = cell;
+                }
+            }
+        }
+        this.bestMove = best;
+    }
+
+    /**
+     * Returns number of sampled layouts played out.
+     *
+     * @return int
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns number of playouts won by the bot.
+     *
+     * @return int
+     */
+    public int getWins() {
+        return wins;
+    }
+
+    /**
+     * Returns the estimated probability of a win.
+     *
+     * @return double, NaN without samples
+     */
+    public double getWinProbability() {
+        return (double) wins / samples;
+    }
+
+    /**
+     * Returns the lower bound of the 95% interval of the win probability.
+     *
+     * @return double
+     */
+    public double getWinLow() {
+        return wilson(wins, samples, -1);
+    }
+
+    /**
+     * Returns the upper bound of the 95% interval of the win probability.
+     *
+     * @return double
+     */
+    public double getWinHigh() {
+        return wilson(wins, samples, 1);
+    }
+
+    /**
+     * Returns the covered field least likely to have a mine.
+     *
+     * @return field index y * width + x, -1 without samples
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the estimated probability of a mine in the field. It is 0 for
+     * uncovered fields.
+     *
+     * @param cell field index
+     * @return double, NaN without samples
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public double getMineProbability(int cell) {
+        return (double) mines[check(cell)] / samples;
+    }
+
+    /**
+     * Returns the lower bound of the 95% interval of the mine probability.
+     *
+     * @param cell field index
+     * @return double
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public double getMineLow(int cell) {
+        return wilson(mines[check(cell)], samples, -1);
+    }
+
+    /**
+     * Returns the upper bound of the 95% interval of the mine probability.
+     *
+     * @param cell field index
+     * @return double
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public double getMineHigh(int cell) {
+        return wilson(mines[check(cell)], samples, 1);
+    }
+
+    /**
+     * Returns time of the run up to this estimate.
+     *
+     * @return milliseconds
+     */
+    public long getTime() {
+        return millis;
+    }
+
+    /**
+     * Checks if the run has ended with this estimate.
+     *
+     * @return boolean
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private int check(int cell) {
+        if (cell < 0 || cell >= width * height) {
+            throw new BadCoordsException("Incorrect field index.");
+        }
+        return cell;
+    }
+
+    /**
+     * Returns a bound of the Wilson score interval.
+     *
+     * @param k successes
+     * @param n trials
+     * @param sign -1 for the lower bound, 1 for the upper one
+     * @return double
+     */
+    private static double wilson(int k, int n, int sign) {
+        if (n == 0) {
+            return sign < 0 ? 0 : 1;
+        }
+        double p = (double) k / n;
+        double z2 = Z * Z / n;
+        double center = p + z2 / 2;
+        double spread = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n));
+        return Math.min(1, Math.max(0, (center + sign * spread) / (1 + z2)));
+    }
+}
@@ -0,0 +1,401 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Monte Carlo analysis of a game in progress.
+ *
+ * Layouts of mines agreeing with the uncovered numbers are sampled and every
+ * layout is played out by MinesBot from the current position. The share of
+ * won playouts estimates the win probability, the share of layouts with a
+ * mine in a covered field its mine probability.
+ *
+ * Layouts are sampled by a Markov chain started from the real layout of the
+ * game. A step moves a random mine to a random covered field without a mine.
+ * Steps breaking the numbers by d are taken with probability exp(-3 d), so
+ * the chain can pass between layouts that differ in more than one mine. The
+ * penalty is high enough that a big board, with many covered fields to take a
+ * mine moved away from the numbers, is still mostly at layouts breaking no
+ * number. A sample is taken after a sweep of steps only if the layout breaks
+ * no number, otherwise the chain goes on with the next sweep, so all layouts
+ * breaking no number are sampled with the same weight, as in the game. Flags
+ * are not taken into account.
+ *
+ * Every worker of the pool runs its own chain with its own generator and
+ * plays out on its own plan, reset for each sample. Samples are merged in
+ * batches, so the estimate converges while running and can be reported.
+ */
+public class MinesEstimator {
+
+    // Steps breaking the numbers by d are taken with probability ACCEPT[d]
+    private static final double[] ACCEPT = new double[17];
+    // Samples kept by a worker before merging
+    private static final int BATCH = 16;
+    // Interval of progress reports
+    private static final long REPORT_MILLIS = 100;
+
+    static {
+        for (int d = 0; d < ACCEPT.length; d++) {
+            ACCEPT[d] = Math.exp(-3 * d);
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Estimator constructor using the common pool.
+     */
+    public MinesEstimator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Estimator constructor.
+     *
+     * @param pool pool running the playouts, one chain per worker
+     * @throws NullPointerException if pool is null
+     */
+    public MinesEstimator(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("Pool is null");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Estimates the game.
+     *
+     * @param game game in progress, read only on the calling thread
+     * @param samples number of samples to reach
+     * @param millis time limit
+     * @return estimate of the samples made until the number or the time
+     * limit is reached
+     * @throws BadNumberException if samples is less than 1 or millis is
+     * negative
+     * @throws WrongActionException if the game is over
+     */
+    public MinesEstimate estimate(MinesGame game, int samples, long millis) {
+        return estimate(game, samples, millis, null);
+    }
+
+    /**
+     * Estimates the game, reporting the estimate while running.
+     *
+     * @param game game in progress, read only on the calling thread
+     * @param samples number of samples to reach
+     * @param millis time limit
+     * @param progress called on the calling thread about every 100 ms with
+     * the estimate so far, may be null
+     * @return estimate of the samples made until the number or the time
+     * limit is reached
+     * @throws BadNumberException if samples is less than 1 or millis is
+     * negative
+     * @throws WrongActionException if the game is over
+     */
+    public MinesEstimate estimate(MinesGame game, int samples, long millis, Consumer<MinesEstimate> progress) {
+        if (samples < 1) {
+            throw new BadNumberException("Number of samples must be at least 1.");
+        }
+        if (millis < 0) {
+            throw new BadNumberException("Time limit must not be negative.");
+        }
+        if (game.getState() != MinesGame.STATE_PLAYING) {
+            throw new WrongActionException("Game is over.");
+        }
+        Run run = new Run(game.getPlan(), samples, millis);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            tasks.add(pool.submit(new Worker(run, run.random.split())));
+        }
+        while (!isDone(tasks)) {
+            synchronized (run) {
+                try {
+                    run.wait(REPORT_MILLIS);
+                } catch (InterruptedException ex) {
+                    run.deadline = 0;
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (progress != null && !isDone(tasks)) {
+                progress.accept(run.estimate(false));
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return run.estimate(true);
+    }
+
+    private static boolean isDone(List<ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            if (!task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Position of the estimated game and merged samples.
+     */
+    private static final class Run {
+
+        final int width;
+        final int height;
+        final int target;
+        final long start = System.nanoTime();
+        volatile long deadline;
+        final SplittableRandom random = new SplittableRandom();
+        final AtomicInteger claimed = new AtomicInteger();
+        // Real layout, the start of every chain
+        final boolean[] mines;
+        // Uncovered number by field index, -1 for covered fields
+        final int[] numbers;
+        final int[] covered;
+        final int[] uncovered;
+        // Uncovered numbers around covered fields, adjacent[first[i]..first[i + 1])
+        final int[] first;
+        final int[] adjacent;
+        int samples;
+        int wins;
+        final int[] mineCounts;
+
+        Run(MinesPlan plan, int target, long millis) {
+            width = plan.getWidth();
+            height = plan.getHeight();
+            this.target = target;
+            deadline = start + millis * 1000000;
+            int size = width * height;
+            mines = new boolean[size];
+            numbers = new int[size];
+            covered = new int[plan.getNumberOfCovered()];
+            uncovered = new int[size - covered.length];
+            mineCounts = new int[size];
+            int coveredCount = 0;
+            for (int cell = 0; cell < size; cell++) {
+                mines[cell] = plan.isMine(cell);
+                if (plan.isCovered(cell)) {
+                    numbers[cell] = -1;
+                    covered[coveredCount++] = cell;
+                } else {
+                    numbers[cell] = plan.getNumberOfMinesAround(cell);
+                    uncovered[cell - coveredCount] = cell;
+                }
+            }
+            first = new int[size + 1];
+            int[] around = new int[8];
+            int total = 0;
+            for (int cell = 0; cell < size; cell++) {
+                first[cell] = total;
+                if (numbers[cell] < 0) {
+                    int count = plan.neighbours(cell, around);
+                    for (int i = 0; i < count; i++) {
+                        if (numbers[around[i]] >= 0) {
+                            total++;
+                        }
+                    }
+                }
+            }
+            first[size] = total;
+            adjacent = new int[total];
+            for (int cell = 0; cell < size; cell++) {
+                if (numbers[cell] < 0) {
+                    int count = plan.neighbours(cell, around);
+                    int next = first[cell];
+                    for (int i = 0; i < count; i++) {
+                        if (numbers[around[i]] >= 0) {
+                            adjacent[next++] = around[i];
+                        }
+                    }
+                }
+            }
+        }
+
+        boolean claim() {
+            return System.nanoTime() < deadline && claimed.getAndIncrement() < target;
+        }
+
+        synchronized void merge(int samples, int wins, int[] counts) {
+            this.samples += samples;
+            this.wins += wins;
+            for (int cell : covered) {
+                mineCounts[cell] += counts[cell];
+                counts[cell] = 0;
+            }
+        }
+
+        synchronized MinesEstimate estimate(boolean finished) {
+            long millis = (System.nanoTime() - start) / 1000000;
+            return new MinesEstimate(width, height, covered, samples, wins, mineCounts.clone(), millis, finished);
+        }
+    }
+
+    /**
+     * Chain of layouts with its playout plan.
+     */
+    private static final class Worker implements Runnable {
+
+        private final Run run;
+        private final SplittableRandom random;
+        private final int[] numbers;
+        private final int[] first;
+        private final int[] adjacent;
+        // Chain mines around uncovered numbers
+        private final int[] around;
+        // Covered fields with and without a mine, place of a field in its list
+        private final boolean[] mine;
+        private final int[] mineList;
+        private final int[] freeList;
+        private final int[] place;
+        private int mineCount;
+        // Sum of differences between the numbers and the chain mines around
+        private int violation;
+        private final int[] counts;
+
+        Worker(Run run, SplittableRandom random) {
+            this.run = run;
+            this.random = random;
+            this.numbers = run.numbers;
+            this.first = run.first;
+            this.adjacent = run.adjacent;
+            int size = numbers.length;
+            around = new int[size];
+            place = new int[size];
+            counts = new int[size];
+            mine = run.mines.clone();
+            mineList = new int[run.covered.length];
+            freeList = new int[run.covered.length];
+            int free = 0;
+            for (int cell : run.covered) {
+                if (run.mines[cell]) {
+                    place[cell] = mineCount;
+                    mineList[mineCount++] = cell;
+                    for (int i = first[cell]; i < first[cell + 1]; i++) {
+                        around[adjacent[i]]++;
+                    }
+                } else {
+                    place[cell] = free;
+                    freeList[free++] = cell;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                play();
+            } finally {
+                synchronized (run) {
+                    run.notifyAll();
+                }
+            }
+        }
+
+        private void play() {
+            MinesPlan plan = new MinesPlan(run.width, run.height);
+            // One sweep of the covered fields between samples
+            int steps = Math.max(256, run.covered.length);
+            walk(4 * steps);
+            int samples = 0;
+            int wins = 0;
+            while (run.claim()) {
+                // Stepping on to the nearest consistent layout would favour
+                // layouts next to many inconsistent ones, so walks ending
+                // inconsistent are not sampled
+                do {
+                    walk(steps);
+                } while (violation != 0 && System.nanoTime() < run.deadline);
+                if (violation != 0) {
+                    break;
+                }
+                if (playout(plan)) {
+                    wins++;
+                }
+                for (int i = 0; i < mineCount; i++) {
+                    counts[mineList[i]]++;
+                }
+                samples++;
+                if (samples == BATCH) {
+                    run.merge(samples, wins, counts);
+                    samples = 0;
+                    wins = 0;
+                }
+            }
+            run.merge(samples, wins, counts);
+            plan.release();
+        }
+
+        private void walk(int steps) {
+            for (int i = 0; i < steps; i++) {
+                step();
+            }
+        }
+
+        /**
+         * Moves a random mine to a random covered field, if it has no mine.
+         * Staying in place keeps the chain from flipping back and forth
+         * between two layouts. A game in progress has a covered mine.
+         */
+        private void step() {
+            int i = random.nextInt(mineCount);
+            int to = run.covered[random.nextInt(run.covered.length)];
+            if (mine[to]) {
+                return;
+            }
+            int j = place[to];
+            int from = mineList[i];
+            int delta = move(from, -1) + move(to, 1);
+            if (delta <= 0 || random.nextDouble() < ACCEPT[Math.min(delta, ACCEPT.length - 1)]) {
+                violation += delta;
+                mineList[i] = to;
+                place[to] = i;
+                mine[to] = true;
+                freeList[j] = from;
+                place[from] = j;
+                mine[from] = false;
+            } else {
+                move(to, -1);
+                move(from, 1);
+            }
+        }
+
+        /**
+         * Adds a mine to the field or removes it.
+         *
+         * @return change of the violation
+         */
+        private int move(int cell, int sign) {
+            int delta = 0;
+            for (int i = first[cell]; i < first[cell + 1]; i++) {
+                int number = adjacent[i];
+                int before = Math.abs(around[number] - numbers[number]);
+                around[number] += sign;
+                delta += Math.abs(around[number] - numbers[number]) - before;
+            }
+            return delta;
+        }
+
+        /**
+         * Plays out the current layout from the estimated position.
+         *
+         * @return true if the bot wins
+         */
+        private boolean playout(MinesPlan plan) {
+            plan.clearAllMines();
+            plan.clearAllMarks();
+            plan.coverAll();
+            for (int i = 0; i < mineCount; i++) {
+                plan.setMine(plan.toPos(mineList[i]));
+            }
+            for (int cell : run.uncovered) {
+                plan.uncover(cell);
+            }
+            return new MinesBot(new MinesGame(plan)).solve() == MinesGame.STATE_DONE;
+        }
+    }
+}
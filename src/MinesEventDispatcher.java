@@ -0,0 +1,88 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Game listener passing the events to another listener on its own thread.
+ *
+ * The events wait in a queue of limited size. When the target listener falls
+ * so far behind that the queue is full, the waiting events are replaced by one
+ * full event with a snapshot of the game, so the game thread never waits for
+ * the target and the target still gets to the current game.
+ */
+public class MinesEventDispatcher implements MinesGameListener {
+
+    private static final Logger LOG = Logger.getLogger(MinesEventDispatcher.class.getName());
+
+    private final MinesGameListener target;
+    private final ArrayBlockingQueue<MinesChangeEvent> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Dispatcher constructor, starts the dispatching thread.
+     *
+     * @param target listener called on the dispatching thread
+     * @param capacity maximum number of waiting events (min. 1)
+     * @throws NullPointerException if target is null
+     * @throws BadNumberException if capacity is less than 1
+     */
+    public MinesEventDispatcher(MinesGameListener target, int capacity) {
+        if (target == null) {
+            throw new NullPointerException("Listener is null");
+        }
+        if (capacity < 1) {
+            throw new BadNumberException("Capacity must be at least 1.");
+        }
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::run, "mines-events");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the event, called on the game thread.
+     *
+     * @param event changes of a move
+     */
+    @Override
+    public void gameChanged(MinesChangeEvent event) {
+        if (!running || queue.offer(event)) {
+            return;
+        }
+        // Only this thread adds events, so the queue has room after draining
+        List<MinesChangeEvent> missed = new ArrayList<>();
+        queue.drainTo(missed);
+        int oldState = missed.isEmpty() ? event.getOldState() : missed.get(0).getOldState();
+        MinesSnapshot snapshot = event.isFull() ? event.getSnapshot() : event.getGame().snapshot();
+        queue.offer(new MinesChangeEvent(event.getGame(), oldState, snapshot));
+    }
+
+    /**
+     * Stops the dispatching thread. Waiting events are discarded.
+     */
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            MinesChangeEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+            try {
+                target.gameChanged(event);
+            } catch (RuntimeException ex) {
+                LOG.log(Level.SEVERE, "Listener failed.", ex);
+            }
+        }
+    }
+}
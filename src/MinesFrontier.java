@@ -0,0 +1,163 @@
+
+import java.util.Arrays;
+
+/**
+ * Frontier of a game: covered fields without a flag next to at least one
+ * uncovered field.
+ *
+ * The fields are kept in a dense array in no particular order and a map from
+ * plan positions to their places in the array, so adding, removing and
+ * checking a field takes constant time. The game updates the frontier as it
+ * uncovers and marks fields, so it is never searched for on the whole plan.
+ *
+ * The frontier is created by MinesGame.getFrontier() and has the same owner
+ * as the game.
+ */
+public class MinesFrontier {
+
+    private MinesPlan plan;
+    // Plan positions of the frontier fields
+    private int[] fields = new int[16];
+    private int size;
+    // Place of every plan position in fields, -1 if it is not there
+    private int[] place;
+
+    /**
+     * Frontier constructor, searches the plan once.
+     *
+     * @param plan game plan
+     */
+    MinesFrontier(MinesPlan plan) {
+        reset(plan);
+    }
+
+    /**
+     * Searches the frontier of another plan.
+     */
+    void reset(MinesPlan plan) {
+        this.plan = plan;
+        int stride = plan.stride();
+        place = new int[stride * (plan.getHeight() + 2)];
+        Arrays.fill(place, -1);
+        size = 0;
+        for (int y = 1; y <= plan.getHeight(); y++) {
+            for (int pos = y * stride + 1; pos <= y * stride + plan.getWidth(); pos++) {
+                if (plan.coveredAt(pos) && !plan.markedAt(pos) && nextToUncovered(pos)) {
+                    add(pos);
+                }
+            }
+        }
+    }
+
+    private boolean nextToUncovered(int pos) {
+        int stride = plan.stride();
+        for (int offset : plan.offsets()) {
+            int next = pos + offset;
+            int x = next % stride;
+            int y = next / stride;
+            // The border is uncovered, but it is not a field
+            if (x >= 1 && x <= plan.getWidth() && y >= 1 && y <= plan.getHeight() && !plan.coveredAt(next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(int pos) {
+        if (place[pos] >= 0) {
+            return;
+        }
+        if (size == fields.length) {
+            fields = Arrays.copyOf(fields, size * 2);
+        }
+        place[pos] = size;
+        fields[size++] = pos;
+    }
+
+    private void remove(int pos) {
+        int i = place[pos];
+        if (i < 0) {
+            return;
+        }
+        // The last field takes the place of the removed one
+        int last = fields[--size];
+        fields[i] = last;
+        place[last] = i;
+        place[pos] = -1;
+    }
+
+    /**
+     * Updates the frontier after the field at the position was uncovered.
+     */
+    void uncovered(int pos) {
+        remove(pos);
+        for (int offset : plan.offsets()) {
+            int next = pos + offset;
+            // The border is uncovered, so it is never added
+            if (plan.coveredAt(next) && !plan.markedAt(next)) {
+                add(next);
+            }
+        }
+    }
+
+    /**
+     * Updates the frontier after the field at the position was (un)marked.
+     */
+    void markChanged(int pos) {
+        if (plan.markedAt(pos) || !plan.coveredAt(pos)) {
+            remove(pos);
+        } else if (nextToUncovered(pos)) {
+            add(pos);
+        }
+    }
+
+    /**
+     * Returns number of fields of the frontier.
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns field of the frontier.
+     *
+     * @param i place of the field, 0 to size() - 1
+     * @return field index y * width + x
+     * @throws IndexOutOfBoundsException if i is not a place of a field
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Incorrect place in the frontier.");
+        }
+        return plan.toCell(fields[i]);
+    }
+
+    /**
+     * Checks if the field is in the frontier.
+     *
+     * @param cell field index
+     * @return boolean
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public boolean contains(int cell) {
+        if (cell < 0 || cell >= plan.getWidth() * plan.getHeight()) {
+            throw new BadCoordsException("Incorrect field index.");
+        }
+        return place[plan.toPos(cell)] >= 0;
+    }
+
+    /**
+     * Returns all fields of the frontier.
+     *
+     * @return field indices y * width + x in no particular order
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = plan.toCell(fields[i]);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,9 @@
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
-import java.util.LinkedList;
+import java.util.concurrent.CancellationException;
 
 /**
  * Minesweeper game class
@@ -12,6 +15,27 @@ public class MinesGame {
     public static int STATE_DONE = 3;
 
     private MinesPlan plan;
+    private final Random random;
+    // Plan positions of fields with 0 mines around waiting for uncovering of
+    // their vicinity
+    private int[] queue = new int[16];
+    private int queueHead;
+    private int queueTail;
+    // Null until requested by getFrontier()
+    private MinesFrontier frontier;
+    private final List<MinesGameListener> listeners = new ArrayList<>();
+    // Nesting of running moves, listeners are called when the outer one ends
+    private int moveDepth;
+    // Changes of the running move collected for the listeners
+    private boolean recording;
+    private int moveState;
+    private int[] moveCells = new int[16];
+    private byte[] moveCodes = new byte[16];
+    private int moveCount;
+    private boolean moveFull;
+    // Zobrist hash of the visible fields, kept only after getHash()
+    private boolean hashing;
+    private long hash;
 
     /**
      * Game constructor for new game
@@ -20,8 +44,32 @@ public class MinesGame {
      * @param h plan height (min. 2)
      * @param mines number of mines (min. 1, max. w*h-1)
      * @throws BadNumberException if w, h or mines has a bad value
+     * @throws CancellationException if the thread is interrupted while the
+     * mines are placed, the interrupt stays set
      */
     public MinesGame(int w, int h, int mines) {
+        this(w, h, mines, new Random());
+    }
+
+    /**
+     * Game constructor for new game with given random generator
+     *
+     * The generator is used for placing the mines, so a seeded generator gives
+     * always the same game.
+     *
+     * @param w plan width (min. 2)
+     * @param h plan height (min. 2)
+     * @param mines number of mines (min. 1, max. w*h-1)
+     * @param random random generator for mine placing
+     * @throws BadNumberException if w, h or mines has a bad value
+     * @throws NullPointerException if random is null
+     * @throws CancellationException if the thread is interrupted while the
+     * mines are placed, the interrupt stays set
+     */
+    public MinesGame(int w, int h, int mines, Random random) {
+        if (random == null) {
+            throw new NullPointerException("Random is null");
+        }
         if (w < 2) {
             throw new BadNumberException("Width of the plan must be at least 2.");
         }
@@ -31,8 +79,27 @@ public class MinesGame {
         if (mines < 1 || mines > w * h - 1) {
             throw new BadNumberException("Incorrect mine number.");
         }
+        this.random = random;
         this.plan = new MinesPlan(w, h);
-        placeMines(mines);
+        placeMines(mines, true);
+    }
+
+    /**
+     * Game constructor for new game on a clear plan, used for plans with
+     * pooled buffers.
+     *
+     * @param plan clear plan without mines
+     * @param mines number of mines (min. 1, max. w*h-1)
+     * @param random random generator for mine placing
+     * @throws BadNumberException if mines has a bad value
+     */
+    MinesGame(MinesPlan plan, int mines, Random random) {
+        if (mines < 1 || mines > plan.getWidth() * plan.getHeight() - 1) {
+            throw new BadNumberException("Incorrect mine number.");
+        }
+        this.random = random;
+        this.plan = plan;
+        placeMines(mines, true);
     }
 
     /**
@@ -56,9 +123,40 @@ public class MinesGame {
         if (plan.getNumberOfMines() == 0) {
             throw new BadNumberException("There is no mine.");
         }
+        this.random = new Random();
         this.plan = plan;
     }
 
+    /**
+     * Constructor of a fork.
+     *
+     * @param game forked game
+     */
+    private MinesGame(MinesGame game) {
+        this.random = new Random(game.random.nextLong());
+        this.plan = game.plan.fork();
+        int waiting = game.queueTail - game.queueHead;
+        this.queue = Arrays.copyOfRange(game.queue, game.queueHead, game.queueHead + Math.max(waiting, 16));
+        this.queueTail = waiting;
+        this.hashing = game.hashing;
+        this.hash = game.hash;
+    }
+
+    /**
+     * Returns an independent copy of the game, for trying moves.
+     *
+     * The copy shares the plan with this game until one of them changes it
+     * (see MinesPlan.fork()), so forking and a move in the fork are cheap on a
+     * plan of any size. The fork continues uncovering of waiting fields and
+     * has a random generator seeded from this game. It has no listeners, its
+     * frontier is searched on request.
+     *
+     * @return MinesGame
+     */
+    public MinesGame fork() {
+        return new MinesGame(this);
+    }
+
     public MinesPlan getPlan() {
         return this.plan;
     }
@@ -84,7 +182,18 @@ public class MinesGame {
         if (plan.getNumberOfMines() == 0) {
             throw new BadNumberException("There is no mine.");
         }
+        beginMove();
         this.plan = plan;
+        queueHead = 0;
+        queueTail = 0;
+        moveFull = true;
+        if (frontier != null) {
+            frontier.reset(plan);
+        }
+        if (hashing) {
+            hash = computeHash();
+        }
+        endMove();
     }
 
     /**
@@ -95,16 +204,18 @@ public class MinesGame {
      * @retval STATE_DONE Player has uncovered all squares without mines
      */
     public int getState() {
-        int uncoveredMinesCounter = 0;
-        for (int i = 0; i < plan.getWidth(); i++) {
-            for (int j = 0; j < plan.getHeight(); j++) {
-                if (plan.isMineAt(i, j) && !plan.isCoveredAt(i, j)) {
-                    uncoveredMinesCounter++;
-                }
-            }
+        if (!MinesMetrics.ENABLED) {
+            return computeState();
         }
+        long start = System.nanoTime();
+        int state = computeState();
+        MinesMetrics.STATE.recordSince(start);
+        return state;
+    }
+
+    private int computeState() {
         // Check for a loss
-        if (uncoveredMinesCounter > 0) {
+        if (plan.getNumberOfUncoveredMines() > 0) {
             return STATE_EXPLODED;
         }
         // Check for a win
@@ -114,6 +225,69 @@ public class MinesGame {
         return STATE_PLAYING;
     }
 
+    /**
+     * Returns render snapshot of the game.
+     *
+     * The state is computed only once for the whole snapshot, so the renderer
+     * does not have to query the plan for every field.
+     *
+     * @return MinesSnapshot
+     */
+    public MinesSnapshot snapshot() {
+        int state = getState();
+        int w = plan.getWidth();
+        int h = plan.getHeight();
+        byte[][] tiles = MinesSnapshot.newTiles(w * h);
+        for (int y = 0; y < h; y++) {
+            int pos = plan.toPos(y * w);
+            for (int x = 0, cell = y * w; x < w; x++, cell++) {
+                tiles[cell >>> MinesSnapshot.TILE_BITS][cell & MinesSnapshot.TILE_MASK] = (byte) code(pos + x, state);
+            }
+        }
+        return new MinesSnapshot(w, h, state, tiles);
+    }
+
+    /**
+     * Returns display code of the field for given game state.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @param state game state
+     * @return one of MinesSnapshot codes
+     */
+    int codeAt(int x, int y, int state) {
+        return codeAt(plan.index(x, y), state);
+    }
+
+    /**
+     * Returns display code of the field for given game state without bounds
+     * checking.
+     *
+     * @param cell y * width + x
+     * @param state game state
+     * @return one of MinesSnapshot codes
+     */
+    int codeAt(int cell, int state) {
+        return code(plan.toPos(cell), state);
+    }
+
+    private int code(int pos, int state) {
+        boolean mine = plan.mineAt(pos);
+        boolean marked = plan.markedAt(pos);
+        if (state == STATE_EXPLODED) {
+            if (marked && !mine) {
+                return MinesSnapshot.CODE_WRONG_FLAG;
+            }
+            if (mine && !marked) {
+                return plan.coveredAt(pos) ? MinesSnapshot.CODE_MINE : MinesSnapshot.CODE_EXPLODED;
+            }
+        }
+        if (plan.coveredAt(pos)) {
+            return marked ? MinesSnapshot.CODE_FLAG : MinesSnapshot.CODE_COVERED;
+        }
+        return plan.minesAround(pos);
+    }
+
     /**
      * Change marking state of an uncovered field during game.
      *
@@ -135,14 +309,21 @@ public class MinesGame {
         if (y < 0 || y >= plan.getHeight()) {
             throw new BadCoordsException("Marking or unmarking a wrong coordinate.");
         }
-        if (!plan.isCoveredAt(x, y)) {
+        int pos = plan.toPos(y * plan.getWidth() + x);
+        if (!plan.coveredAt(pos)) {
             throw new WrongActionException("Trying to mark an uncovered coordinate.");
         }
-        if (plan.isMarkedAt(x, y)) {
-            plan.mark(x, y, false);
-        } else {
-            plan.mark(x, y, true);
+        beginMove();
+        recordChange(pos);
+        int oldCode = hashing ? visibleCode(pos) : 0;
+        plan.markAt(pos, !plan.markedAt(pos));
+        if (hashing) {
+            rehash(pos, oldCode);
         }
+        if (frontier != null) {
+            frontier.markChanged(pos);
+        }
+        endMove();
     }
 
     /**
@@ -150,117 +331,379 @@ public class MinesGame {
      *
      * Sets the field as uncovered if the game is playable and the field is not
      * marked. Otherwise, no change is made. At 0 mines in the vicinity, it
-     * triggers a recursive uncovering.
+     * triggers uncovering of the whole free area.
      *
      * @param x x-coord
      * @param y y-coord
      * @throws BadCoordsException if the coordinates are outside the game plan.
      */
     public void uncover(int x, int y) {
+        beginMove();
+        try {
+            startUncover(x, y);
+            while (revealStep(Integer.MAX_VALUE) > 0) {
+            }
+        } finally {
+            endMove();
+        }
+    }
+
+    /**
+     * Uncover field during game without uncovering the free area around it.
+     *
+     * Works like uncover(), but fields in the vicinity of a field with 0 mines
+     * are only queued. They are uncovered by calling revealStep(), so a big
+     * area can be uncovered in several parts. The game is in a consistent
+     * state after every part. Uncovering another field before the queue is
+     * empty merges its area into the same queue, uncovering a mine empties
+     * it.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @throws BadCoordsException if the coordinates are outside the game plan.
+     */
+    public void startUncover(int x, int y) {
+        long start = MinesMetrics.ENABLED ? System.nanoTime() : 0;
         // Exceptions
         if (getState() != MinesGame.STATE_PLAYING || plan.isMarkedAt(x, y)) {
             return;
         }
-        if (x < 0 || x >= plan.getWidth() || y < 0 || y >= plan.getHeight()) {
-            throw new BadCoordsException("Uncovering a wrong coordinate.");
-        }
+        beginMove();
+        int pos = plan.toPos(y * plan.getWidth() + x);
         // Rearrange mines for first click
         if (plan.getNumberOfCovered() == plan.getWidth() * plan.getHeight()) {
             if (plan.getNumberOfMines() < plan.getWidth() * plan.getHeight() - 9) {
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                        if (x + i < 0 || x + i >= plan.getWidth() || y + j < 0 || y + j >= plan.getHeight()) {
-                            continue;
-                        }
-                        if (plan.isMineAt(x + i, y + j)) {
-                            placeMines(1);
-                            plan.clearMineAt(x + i, y + j);
-                        }
-                        plan.uncover(x + i, y + j);
+                // The uncovered border is skipped
+                for (int offset : plan.offsets()) {
+                    int next = pos + offset;
+                    if (!plan.coveredAt(next)) {
+                        continue;
                     }
+                    if (plan.mineAt(next)) {
+                        placeMines(1);
+                        plan.clearMine(next);
+                    }
+                    plan.uncoverAt(next);
+                }
+                if (plan.mineAt(pos)) {
+                    placeMines(1);
+                    plan.clearMine(pos);
                 }
                 plan.coverAll();
             } else {
-                if (plan.isMineAt(x, y)) {
+                if (plan.mineAt(pos)) {
                     placeMines(1);
-                    plan.clearMineAt(x, y);
+                    plan.clearMine(pos);
                 }
             }
         }
         // Uncover
-        plan.uncover(x, y);
-        uncoverZero(x, y);
+        recordChange(pos);
+        int oldCode = hashing ? visibleCode(pos) : 0;
+        plan.uncoverAt(pos);
+        if (hashing) {
+            rehash(pos, oldCode);
+        }
+        if (frontier != null) {
+            frontier.uncovered(pos);
+        }
+        if (plan.mineAt(pos)) {
+            // Waiting fields stay covered
+            queueHead = 0;
+            queueTail = 0;
+        } else {
+            if (plan.minesAround(pos) == 0) {
+                enqueue(pos);
+            }
+        }
+        if (MinesMetrics.ENABLED) {
+            MinesMetrics.UNCOVER.recordSince(start);
+        }
+        endMove();
     }
 
     /**
-     * Recursive method for uncovering fields in the vicinity of the free field.
+     * Uncovers at most the given number of queued fields.
      *
-     * It does nothing if the field is uncovered or marked or off the game plan.
-     * It uncovers the field and recursively starts uncovering in the
-     * surrounding eight fields if there are no mines in the vicinity. It only
-     * uncovers the field and does no recursion if there are any mines in the
-     * vicinity.
+     * @param maxCells maximum number of fields taken from the queue
+     * @return number of fields taken from the queue, 0 if the queue is empty
+     * or the game is over, which empties the queue
+     */
+    public int revealStep(int maxCells) {
+        if (queueHead < queueTail && computeState() != STATE_PLAYING) {
+            queueHead = 0;
+            queueTail = 0;
+        }
+        if (queueHead == queueTail) {
+            return 0;
+        }
+        beginMove();
+        long start = MinesMetrics.ENABLED ? System.nanoTime() : 0;
+        int done = 0;
+        int opened = 0;
+        while (done < maxCells && queueHead < queueTail) {
+            opened += uncoverZero(queue[queueHead++]);
+            done++;
+        }
+        if (queueHead == queueTail) {
+            queueHead = 0;
+            queueTail = 0;
+        }
+        if (MinesMetrics.ENABLED) {
+            MinesMetrics.CASCADE.recordSince(start);
+            MinesMetrics.CASCADE_CELLS.record(opened);
+        }
+        endMove();
+        return done;
+    }
+
+    /**
+     * Checks if there are fields waiting to be uncovered by revealStep().
      *
-     * @param x x-coord
-     * @param y y-coord
+     * @return boolean
+     */
+    public boolean isRevealing() {
+        return queueHead < queueTail;
+    }
+
+    /**
+     * Uncovers the vicinity of the uncovered field with 0 mines around.
+     *
+     * Covered fields in the surrounding eight fields are uncovered and those
+     * with 0 mines in the vicinity (and not marked) are queued.
+     *
+     * @param pos plan position of the field
+     * @return number of uncovered fields
+     */
+    private int uncoverZero(int pos) {
+        int opened = 0;
+        // The border is uncovered, so it needs no check
+        for (int offset : plan.offsets()) {
+            int next = pos + offset;
+            if (!plan.coveredAt(next)) {
+                continue;
+            }
+            recordChange(next);
+            int oldCode = hashing ? visibleCode(next) : 0;
+            plan.uncoverAt(next);
+            if (hashing) {
+                rehash(next, oldCode);
+            }
+            if (frontier != null) {
+                frontier.uncovered(next);
+            }
+            opened++;
+            if (plan.minesAround(next) == 0 && !plan.markedAt(next)) {
+                enqueue(next);
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Returns the frontier of the game, covered fields without a flag next to
+     * an uncovered field. It is searched on the first call and kept up to date
+     * by the game afterwards.
+     *
+     * @return MinesFrontier
+     */
+    public MinesFrontier getFrontier() {
+        if (frontier == null) {
+            frontier = new MinesFrontier(plan);
+        }
+        return frontier;
+    }
+
+    /**
+     * Returns 64-bit Zobrist hash of the fields a player sees: covered,
+     * flagged and uncovered ones with their numbers. Games of the same size
+     * showing the same fields have the same hash, whatever the moves leading
+     * there. The hash is computed on the first call and updated by every
+     * changed field afterwards, forks get it from their parent.
+     *
+     * @return long
      */
-    /*private void uncoverZero(int x, int y) {
-        if (getState() != 1 || plan.isMarkedAt(x, y) || x < 0 || x >= plan.getWidth() || y < 0 || y >= plan.getHeight() || plan.getNumberOfMines(x, y) != 0) {
+    public long getHash() {
+        if (!hashing) {
+            hash = computeHash();
+            hashing = true;
+        }
+        return hash;
+    }
+
+    private long computeHash() {
+        int w = plan.getWidth();
+        // Games of other sizes differ already by the empty plan
+        long result = mix(~(((long) w << 32) + plan.getHeight()));
+        for (int y = 0; y < plan.getHeight(); y++) {
+            int pos = plan.toPos(y * w);
+            for (int x = 0; x < w; x++, pos++) {
+                result ^= zobrist(pos, visibleCode(pos));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the hash by a change of the field.
+     *
+     * @param pos plan position of the field
+     * @param oldCode visible code of the field before the change
+     */
+    private void rehash(int pos, int oldCode) {
+        hash ^= zobrist(pos, oldCode) ^ zobrist(pos, visibleCode(pos));
+    }
+
+    /**
+     * Returns code of the field as seen during the game, an uncovered mine is
+     * CODE_EXPLODED.
+     */
+    private int visibleCode(int pos) {
+        if (plan.coveredAt(pos)) {
+            return plan.markedAt(pos) ? MinesSnapshot.CODE_FLAG : MinesSnapshot.CODE_COVERED;
+        }
+        return plan.mineAt(pos) ? MinesSnapshot.CODE_EXPLODED : plan.minesAround(pos);
+    }
+
+    /**
+     * Returns random key of a field with given code. Covered fields have key
+     * 0, so a new game needs no keys.
+     *
+     * @param pos plan position of the field
+     * @param code visible code of the field
+     * @return long
+     */
+    private static long zobrist(int pos, int code) {
+        return code == MinesSnapshot.CODE_COVERED ? 0 : mix(((long) pos << 4) + code);
+    }
+
+    /**
+     * SplitMix64 mixing function.
+     */
+    private static long mix(long key) {
+        long z = key * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Adds a listener called after every move changing the game.
+     *
+     * @param listener listener
+     * @throws NullPointerException if listener is null
+     */
+    public void addListener(MinesGameListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("Listener is null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes the listener.
+     *
+     * @param listener listener added before
+     */
+    public void removeListener(MinesGameListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void beginMove() {
+        if (moveDepth++ > 0) {
             return;
         }
-        LinkedList<int[]> queue = new LinkedList<int[]>();
-        queue.add(new int[]{x, y});
-        while (!queue.isEmpty()) {
-            int[] currentCell = queue.poll();
-            int newX = currentCell[0];
-            int newY = currentCell[1];
-            plan.uncover(newX, newY);
-            for (int i = -1; i <= 1; i++) {
-                for (int j = -1; j <= 1; j++) {
-                    // Exceptions
-                    if (i == 0 && j == 0) {
-                        continue;
-                    }
-                    if (newX + i < 0 || newX + i >= plan.getWidth() || newY + j < 0 || newY + j >= plan.getHeight()) {
-                        continue;
-                    }
-                    if (!plan.isCoveredAt(newX + i, newY + j)) {
-                        continue;
-                    }
-                    // End of exceptions
-                    if (plan.getNumberOfMines(newX + i, newY + j) == 0) {
-                        queue.add(new int[]{newX + i, newY + j});
-                    } else {
-                        plan.uncover(newX + i, newY + j);
-                    }
+        recording = !listeners.isEmpty();
+        if (recording) {
+            moveState = computeState();
+            moveCount = 0;
+            moveFull = false;
+        }
+    }
 
+    private void endMove() {
+        if (--moveDepth > 0 || !recording) {
+            return;
+        }
+        recording = false;
+        int state = computeState();
+        if (!moveFull && state == STATE_EXPLODED && moveState != STATE_EXPLODED) {
+            // Covered mines are shown and wrong flags crossed
+            int w = plan.getWidth();
+            for (int y = 0; y < plan.getHeight() && !moveFull; y++) {
+                int pos = plan.toPos(y * w);
+                for (int x = 0; x < w; x++, pos++) {
+                    if (plan.coveredAt(pos) && plan.mineAt(pos) != plan.markedAt(pos)) {
+                        addChange(pos, code(pos, moveState));
+                    }
                 }
             }
         }
-    } */
-    private void uncoverZero(int x, int y) {
-        if (getState() != 1 || plan.isMarkedAt(x, y) || x < 0 || x >= plan.getWidth() || y < 0 || y >= plan.getHeight() || plan.getNumberOfMines(x, y) != 0) {
+        if (moveCount == 0 && !moveFull && state == moveState) {
             return;
         }
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                // Exceptions
-                if (i == 0 && j == 0) {
-                    continue;
-                }
-                if (x + i < 0 || x + i >= plan.getWidth() || y + j < 0 || y + j >= plan.getHeight()) {
-                    continue;
-                }
-                if (!plan.isCoveredAt(x + i, y + j)) {
-                    continue;
-                }
-                // End of exceptions
-                plan.uncover(x + i, y + j);
-                if (plan.getNumberOfMines(x + i, y + j) == 0) {
-                    uncoverZero(x + i, y + j);
-                }
+        MinesChangeEvent event;
+        if (moveFull) {
+            event = new MinesChangeEvent(this, moveState, snapshot());
+        } else {
+            int[] cells = new int[moveCount];
+            byte[] codes = new byte[moveCount];
+            for (int i = 0; i < moveCount; i++) {
+                cells[i] = plan.toCell(moveCells[i]);
+                codes[i] = (byte) code(moveCells[i], state);
+            }
+            event = new MinesChangeEvent(this, moveState, state, cells, Arrays.copyOf(moveCodes, moveCount), codes);
+        }
+        moveCount = 0;
+        // Listeners may remove themselves
+        for (MinesGameListener listener : listeners.toArray(new MinesGameListener[0])) {
+            listener.gameChanged(event);
+        }
+    }
+
+    /**
+     * Records the field with its display code before it is changed by the
+     * running move.
+     *
+     * @param pos plan position of the field
+     */
+    private void recordChange(int pos) {
+        if (recording && !moveFull) {
+            addChange(pos, code(pos, computeState()));
+        }
+    }
+
+    private void addChange(int pos, int oldCode) {
+        if (moveCount == moveCells.length) {
+            // Beyond a quarter of the plan the whole game is cheaper to read
+            if (moveCount >= plan.getWidth() * plan.getHeight() / 4) {
+                moveFull = true;
+                moveCount = 0;
+                return;
             }
+            moveCells = Arrays.copyOf(moveCells, moveCount * 2);
+            moveCodes = Arrays.copyOf(moveCodes, moveCount * 2);
         }
+        moveCells[moveCount] = pos;
+        moveCodes[moveCount++] = (byte) oldCode;
+    }
+
+    /**
+     * Adds the field to the uncovering queue.
+     *
+     * @param pos plan position of the field
+     */
+    private void enqueue(int pos) {
+        if (queueTail == queue.length) {
+            if (queueHead > 0) {
+                System.arraycopy(queue, queueHead, queue, 0, queueTail - queueHead);
+                queueTail -= queueHead;
+                queueHead = 0;
+            } else {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+        }
+        queue[queueTail++] = pos;
     }
 
     /**
@@ -271,21 +714,39 @@ public class MinesGame {
      * greater than the number of covered fields
      */
     private void placeMines(int count) {
+        placeMines(count, false);
+    }
+
+    /**
+     * Randomly place a given number of mines. A new game gives up when its
+     * thread is interrupted, so a stale build of a huge plan ends early.
+     *
+     * @param count Mines count, must be at least 1
+     * @param interruptible true to check the interrupt every 65536 tries
+     * @throws CancellationException if interruptible and the thread is
+     * interrupted
+     */
+    private void placeMines(int count, boolean interruptible) {
         if (count < 1 || count > plan.getWidth() * plan.getHeight() - 1) {
             throw new BadNumberException("Placing an incorrect amount of mines.");
         }
-        Random rand = new Random();
+        long start = MinesMetrics.ENABLED ? System.nanoTime() : 0;
+        int tries = 0;
         while (count > 0) {
-            int randomX = rand.nextInt(plan.getWidth());
-            int randomY = rand.nextInt(plan.getHeight());
-            if (plan.isMineAt(randomX, randomY)) {
-                continue;
+            if (interruptible && (++tries & 0xFFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Placing of the mines interrupted.");
             }
-            if (!plan.isCoveredAt(randomX, randomY)) {
+            int randomX = random.nextInt(plan.getWidth());
+            int randomY = random.nextInt(plan.getHeight());
+            int pos = plan.toPos(randomY * plan.getWidth() + randomX);
+            if (plan.mineAt(pos) || !plan.coveredAt(pos)) {
                 continue;
             }
-            plan.setMineAt(randomX, randomY);
+            plan.setMine(pos);
             count--;
         }
+        if (MinesMetrics.ENABLED) {
+            MinesMetrics.PLACE_MINES.recordSince(start);
+        }
     }
 }
@@ -0,0 +1,149 @@
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds new games in the background before they are needed.
+ *
+ * The factory keeps a given number of ready games for the configured size and
+ * number of mines, so starting a new game only takes a ready one. A changed
+ * configuration drops the ready games, cancels waiting builds and interrupts
+ * the running one, which gives up placing its mines, so a stale build of a
+ * huge plan does not hold up the new configuration. Safe for use from many
+ * threads.
+ */
+public class MinesGameFactory {
+
+    private static final Logger LOG = Logger.getLogger(MinesGameFactory.class.getName());
+
+    private final ExecutorService executor;
+    private final int depth;
+    private final ArrayDeque<MinesGame> ready = new ArrayDeque<>();
+    private final List<Future<?>> builds = new ArrayList<>();
+    private int width;
+    private int height;
+    private int mines;
+    // Number of builds of the current configuration not finished yet
+    private int pending;
+    // Incremented by every change of the configuration
+    private int generation;
+
+    /**
+     * Factory constructor, starts the building thread.
+     *
+     * @param depth number of ready games to keep (min. 1)
+     * @throws BadNumberException if depth is less than 1
+     */
+    public MinesGameFactory(int depth) {
+        if (depth < 1) {
+            throw new BadNumberException("At least one game must be prepared.");
+        }
+        this.depth = depth;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mines-factory");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the configuration of the prepared games and starts building them.
+     * Nothing is done if it is the current one.
+     *
+     * @param w plan width
+     * @param h plan height
+     * @param mines number of mines
+     */
+    public synchronized void configure(int w, int h, int mines) {
+        if (generation > 0 && w == width && h == height && mines == this.mines) {
+            fill();
+            return;
+        }
+        width = w;
+        height = h;
+        this.mines = mines;
+        generation++;
+        ready.clear();
+        pending = 0;
+        for (Future<?> build : builds) {
+            build.cancel(true);
+        }
+        builds.clear();
+        fill();
+    }
+
+    /**
+     * Takes a ready game of the given configuration and starts building the
+     * next one.
+     *
+     * @param w plan width
+     * @param h plan height
+     * @param mines number of mines
+     * @return new game, null if no game is ready yet
+     */
+    public synchronized MinesGame poll(int w, int h, int mines) {
+        configure(w, h, mines);
+        MinesGame game = ready.poll();
+        fill();
+        return game;
+    }
+
+    /**
+     * Returns number of ready games.
+     *
+     * @return int
+     */
+    public synchronized int getNumberOfReady() {
+        return ready.size();
+    }
+
+    /**
+     * Stops the building thread. Ready games are dropped.
+     */
+    public synchronized void shutdown() {
+        executor.shutdownNow();
+        ready.clear();
+    }
+
+    private void fill() {
+        builds.removeIf(Future::isDone);
+        while (ready.size() + pending < depth && !executor.isShutdown()) {
+            int built = generation;
+            int w = width;
+            int h = height;
+            int m = mines;
+            pending++;
+            builds.add(executor.submit(() -> build(built, w, h, m)));
+        }
+    }
+
+    private void build(int built, int w, int h, int m) {
+        synchronized (this) {
+            if (built != generation) {
+                return;
+            }
+        }
+        MinesGame game = null;
+        try {
+            game = new MinesGame(w, h, m);
+        } catch (BadNumberException | CancellationException ex) {
+            LOG.log(Level.FINE, "Game not prepared: {0}", ex.getMessage());
+        }
+        synchronized (this) {
+            // A game of an old configuration is thrown away
+            if (built == generation) {
+                pending--;
+                if (game != null) {
+                    ready.add(game);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+
+/**
+ * Listener of changes of a game.
+ *
+ * Called on the thread making the move, once per move, after the move is
+ * done. Use MinesEventDispatcher to get the events on another thread.
+ */
+public interface MinesGameListener {
+
+    /**
+     * Called after a move changed the game.
+     *
+     * @param event changed fields and states
+     */
+    void gameChanged(MinesChangeEvent event);
+}
@@ -0,0 +1,236 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Load generator for MinesServer.
+ *
+ * Opens many connections from one thread, every connection plays random
+ * games one move at a time: it sends a move, waits for the answer and sends
+ * the next one. At the end it prints moves per second and the response time
+ * percentiles.
+ *
+ * Options (all optional):
+ * --host=localhost
+ * --port=7777
+ * --clients=10000
+ * --seconds=30
+ * --size=16 (board is size x size)
+ * --mines=40
+ * --server (starts the server in this process first)
+ *
+ * Many clients need a high limit of open files (ulimit -n) on both sides.
+ */
+public class MinesLoadClient {
+
+    private String host = "localhost";
+    private int port = MinesProtocol.DEFAULT_PORT;
+    private int clients = 10_000;
+    private int seconds = 30;
+    private int size = 16;
+    private int mines = 40;
+    private boolean server;
+
+    private final Random random = new Random();
+    private final LatencyHistogram latency = new LatencyHistogram("response");
+    private long moves;
+    private long games;
+    private long errors;
+    private int connected;
+
+    /**
+     * Connection state attached to the selection key.
+     */
+    private static class Client {
+
+        final ByteBuffer in = ByteBuffer.allocate(256);
+        final ByteBuffer out = ByteBuffer.allocate(64);
+        int game;
+        long sent;
+    }
+
+    public static void main(String[] args) throws IOException {
+        MinesLoadClient client = new MinesLoadClient();
+        client.parse(args);
+        client.run();
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--host=")) {
+                host = value;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value);
+            } else if (arg.startsWith("--clients=")) {
+                clients = Integer.parseInt(value);
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(value);
+            } else if (arg.startsWith("--size=")) {
+                size = Integer.parseInt(value);
+            } else if (arg.startsWith("--mines=")) {
+                mines = Integer.parseInt(value);
+            } else if (arg.equals("--server")) {
+                server = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        MinesServer local = null;
+        if (server) {
+            local = new MinesServer((long) size * size);
+            port = local.bind(port);
+            final MinesServer s = local;
+            Thread thread = new Thread(() -> {
+                try {
+                    s.serve();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }, "mines-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Selector selector = Selector.open();
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        for (int i = 0; i < clients; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (channel.connect(address)) {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, new Client());
+                connected(key);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, new Client());
+            }
+        }
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            selector.select(Math.max(1, (end - now) / 1_000_000));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isConnectable()) {
+                        ((SocketChannel) key.channel()).finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        connected(key);
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                } catch (IOException ex) {
+                    errors++;
+                    key.cancel();
+                    key.channel().close();
+                }
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        if (local != null) {
+            local.stop();
+        }
+        System.out.printf(Locale.ROOT, "clients %d connected, %.1f s%n", connected, elapsed);
+        System.out.printf(Locale.ROOT, "moves %d (%.0f/s), games %d, errors %d%n", moves, moves / elapsed, games, errors);
+        System.out.printf(Locale.ROOT, "response p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+                latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6);
+    }
+
+    private void connected(SelectionKey key) throws IOException {
+        connected++;
+        newGame(key);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Client c = (Client) key.attachment();
+        if (((SocketChannel) key.channel()).read(c.in) < 0) {
+            throw new IOException("Server closed the connection.");
+        }
+        c.in.flip();
+        while (c.in.remaining() >= 4 && c.in.remaining() >= 4 + c.in.getInt(c.in.position())) {
+            int end = c.in.position() + 4 + c.in.getInt();
+            byte op = c.in.get();
+            latency.record(System.nanoTime() - c.sent);
+            switch (op) {
+                case MinesProtocol.GAME:
+                    c.game = c.in.getInt();
+                    move(key);
+                    break;
+                case MinesProtocol.STATE:
+                    c.in.getInt();
+                    moves++;
+                    if (c.in.get() == MinesGame.STATE_PLAYING) {
+                        move(key);
+                    } else {
+                        games++;
+                        closeGame(key);
+                        newGame(key);
+                    }
+                    break;
+                case MinesProtocol.ERROR:
+                    errors++;
+                    move(key);
+                    break;
+                default:
+                    throw new IOException("Unexpected answer " + op);
+            }
+            c.in.position(end);
+        }
+        c.in.compact();
+    }
+
+    private void newGame(SelectionKey key) throws IOException {
+        Client c = (Client) key.attachment();
+        MinesProtocol.header(c.out, MinesProtocol.NEW_GAME, 12);
+        c.out.putInt(size).putInt(size).putInt(mines);
+        send(key);
+    }
+
+    private void closeGame(SelectionKey key) {
+        Client c = (Client) key.attachment();
+        MinesProtocol.header(c.out, MinesProtocol.CLOSE_GAME, 4);
+        c.out.putInt(c.game);
+    }
+
+    private void move(SelectionKey key) throws IOException {
+        Client c = (Client) key.attachment();
+        MinesProtocol.header(c.out, MinesProtocol.UNCOVER, 12);
+        c.out.putInt(c.game).putInt(random.nextInt(size)).putInt(random.nextInt(size));
+        send(key);
+    }
+
+    /**
+     * Sends the buffered requests. They are tiny, so the socket buffer always
+     * takes them whole.
+     */
+    private void send(SelectionKey key) throws IOException {
+        Client c = (Client) key.attachment();
+        c.out.flip();
+        c.sent = System.nanoTime();
+        ((SocketChannel) key.channel()).write(c.out);
+        if (c.out.hasRemaining()) {
+            throw new IOException("Socket buffer is full.");
+        }
+        c.out.clear();
+    }
+}
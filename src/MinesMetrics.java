@@ -0,0 +1,166 @@
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Histograms of game and rendering hot paths.
+ *
+ * Metrics are collected only if the "mines.metrics" system property is true.
+ * ENABLED is a constant, so the JIT removes the instrumentation completely
+ * when it is off. When enabled, the metrics are registered as the
+ * "Mines:type=Metrics" MXBean and, if "mines.metrics.log" is set to a number
+ * of seconds, a summary is logged periodically.
+ */
+public final class MinesMetrics implements MinesMetricsMXBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("mines.metrics");
+
+    public static final LatencyHistogram UNCOVER = new LatencyHistogram("uncover");
+    public static final LatencyHistogram CASCADE = new LatencyHistogram("cascade");
+    public static final LatencyHistogram CASCADE_CELLS = new LatencyHistogram("cascadeCells");
+    public static final LatencyHistogram PLACE_MINES = new LatencyHistogram("placeMines");
+    public static final LatencyHistogram STATE = new LatencyHistogram("getState");
+    public static final LatencyHistogram PAINT = new LatencyHistogram("paint");
+    public static final LatencyHistogram PAINT_CELLS = new LatencyHistogram("paintCells");
+
+    private static final LatencyHistogram[] ALL = {UNCOVER, CASCADE, CASCADE_CELLS, PLACE_MINES, STATE, PAINT, PAINT_CELLS};
+    private static final Logger LOG = Logger.getLogger(MinesMetrics.class.getName());
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MinesMetrics(), new ObjectName("Mines:type=Metrics"));
+            } catch (JMException ex) {
+                LOG.log(Level.WARNING, "Metrics MXBean not registered.", ex);
+            }
+            long period = Long.getLong("mines.metrics.log", 0);
+            if (period > 0) {
+                ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "mines-metrics");
+                    t.setDaemon(true);
+                    return t;
+                });
+                logger.scheduleAtFixedRate(() -> LOG.info(report()), period, period, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private MinesMetrics() {
+    }
+
+    /**
+     * Returns one line summary of all histograms.
+     *
+     * @return String
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram histogram : ALL) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(histogram);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Summary getUncover() {
+        return new Summary(UNCOVER);
+    }
+
+    @Override
+    public Summary getCascade() {
+        return new Summary(CASCADE);
+    }
+
+    @Override
+    public Summary getCascadeCells() {
+        return new Summary(CASCADE_CELLS);
+    }
+
+    @Override
+    public Summary getPlaceMines() {
+        return new Summary(PLACE_MINES);
+    }
+
+    @Override
+    public Summary getState() {
+        return new Summary(STATE);
+    }
+
+    @Override
+    public Summary getPaint() {
+        return new Summary(PAINT);
+    }
+
+    @Override
+    public Summary getPaintCells() {
+        return new Summary(PAINT_CELLS);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Histogram values exported through JMX.
+     */
+    public static final class Summary {
+
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        @ConstructorProperties({"count", "mean", "p50", "p99", "max"})
+        public Summary(long count, double mean, long p50, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        Summary(LatencyHistogram histogram) {
+            this(histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                    histogram.getPercentile(99), histogram.getMax());
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
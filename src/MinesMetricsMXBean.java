@@ -0,0 +1,29 @@
+
+/**
+ * Management interface of the game metrics.
+ *
+ * Times are in nanoseconds.
+ */
+public interface MinesMetricsMXBean {
+
+    boolean isEnabled();
+
+    MinesMetrics.Summary getUncover();
+
+    MinesMetrics.Summary getCascade();
+
+    MinesMetrics.Summary getCascadeCells();
+
+    MinesMetrics.Summary getPlaceMines();
+
+    MinesMetrics.Summary getState();
+
+    MinesMetrics.Summary getPaint();
+
+    MinesMetrics.Summary getPaintCells();
+
+    /**
+     * Removes all recorded values.
+     */
+    void reset();
+}
@@ -0,0 +1,106 @@
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Offline generator of the MinesPatterns table.
+ *
+ * For every set of unknown fields of the window all layouts of mines in them
+ * are enumerated. A layout counts for the missing mines of both numbers it
+ * gives, and the fields with the same content in all layouts of the same
+ * counts are forced. That is 3^10 layouts for the whole table. Only keys with
+ * a forced field are written, deflated.
+ *
+ * Run from the project directory to rebuild src/data/patterns.bin, or give
+ * another file as the argument.
+ */
+public class MinesPatternGenerator {
+
+    /**
+     * Builds the table.
+     *
+     * @return safe fields in bits 0-9 and mines in bits 10-19 by key
+     */
+    static int[] build() {
+        int firstAround = 0;
+        int secondAround = 0;
+        for (int i = 0; i < MinesPatterns.SLOTS; i++) {
+            if (MinesPatterns.SLOT_X[i] <= 1) {
+                firstAround |= 1 << i;
+            }
+            if (MinesPatterns.SLOT_X[i] >= 0) {
+                secondAround |= 1 << i;
+            }
+        }
+        int[] table = new int[1 << MinesPatterns.KEY_BITS];
+        // Fields with a mine in all and in any layout by missing mines
+        int[] all = new int[64];
+        int[] any = new int[64];
+        boolean[] found = new boolean[64];
+        for (int unknown = 0; unknown < 1 << MinesPatterns.SLOTS; unknown++) {
+            Arrays.fill(found, false);
+            // All subsets of the unknown fields
+            for (int mines = unknown;; mines = (mines - 1) & unknown) {
+                int counts = Integer.bitCount(mines & firstAround) | Integer.bitCount(mines & secondAround) << 3;
+                if (found[counts]) {
+                    all[counts] &= mines;
+                    any[counts] |= mines;
+                } else {
+                    found[counts] = true;
+                    all[counts] = mines;
+                    any[counts] = mines;
+                }
+                if (mines == 0) {
+                    break;
+                }
+            }
+            for (int counts = 0; counts < 64; counts++) {
+                if (found[counts]) {
+                    table[unknown | counts << MinesPatterns.SLOTS] = (unknown & ~any[counts]) | all[counts] << MinesPatterns.SLOTS;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Writes the table in the format read by MinesPatterns.
+     *
+     * @param table built table
+     * @param out output stream, not closed
+     * @throws IOException if the stream cannot be written
+     */
+    static void write(int[] table, OutputStream out) throws IOException {
+        DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+        DataOutputStream data = new DataOutputStream(deflater);
+        int count = 0;
+        for (int value : table) {
+            if (value != 0) {
+                count++;
+            }
+        }
+        data.writeInt(MinesPatterns.MAGIC);
+        data.writeInt(count);
+        for (int key = 0; key < table.length; key++) {
+            if (table[key] != 0) {
+                data.writeShort(key);
+                data.writeInt(table[key]);
+            }
+        }
+        data.flush();
+        deflater.finish();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src" + MinesPatterns.RESOURCE;
+        int[] table = build();
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(table, out);
+        }
+        System.out.println("Patterns written to " + file);
+    }
+}
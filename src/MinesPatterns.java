@@ -0,0 +1,160 @@
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Table of local patterns giving safe fields and mines around two numbers.
+ *
+ * A pattern is a pair of uncovered numbers next to each other with the ten
+ * fields around them, a window of 4x3 fields (3x4 for a vertical pair). The
+ * key of the table packs which of the ten fields are covered without a flag
+ * and how many mines each number misses, after its flags. The value has the
+ * fields that are safe or mines in every layout of mines agreeing with both
+ * numbers. This covers the usual walls like 1-2-1 or 1-2-2-1 and corner 1s
+ * by a single lookup; positions not decided by a pair need a wider search.
+ *
+ * Flags are taken for mines. The table is made by MinesPatternGenerator and
+ * read from the resource /data/patterns.bin.
+ */
+public final class MinesPatterns {
+
+    static final String RESOURCE = "/data/patterns.bin";
+    static final int MAGIC = 0x4D504154;
+    // Unknown fields, mines missed by the first and by the second number
+    static final int KEY_BITS = 16;
+    // Window fields of a horizontal pair relative to its first number
+    static final int[] SLOT_X = {-1, 0, 1, 2, -1, 2, -1, 0, 1, 2};
+    static final int[] SLOT_Y = {-1, -1, -1, -1, 0, 0, 1, 1, 1, 1};
+    static final int SLOTS = 10;
+
+    private static MinesPatterns defaultPatterns;
+
+    // Safe fields in bits 0-9 and mines in bits 10-19 by key
+    private final int[] table;
+
+    private MinesPatterns(int[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Returns the table from the resource, read on the first call.
+     *
+     * @return MinesPatterns
+     * @throws RuntimeException if the resource cannot be read
+     */
+    public static synchronized MinesPatterns getDefault() {
+        if (defaultPatterns == null) {
+            try (InputStream in = MinesPatterns.class.getResourceAsStream(RESOURCE)) {
+                if (in == null) {
+                    throw new IOException("Missing " + RESOURCE);
+                }
+                defaultPatterns = read(in);
+            } catch (IOException ex) {
+                throw new RuntimeException("Error occured while loading patterns.", ex);
+            }
+        }
+        return defaultPatterns;
+    }
+
+    /**
+     * Reads a table written by MinesPatternGenerator.
+     *
+     * @param in input stream
+     * @return MinesPatterns
+     * @throws IOException if the stream cannot be read or has a bad format
+     */
+    static MinesPatterns read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new InflaterInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a pattern table.");
+        }
+        int[] table = new int[1 << KEY_BITS];
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            table[data.readUnsignedShort()] = data.readInt();
+        }
+        return new MinesPatterns(table);
+    }
+
+    /**
+     * Returns the value of the key.
+     *
+     * @param key packed window
+     * @return safe fields in bits 0-9, mines in bits 10-19
+     */
+    int get(int key) {
+        return table[key];
+    }
+
+    /**
+     * Finds fields forced by the number at the cell and its right or lower
+     * neighbour. Nothing is found unless both fields are uncovered numbers.
+     *
+     * @param plan game plan
+     * @param cell field index of the first number
+     * @param vertical true for the pair with the lower neighbour, false for
+     * the right one
+     * @param result array of at least 10 items, gets the index of a safe
+     * field or -1 - index of a mine
+     * @return number of forced fields written
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public int deduce(MinesPlan plan, int cell, boolean vertical, int[] result) {
+        int x = plan.x(cell);
+        int y = plan.y(cell);
+        if (vertical ? y + 1 >= plan.getHeight() : x + 1 >= plan.getWidth()) {
+            return 0;
+        }
+        int stride = plan.stride();
+        int first = plan.toPos(cell);
+        int second = first + (vertical ? stride : 1);
+        if (!isNumber(plan, first) || !isNumber(plan, second)) {
+            return 0;
+        }
+        int firstMissing = missing(plan, first);
+        int secondMissing = missing(plan, second);
+        if (firstMissing < 0 || firstMissing > 7 || secondMissing < 0 || secondMissing > 7) {
+            return 0;
+        }
+        // The border of the plan is uncovered, so it is never unknown
+        int unknown = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            int pos = slot(first, i, vertical, stride);
+            if (plan.coveredAt(pos) && !plan.markedAt(pos)) {
+                unknown |= 1 << i;
+            }
+        }
+        int value = table[unknown | firstMissing << SLOTS | secondMissing << SLOTS + 3];
+        int count = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            if ((value & (0x401 << i)) != 0) {
+                int forced = plan.toCell(slot(first, i, vertical, stride));
+                result[count++] = (value & 1 << i) != 0 ? forced : -1 - forced;
+            }
+        }
+        return count;
+    }
+
+    private static int slot(int first, int i, boolean vertical, int stride) {
+        return vertical ? first + SLOT_X[i] * stride + SLOT_Y[i] : first + SLOT_Y[i] * stride + SLOT_X[i];
+    }
+
+    private static boolean isNumber(MinesPlan plan, int pos) {
+        return !plan.coveredAt(pos) && !plan.mineAt(pos);
+    }
+
+    /**
+     * Returns number of mines around the number not marked by flags.
+     */
+    private static int missing(MinesPlan plan, int pos) {
+        int missing = plan.minesAround(pos);
+        for (int offset : plan.offsets()) {
+            if (plan.coveredAt(pos + offset) && plan.markedAt(pos + offset)) {
+                missing--;
+            }
+        }
+        return missing;
+    }
+}
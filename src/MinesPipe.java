@@ -0,0 +1,354 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless game for a bot in another process, over stdin and stdout.
+ *
+ * One game at a time is played. The bot sends batches of moves and gets the
+ * fields changed by the whole batch in one answer, so a bot may send many
+ * moves per round trip. Both streams are buffered and the answers are
+ * flushed only when no more requests are waiting.
+ *
+ * The binary mode uses MinesProtocol frames:
+ * NEW_GAME int w, int h, int mines
+ * MOVES int move, ... any number of moves, a field index y * width + x to
+ * uncover or -1 - index to mark or unmark
+ * GET
+ * Every request is answered by
+ * UPDATE byte state, update data of MinesDeltaEncoder (full after NEW_GAME
+ * and GET, usually a delta after MOVES)
+ * or by ERROR byte error code.
+ *
+ * The text mode (--text) reads lines:
+ * new W H MINES
+ * u X Y m X Y ... any number of moves to uncover or mark
+ * get
+ * and answers with a line:
+ * board W H STATE CODES with one hexadecimal digit per field by rows
+ * update STATE X Y CODE ... for every changed field
+ * error MESSAGE
+ *
+ * Codes are those of MinesSnapshot. A batch stops at the first bad move, the
+ * changes made before it come with the next update.
+ */
+public class MinesPipe {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Random random;
+    private final long maxCells;
+    private final BoardBufferPool pool = new BoardBufferPool(2);
+    private final MinesDeltaEncoder encoder = new MinesDeltaEncoder();
+    private final MinesGameListener changes = this::gameChanged;
+    private MinesGame game;
+    // Fields changed by the moves of the running batch
+    private int[] changed = new int[64];
+    private int changedCount;
+    private boolean changedAll;
+
+    /**
+     * Pipe constructor.
+     *
+     * @param random random generator for mine placing
+     * @param maxCells largest allowed plan
+     */
+    public MinesPipe(Random random, long maxCells) {
+        this.random = random;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Serves binary requests until the end of the input.
+     *
+     * @param in requests
+     * @param out answers, flushed but not closed
+     * @throws IOException if a stream fails or a frame is broken
+     */
+    public void serveBinary(InputStream in, OutputStream out) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        DataOutputStream answer = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        while (true) {
+            int length;
+            try {
+                length = data.readInt();
+            } catch (EOFException ex) {
+                break;
+            }
+            if (length < 1) {
+                throw new IOException("Broken frame.");
+            }
+            byte op = data.readByte();
+            int payload = length - 1;
+            byte error = 0;
+            switch (op) {
+                case MinesProtocol.NEW_GAME:
+                    if (payload != 12) {
+                        error = MinesProtocol.ERROR_BAD_REQUEST;
+                        break;
+                    }
+                    error = newGame(data.readInt(), data.readInt(), data.readInt());
+                    payload = 0;
+                    break;
+                case MinesProtocol.MOVES:
+                    if (game == null || payload % 4 != 0) {
+                        error = game == null ? MinesProtocol.ERROR_NO_GAME : MinesProtocol.ERROR_BAD_REQUEST;
+                        break;
+                    }
+                    for (; payload > 0 && error == 0; payload -= 4) {
+                        error = move(data.readInt());
+                    }
+                    encoder.addChanges(takeChanges(), game.getPlan().getWidth() * game.getPlan().getHeight());
+                    break;
+                case MinesProtocol.GET:
+                    if (game == null) {
+                        error = MinesProtocol.ERROR_NO_GAME;
+                    }
+                    encoder.requestFull();
+                    break;
+                default:
+                    error = MinesProtocol.ERROR_BAD_REQUEST;
+            }
+            while (payload > 0) {
+                payload -= data.skipBytes(payload);
+            }
+            if (error != 0) {
+                answer.writeInt(2);
+                answer.writeByte(MinesProtocol.ERROR);
+                answer.writeByte(error);
+            } else {
+                byte[] update = encoder.encode(game);
+                answer.writeInt(update.length + 2);
+                answer.writeByte(MinesProtocol.UPDATE);
+                answer.writeByte(game.getState());
+                answer.write(update);
+            }
+            if (data.available() == 0) {
+                answer.flush();
+            }
+        }
+        answer.flush();
+    }
+
+    /**
+     * Serves text requests until the end of the input.
+     *
+     * @param in requests
+     * @param out answers, flushed but not closed
+     * @throws IOException if a stream fails
+     */
+    public void serveText(InputStream in, OutputStream out) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII), BUFFER_SIZE);
+        Writer answer = new OutputStreamWriter(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.US_ASCII);
+        StringBuilder line = new StringBuilder();
+        String request;
+        while ((request = lines.readLine()) != null) {
+            line.setLength(0);
+            try {
+                text(request.trim().split("\\s+"), line);
+            } catch (NumberFormatException ex) {
+                line.setLength(0);
+                line.append("error Bad number.");
+            }
+            answer.append(line).append('\n');
+            if (!lines.ready()) {
+                answer.flush();
+            }
+        }
+        answer.flush();
+    }
+
+    private void text(String[] words, StringBuilder line) {
+        switch (words[0]) {
+            case "new":
+                if (words.length != 4) {
+                    line.append("error Expected new W H MINES.");
+                    return;
+                }
+                if (newGame(Integer.parseInt(words[1]), Integer.parseInt(words[2]), Integer.parseInt(words[3])) != 0) {
+                    line.append("error Bad size or mine number.");
+                    return;
+                }
+                board(line);
+                return;
+            case "get":
+                if (game == null) {
+                    line.append("error No game.");
+                    return;
+                }
+                takeChanges();
+                board(line);
+                return;
+            case "u":
+            case "m":
+                if (game == null) {
+                    line.append("error No game.");
+                    return;
+                }
+                if (words.length % 3 != 0) {
+                    line.append("error Incomplete move.");
+                    return;
+                }
+                int width = game.getPlan().getWidth();
+                int height = game.getPlan().getHeight();
+                for (int i = 0; i + 2 < words.length; i += 3) {
+                    int x = Integer.parseInt(words[i + 1]);
+                    int y = Integer.parseInt(words[i + 2]);
+                    boolean mark = words[i].equals("m");
+                    if ((!mark && !words[i].equals("u")) || x < 0 || x >= width || y < 0 || y >= height) {
+                        line.append("error Bad move ").append(i / 3 + 1).append('.');
+                        return;
+                    }
+                    if (move(mark ? -1 - (y * width + x) : y * width + x) != 0) {
+                        line.append("error Wrong move ").append(i / 3 + 1).append('.');
+                        return;
+                    }
+                }
+                int[] cells = takeChanges();
+                if (cells == null) {
+                    board(line);
+                    return;
+                }
+                int state = game.getState();
+                line.append("update ").append(state);
+                for (int cell : cells) {
+                    line.append(' ').append(cell % width).append(' ').append(cell / width)
+                            .append(' ').append(game.codeAt(cell, state));
+                }
+                return;
+            default:
+                line.append("error Unknown request.");
+        }
+    }
+
+    private void board(StringBuilder line) {
+        MinesPlan plan = game.getPlan();
+        int state = game.getState();
+        line.append("board ").append(plan.getWidth()).append(' ').append(plan.getHeight())
+                .append(' ').append(state).append(' ');
+        for (int cell = 0; cell < plan.getWidth() * plan.getHeight(); cell++) {
+            line.append(Character.forDigit(game.codeAt(cell, state), 16));
+        }
+    }
+
+    /**
+     * Starts a new game on a plan with pooled buffers.
+     *
+     * @return 0 or error code
+     */
+    private byte newGame(int w, int h, int mines) {
+        if (w < 2 || h < 2 || (long) w * h > maxCells) {
+            return MinesProtocol.ERROR_BAD_NUMBER;
+        }
+        MinesPlan plan = new MinesPlan(w, h, pool);
+        MinesGame next;
+        try {
+            next = new MinesGame(plan, mines, random);
+        } catch (BadNumberException ex) {
+            plan.release();
+            return MinesProtocol.ERROR_BAD_NUMBER;
+        }
+        if (game != null) {
+            game.removeListener(changes);
+            game.getPlan().release();
+        }
+        game = next;
+        game.addListener(changes);
+        takeChanges();
+        encoder.requestFull();
+        return 0;
+    }
+
+    private void gameChanged(MinesChangeEvent event) {
+        int[] cells = event.getCells();
+        MinesPlan plan = game.getPlan();
+        if (changedAll || event.isFull() || changedCount + cells.length > plan.getWidth() * plan.getHeight() / 4) {
+            // Listing the fields would not be shorter than the whole board
+            changedAll = true;
+            return;
+        }
+        if (changedCount + cells.length > changed.length) {
+            changed = Arrays.copyOf(changed, Math.max(changed.length * 2, changedCount + cells.length));
+        }
+        System.arraycopy(cells, 0, changed, changedCount, cells.length);
+        changedCount += cells.length;
+    }
+
+    /**
+     * Returns the fields changed since the last call.
+     *
+     * @return field indices or null if too many fields changed
+     */
+    private int[] takeChanges() {
+        int[] result = changedAll ? null : Arrays.copyOf(changed, changedCount);
+        changedAll = false;
+        changedCount = 0;
+        return result;
+    }
+
+    /**
+     * Makes one move.
+     *
+     * @param move field index to uncover, -1 - index to mark
+     * @return 0 or error code
+     */
+    private byte move(int move) {
+        MinesPlan plan = game.getPlan();
+        int cell = move >= 0 ? move : -1 - move;
+        if (cell >= plan.getWidth() * plan.getHeight()) {
+            return MinesProtocol.ERROR_BAD_COORDS;
+        }
+        try {
+            if (move >= 0) {
+                game.uncover(cell % plan.getWidth(), cell / plan.getWidth());
+            } else {
+                game.switchMarked(cell % plan.getWidth(), cell / plan.getWidth());
+            }
+        } catch (WrongActionException ex) {
+            return MinesProtocol.ERROR_WRONG_ACTION;
+        }
+        return 0;
+    }
+
+    /**
+     * Serves a bot on stdin and stdout.
+     *
+     * @param args [--text] [--seed=N] [--max-cells=N]
+     */
+    public static void main(String[] args) throws IOException {
+        boolean text = false;
+        Random random = new Random();
+        long maxCells = 1L << 24;
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.equals("--text")) {
+                text = true;
+            } else if (arg.startsWith("--seed=")) {
+                random = new Random(Long.parseLong(value));
+            } else if (arg.startsWith("--max-cells=")) {
+                maxCells = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        MinesPipe pipe = new MinesPipe(random, maxCells);
+        if (text) {
+            pipe.serveText(System.in, System.out);
+        } else {
+            pipe.serveBinary(System.in, System.out);
+        }
+    }
+}
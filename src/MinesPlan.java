@@ -1,14 +1,68 @@
 
+import java.util.Arrays;
+
 /**
  * Minesweeper game plan
+ *
+ * Fields are identified by coordinates or by index y * width + x. Inside, the
+ * plan is stored row by row in flat arrays with a border of one sentinel
+ * field around: the border has no mine, no mark and is uncovered. Every real
+ * field then has all eight neighbours in the arrays at fixed offsets, so
+ * neighbour loops need no edge checks. The arrays may be longer than needed
+ * when they come from a BoardBufferPool.
+ *
+ * The numbers of mines around the fields are kept in another layer. It is
+ * counted for the whole plan at once (see MinesAdjacency) when it is first
+ * needed after the mines were laid, later changes of single mines update it
+ * in place.
+ *
+ * A plan with few mines keeps them in a MineSet instead of the mine layer, so
+ * the memory of mines grows with their number. While its counts are valid,
+ * mines of such plan are also flagged by MINE_BIT in the counts, so the game
+ * does not search the set. The plan switches to the layer when more than 1/16
+ * of the fields has a mine and back to the set when clearing leaves less than
+ * 1/64.
+ *
+ * Covered fields and flags by regions are summed by a MinesRegionIndex, made
+ * on the first request and updated by every later change.
+ *
+ * A fork of the plan shares all layers with it. The flat layers of covered
+ * and marked fields then become SharedLayers, copied by chunks as the plans
+ * change them, until a change of the whole layer gives a plan its own flat
+ * layer again. The mines and counts are shared whole until one of the plans
+ * changes a mine, which in a game happens only on the first click.
  */
 public class MinesPlan {
 
-    private boolean[][] mines;
-    private boolean[][] hidden;
-    private boolean[][] marked;
+    // Flag of a mine in the counts of a plan without the mine layer
+    static final byte MINE_BIT = 0x10;
+
+    // Dense mine layer, null while the mines are in the set
+    private boolean[] mines;
+    private MineSet mineSet;
+    // Flat layers, null while shared with a fork
+    private boolean[] hidden;
+    private boolean[] marked;
+    private SharedLayer sharedHidden;
+    private SharedLayer sharedMarked;
+    private byte[] counts;
+    private boolean countsValid;
+    // Mines and counts shared with a fork, copied before a change
+    private boolean minesShared;
     private int width;
     private int height;
+    // Row length with the border
+    private int stride;
+    // Position differences of the eight neighbours
+    private int[] offsets;
+    // Index of regions, null until requested
+    private MinesRegionIndex regions;
+    // Pool the buffers came from, null if they were allocated by the plan
+    private BoardBufferPool pool;
+    // Counters kept up to date by all mutators
+    private int mineCount;
+    private int coveredCount;
+    private int uncoveredMineCount;
 
     /**
      * Default constructor - clear 2x2 plan.
@@ -16,6 +70,7 @@ public class MinesPlan {
     public MinesPlan() {
         this.width = 2;
         this.height = 2;
+        allocate();
         clearAllMines();
         clearAllMarks();
         coverAll();
@@ -37,32 +92,254 @@ public class MinesPlan {
         }
         this.width = w;
         this.height = h;
+        allocate();
+        clearAllMines();
+        clearAllMarks();
+        coverAll();
+    }
+
+    /**
+     * Constructor for clear plan with buffers from a pool.
+     *
+     * The buffers should be returned by release() when the plan is not needed
+     * any more.
+     *
+     * @param w width
+     * @param h height
+     * @param pool pool of buffers
+     * @throws BadNumberException if w or h is smaller than 2
+     * @throws NullPointerException if pool is null
+     */
+    public MinesPlan(int w, int h, BoardBufferPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("Pool is null");
+        }
+        if (w < 2) {
+            throw new BadNumberException("Width of the map must be at least 2.");
+        }
+        if (h < 2) {
+            throw new BadNumberException("Height of the map must be at least 2.");
+        }
+        this.width = w;
+        this.height = h;
+        this.pool = pool;
+        allocate();
         clearAllMines();
         clearAllMarks();
         coverAll();
     }
 
+    private void allocate() {
+        if ((long) (width + 2) * (height + 2) > Integer.MAX_VALUE - 8) {
+            throw new BadNumberException("The map is too big.");
+        }
+        stride = width + 2;
+        offsets = new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+        int size = stride * (height + 2);
+        if (pool == null) {
+            hidden = new boolean[size];
+            marked = new boolean[size];
+            counts = new byte[size];
+        } else {
+            hidden = pool.acquire(size);
+            marked = pool.acquire(size);
+            counts = pool.acquireBytes(size);
+        }
+    }
+
+    /**
+     * Constructor of a fork sharing all layers with the plan.
+     *
+     * @param plan forked plan with valid counts
+     */
+    private MinesPlan(MinesPlan plan) {
+        int size = plan.stride * (plan.height + 2);
+        if (plan.hidden != null) {
+            plan.sharedHidden = new SharedLayer(plan.hidden, size);
+            plan.hidden = null;
+        }
+        if (plan.marked != null) {
+            plan.sharedMarked = new SharedLayer(plan.marked, size);
+            plan.marked = null;
+        }
+        plan.minesShared = true;
+        width = plan.width;
+        height = plan.height;
+        stride = plan.stride;
+        offsets = plan.offsets;
+        sharedHidden = plan.sharedHidden.share();
+        sharedMarked = plan.sharedMarked.share();
+        mines = plan.mines;
+        mineSet = plan.mineSet;
+        counts = plan.counts;
+        countsValid = true;
+        minesShared = true;
+        mineCount = plan.mineCount;
+        coveredCount = plan.coveredCount;
+        uncoveredMineCount = plan.uncoveredMineCount;
+    }
+
+    /**
+     * Returns an independent copy of the plan.
+     *
+     * The copy shares the layers with this plan and both plans copy only the
+     * parts they change later, so forking takes time by the number of chunks
+     * of 4096 fields, not by the size of the plan. Only the counts of mines
+     * are counted first if they are not known yet. The copy has no pool and
+     * makes its region index on request.
+     *
+     * @return MinesPlan
+     */
+    public MinesPlan fork() {
+        if (!countsValid) {
+            countAll();
+        }
+        return new MinesPlan(this);
+    }
+
+    /**
+     * Gives the plan its own flat layer of covered fields, the content is
+     * undefined.
+     */
+    private void ownHidden() {
+        if (hidden == null) {
+            int size = stride * (height + 2);
+            hidden = pool == null ? new boolean[size] : pool.acquire(size);
+            if (pool != null) {
+                sharedHidden.release(pool);
+            }
+            sharedHidden = null;
+        }
+    }
+
+    /**
+     * Gives the plan its own flat layer of marked fields, the content is
+     * undefined.
+     */
+    private void ownMarked() {
+        if (marked == null) {
+            int size = stride * (height + 2);
+            marked = pool == null ? new boolean[size] : pool.acquire(size);
+            if (pool != null) {
+                sharedMarked.release(pool);
+            }
+            sharedMarked = null;
+        }
+    }
+
+    /**
+     * Copies the mines and counts shared with a fork.
+     */
+    private void unshareMines() {
+        int size = stride * (height + 2);
+        if (mines != null) {
+            boolean[] copy = pool == null ? new boolean[size] : pool.acquire(size);
+            System.arraycopy(mines, 0, copy, 0, size);
+            mines = copy;
+        } else {
+            mineSet = mineSet.copy();
+        }
+        byte[] copy = pool == null ? new byte[size] : pool.acquireBytes(size);
+        System.arraycopy(counts, 0, copy, 0, size);
+        counts = copy;
+        minesShared = false;
+    }
+
+    /**
+     * Moves the mines from the set to the mine layer.
+     */
+    private void toDense() {
+        int size = stride * (height + 2);
+        if (pool == null) {
+            mines = new boolean[size];
+        } else {
+            mines = pool.acquire(size);
+            Arrays.fill(mines, 0, size, false);
+        }
+        mineSet.forEach(pos -> mines[pos] = true);
+        mineSet = null;
+    }
+
+    /**
+     * Moves the mines from the layer to a set and drops the layer.
+     */
+    private void toSparse() {
+        mineSet = new MineSet(mineCount);
+        if (mineCount > 0) {
+            for (int pos = stride; pos < stride * (height + 1); pos++) {
+                if (mines[pos]) {
+                    mineSet.add(pos);
+                }
+            }
+        }
+        releaseMines();
+        // The counts get the mine flags
+        countsValid = false;
+    }
+
+    private void releaseMines() {
+        if (pool != null && mines != null && !minesShared) {
+            pool.release(mines);
+        }
+        mines = null;
+    }
+
+    /**
+     * Returns the buffers to the pool the plan was created with. The plan must
+     * not be used afterwards. Does nothing for a plan without a pool.
+     */
+    public void release() {
+        if (pool == null || counts == null) {
+            return;
+        }
+        releaseMines();
+        if (!minesShared) {
+            pool.release(counts);
+        }
+        // The forks keep the shared parts
+        if (hidden != null) {
+            pool.release(hidden);
+        } else {
+            sharedHidden.release(pool);
+        }
+        if (marked != null) {
+            pool.release(marked);
+        } else {
+            sharedMarked.release(pool);
+        }
+        mineSet = null;
+        regions = null;
+        hidden = null;
+        marked = null;
+        sharedHidden = null;
+        sharedMarked = null;
+        counts = null;
+    }
+
     /**
      * Removes all mines from the game plan.
      */
     public void clearAllMines() {
-        mines = new boolean[width][height];
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                mines[x][y] = false;
-            }
+        releaseMines();
+        if (minesShared) {
+            int size = stride * (height + 2);
+            counts = pool == null ? new byte[size] : pool.acquireBytes(size);
+            minesShared = false;
         }
+        mineSet = new MineSet(0);
+        countsValid = false;
+        mineCount = 0;
+        uncoveredMineCount = 0;
     }
 
     /**
      * Removes all marks from the game plan.
      */
     public void clearAllMarks() {
-        marked = new boolean[width][height];
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                marked[x][y] = false;
-            }
+        ownMarked();
+        Arrays.fill(marked, 0, stride * (height + 2), false);
+        if (regions != null) {
+            regions.rebuild();
         }
     }
 
@@ -70,11 +347,15 @@ public class MinesPlan {
      * Covers all fields on the game plan.
      */
     public void coverAll() {
-        hidden = new boolean[width][height];
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                hidden[x][y] = true;
-            }
+        ownHidden();
+        Arrays.fill(hidden, 0, stride * (height + 2), false);
+        for (int y = 1; y <= height; y++) {
+            Arrays.fill(hidden, y * stride + 1, y * stride + 1 + width, true);
+        }
+        coveredCount = width * height;
+        uncoveredMineCount = 0;
+        if (regions != null) {
+            regions.rebuild();
         }
     }
 
@@ -82,29 +363,162 @@ public class MinesPlan {
      * Uncovers all fields on the game plan.
      */
     public void uncoverAll() {
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                hidden[x][y] = false;
-            }
+        ownHidden();
+        Arrays.fill(hidden, 0, stride * (height + 2), false);
+        coveredCount = 0;
+        uncoveredMineCount = mineCount;
+        if (regions != null) {
+            regions.rebuild();
         }
     }
 
     /**
-     * Checks if there is a mine in the specified field.
+     * Returns index of covered fields and flags by regions. It is made on the
+     * first call and kept up to date with the plan afterwards.
+     *
+     * @return MinesRegionIndex
+     */
+    public MinesRegionIndex getRegionIndex() {
+        if (regions == null) {
+            regions = new MinesRegionIndex(this);
+        }
+        return regions;
+    }
+
+    /**
+     * Returns index of the field, y * width + x.
      *
-     * @return boolean
      * @param x x-coord
      * @param y y-coord
+     * @return int
      * @throws BadCoordsException if the coordinates are off the game plan
      */
-    public boolean isMineAt(int x, int y) {
+    public int index(int x, int y) {
         if (x < 0 || x >= this.width) {
             throw new BadCoordsException("Incorrect x coordinate.");
         }
         if (y < 0 || y >= this.height) {
             throw new BadCoordsException("Incorrect y coordinate.");
         }
-        return mines[x][y];
+        return y * width + x;
+    }
+
+    /**
+     * Returns x-coord of the field.
+     *
+     * @param cell field index
+     * @return int
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public int x(int cell) {
+        check(cell);
+        return cell % width;
+    }
+
+    /**
+     * Returns y-coord of the field.
+     *
+     * @param cell field index
+     * @return int
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public int y(int cell) {
+        check(cell);
+        return cell / width;
+    }
+
+    private void check(int cell) {
+        if (cell < 0 || cell >= width * height) {
+            throw new BadCoordsException("Incorrect field index.");
+        }
+    }
+
+    private int pos(int x, int y) {
+        return toPos(index(x, y));
+    }
+
+    private int checkedPos(int cell) {
+        check(cell);
+        return toPos(cell);
+    }
+
+    // Unchecked access for the game by position in the bordered arrays
+
+    /**
+     * Returns position of the field in the bordered arrays.
+     *
+     * @param cell field index
+     * @return int
+     */
+    int toPos(int cell) {
+        return cell + cell / width * 2 + stride + 1;
+    }
+
+    /**
+     * Returns field index of the position of a real field.
+     *
+     * @param pos position in the bordered arrays
+     * @return int
+     */
+    int toCell(int pos) {
+        return pos - pos / stride * 2 - width - 1;
+    }
+
+    /**
+     * Returns row length of the bordered arrays.
+     *
+     * @return int
+     */
+    int stride() {
+        return stride;
+    }
+
+    /**
+     * Returns position differences of the eight neighbours. The array must
+     * not be changed.
+     *
+     * @return int[]
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    boolean mineAt(int pos) {
+        if (mines != null) {
+            return mines[pos];
+        }
+        return countsValid ? (counts[pos] & MINE_BIT) != 0 : mineSet.contains(pos);
+    }
+
+    boolean coveredAt(int pos) {
+        return hidden != null ? hidden[pos] : sharedHidden.get(pos);
+    }
+
+    boolean markedAt(int pos) {
+        return marked != null ? marked[pos] : sharedMarked.get(pos);
+    }
+
+    /**
+     * Checks if there is a mine in the specified field.
+     *
+     * @return boolean
+     * @param x x-coord
+     * @param y y-coord
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public boolean isMineAt(int x, int y) {
+        return mineAt(pos(x, y));
+    }
+
+    /**
+     * Checks if there is a mine in the specified field.
+     *
+     * @param cell field index
+     * @return boolean
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public boolean isMine(int cell) {
+        return mineAt(checkedPos(cell));
     }
 
     /**
@@ -116,13 +530,18 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public boolean isCoveredAt(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
-        }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
-        }
-        return hidden[x][y];
+        return coveredAt(pos(x, y));
+    }
+
+    /**
+     * Checks if the specified field is covered.
+     *
+     * @param cell field index
+     * @return boolean
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public boolean isCovered(int cell) {
+        return coveredAt(checkedPos(cell));
     }
 
     /**
@@ -134,13 +553,18 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public boolean isMarkedAt(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
-        }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
-        }
-        return marked[x][y];
+        return markedAt(pos(x, y));
+    }
+
+    /**
+     * Checks if the specified field is marked.
+     *
+     * @param cell field index
+     * @return boolean
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public boolean isMarked(int cell) {
+        return markedAt(checkedPos(cell));
     }
 
     public int getWidth() {
@@ -157,15 +581,7 @@ public class MinesPlan {
      * @return int
      */
     public int getNumberOfMines() {
-        int mineCounter = 0;
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                if (mines[x][y]) {
-                    mineCounter++;
-                }
-            }
-        }
-        return mineCounter;
+        return mineCount;
     }
 
     /**
@@ -176,24 +592,64 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public int getNumberOfMines(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
+        return minesAround(pos(x, y));
+    }
+
+    /**
+     * Returns the number of mines in the surrounding 8 fields.
+     *
+     * @param cell field index
+     * @return int
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public int getNumberOfMinesAround(int cell) {
+        return minesAround(checkedPos(cell));
+    }
+
+    /**
+     * Number of mines around the position of a real field.
+     */
+    int minesAround(int pos) {
+        if (!countsValid) {
+            countAll();
         }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
+        return counts[pos] & ~MINE_BIT;
+    }
+
+    private void countAll() {
+        if (mines != null) {
+            MinesAdjacency.count(mines, counts, width, height);
+        } else {
+            MinesAdjacency.count(mineSet, counts, offsets, stride * (height + 2));
         }
-        int mineCounter = 0;
-        for (int i = -1; i < 2; i++) {
-            for (int j = -1; j < 2; j++) {
-                if (x + i < 0 || x + i >= this.width || y + j < 0 || y + j >= this.height) {
-                    continue;
-                }
-                if (mines[x + i][y + j] && !(i == 0 && j == 0)) {
-                    mineCounter++;
+        countsValid = true;
+    }
+
+    /**
+     * Writes indices of the surrounding fields on the plan to the array.
+     *
+     * @param cell field index
+     * @param result array of at least 8 items
+     * @return number of written indices (3 to 8)
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public int neighbours(int cell, int[] result) {
+        check(cell);
+        int x = cell % width;
+        int y = cell / width;
+        int x0 = x > 0 ? -1 : 0;
+        int x1 = x < width - 1 ? 1 : 0;
+        int y0 = y > 0 ? -width : 0;
+        int y1 = y < height - 1 ? width : 0;
+        int count = 0;
+        for (int row = cell + y0; row <= cell + y1; row += width) {
+            for (int i = row + x0; i <= row + x1; i++) {
+                if (i != cell) {
+                    result[count++] = i;
                 }
             }
         }
-        return mineCounter;
+        return count;
     }
 
     /**
@@ -202,15 +658,16 @@ public class MinesPlan {
      * @return int
      */
     public int getNumberOfCovered() {
-        int coveredCounter = 0;
-        for (int x = 0; x < this.width; x++) {
-            for (int y = 0; y < this.height; y++) {
-                if (hidden[x][y]) {
-                    coveredCounter++;
-                }
-            }
-        }
-        return coveredCounter;
+        return coveredCount;
+    }
+
+    /**
+     * Returns number of uncovered fields with a mine.
+     *
+     * @return int
+     */
+    public int getNumberOfUncoveredMines() {
+        return uncoveredMineCount;
     }
 
     /**
@@ -221,23 +678,72 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public void setMineAt(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
+        setMine(pos(x, y));
+    }
+
+    void setMine(int pos) {
+        if (minesShared) {
+            unshareMines();
         }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
+        if (mines == null) {
+            if (!mineSet.add(pos)) {
+                return;
+            }
+            if (countsValid) {
+                counts[pos] |= MINE_BIT;
+            }
+            if (mineCount + 1 > width * height / 16) {
+                toDense();
+            }
+        } else if (!mines[pos]) {
+            mines[pos] = true;
+        } else {
+            return;
+        }
+        if (countsValid) {
+            // The border has room for all neighbours
+            for (int offset : offsets) {
+                counts[pos + offset]++;
+            }
+        }
+        mineCount++;
+        if (!coveredAt(pos)) {
+            uncoveredMineCount++;
         }
-        mines[x][y] = true;
     }
 
     public void clearMineAt(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
+        clearMine(pos(x, y));
+    }
+
+    void clearMine(int pos) {
+        if (minesShared) {
+            unshareMines();
         }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
+        if (mines == null) {
+            if (!mineSet.remove(pos)) {
+                return;
+            }
+            if (countsValid) {
+                counts[pos] &= ~MINE_BIT;
+            }
+        } else if (mines[pos]) {
+            mines[pos] = false;
+        } else {
+            return;
+        }
+        if (countsValid) {
+            for (int offset : offsets) {
+                counts[pos + offset]--;
+            }
+        }
+        mineCount--;
+        if (!coveredAt(pos)) {
+            uncoveredMineCount--;
+        }
+        if (mines != null && mineCount < width * height / 64) {
+            toSparse();
         }
-        mines[x][y] = false;
     }
 
     /**
@@ -248,13 +754,34 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public void uncover(int x, int y) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
-        }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
+        uncoverAt(pos(x, y));
+    }
+
+    /**
+     * Uncovers given field
+     *
+     * @param cell field index
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public void uncover(int cell) {
+        uncoverAt(checkedPos(cell));
+    }
+
+    void uncoverAt(int pos) {
+        if (coveredAt(pos)) {
+            if (hidden != null) {
+                hidden[pos] = false;
+            } else {
+                sharedHidden.set(pos, false, pool);
+            }
+            coveredCount--;
+            if (mineAt(pos)) {
+                uncoveredMineCount++;
+            }
+            if (regions != null) {
+                regions.uncovered(pos);
+            }
         }
-        hidden[x][y] = false;
     }
 
     /**
@@ -266,13 +793,31 @@ public class MinesPlan {
      * @throws BadCoordsException if the coordinates are off the game plan
      */
     public void mark(int x, int y, boolean marked) {
-        if (x < 0 || x >= this.width) {
-            throw new BadCoordsException("Incorrect x coordinate.");
-        }
-        if (y < 0 || y >= this.height) {
-            throw new BadCoordsException("Incorrect y coordinate.");
+        markAt(pos(x, y), marked);
+    }
+
+    /**
+     * Sets given field marked or unmarked
+     *
+     * @param cell field index
+     * @param marked marked state
+     * @throws BadCoordsException if the index is off the game plan
+     */
+    public void mark(int cell, boolean marked) {
+        markAt(checkedPos(cell), marked);
+    }
+
+    void markAt(int pos, boolean marked) {
+        if (markedAt(pos) != marked) {
+            if (this.marked != null) {
+                this.marked[pos] = marked;
+            } else {
+                sharedMarked.set(pos, marked, pool);
+            }
+            if (regions != null) {
+                regions.marked(pos, marked);
+            }
         }
-        this.marked[x][y] = marked;
     }
 
 }
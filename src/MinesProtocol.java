@@ -0,0 +1,116 @@
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol of the game server.
+ *
+ * Every message is a frame: int length of the rest, byte operation and the
+ * payload. All numbers are big endian.
+ *
+ * Requests:
+ * NEW_GAME int w, int h, int mines
+ * UNCOVER int game, int x, int y
+ * MARK int game, int x, int y
+ * GET int game
+ * CLOSE_GAME int game
+ * WATCH int game
+ * UNWATCH int game
+ * MOVES int move, ... (MinesPipe only)
+ *
+ * Responses:
+ * GAME int game, int w, int h
+ * STATE int game, byte state
+ * SNAPSHOT int game, int w, int h, byte state, codes packed two per byte
+ * UPDATE int game, byte state, update data of MinesDeltaEncoder
+ * ERROR byte error code
+ */
+public final class MinesProtocol {
+
+    public static final int DEFAULT_PORT = 7777;
+    // Longest request payload
+    public static final int MAX_REQUEST = 64;
+
+    public static final byte NEW_GAME = 1;
+    public static final byte UNCOVER = 2;
+    public static final byte MARK = 3;
+    public static final byte GET = 4;
+    public static final byte CLOSE_GAME = 5;
+    public static final byte WATCH = 6;
+    public static final byte UNWATCH = 7;
+    public static final byte MOVES = 8;
+
+    public static final byte GAME = 65;
+    public static final byte STATE = 66;
+    public static final byte SNAPSHOT = 67;
+    public static final byte UPDATE = 68;
+    public static final byte ERROR = 127;
+
+    public static final byte ERROR_BAD_REQUEST = 1;
+    public static final byte ERROR_NO_GAME = 2;
+    public static final byte ERROR_BAD_COORDS = 3;
+    public static final byte ERROR_WRONG_ACTION = 4;
+    public static final byte ERROR_BAD_NUMBER = 5;
+
+    private MinesProtocol() {
+    }
+
+    /**
+     * Returns buffer with enough free space, the content is kept.
+     *
+     * @param buffer buffer in write mode
+     * @param needed number of bytes to be written
+     * @return the same or a bigger buffer
+     */
+    public static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity *= 2;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    /**
+     * Writes frame header.
+     *
+     * @param buffer buffer with enough space
+     * @param op operation
+     * @param payload payload length
+     */
+    public static void header(ByteBuffer buffer, byte op, int payload) {
+        buffer.putInt(payload + 1);
+        buffer.put(op);
+    }
+
+    /**
+     * Packs display codes of the snapshot, two codes per byte, the first one
+     * in the high bits.
+     *
+     * @param snapshot snapshot to pack
+     * @return packed codes
+     */
+    public static byte[] packCodes(MinesSnapshot snapshot) {
+        int cells = snapshot.getWidth() * snapshot.getHeight();
+        byte[] packed = new byte[(cells + 1) / 2];
+        for (int i = 0; i < cells; i++) {
+            packed[i >> 1] |= (byte) (snapshot.codeAt(i) << ((i & 1) == 0 ? 4 : 0));
+        }
+        return packed;
+    }
+
+    /**
+     * Returns one code from packed codes.
+     *
+     * @param packed codes packed by packCodes
+     * @param index field index y * width + x
+     * @return display code
+     */
+    public static int unpackCode(byte[] packed, int index) {
+        return (packed[index >> 1] >> ((index & 1) == 0 ? 4 : 0)) & 0xF;
+    }
+}
@@ -0,0 +1,392 @@
+
+import java.util.Arrays;
+
+/**
+ * Summary of covered and flagged fields of a MinesPlan by regions.
+ *
+ * Leaves of the index are tiles of 16x16 fields, every higher level joins 2x2
+ * nodes of the level below up to a single root. Every node keeps the number of
+ * covered fields, of flags and of covered fields without a flag. The plan
+ * updates the tile of a field whenever it is uncovered or (un)marked. Changed
+ * tiles are only listed and added to the higher levels by the next query, so
+ * a big cascade does not pay for all levels of every field. Queries read
+ * whole nodes and scan fields only in the tiles cut by the edges of the
+ * queried rectangle.
+ *
+ * The index is created by MinesPlan.getRegionIndex() and has the same owner as
+ * the plan.
+ */
+public class MinesRegionIndex {
+
+    private static final int TILE_BITS = 4;
+    // Counters of a node, every node has all three in a row
+    private static final int COVERED = 0;
+    private static final int FLAGS = 1;
+    private static final int FREE = 2;
+    private static final int KINDS = 3;
+
+    private final MinesPlan plan;
+    private final int width;
+    private final int height;
+    private final int stride;
+    // Nodes by levels, leaves first, the last level is the root
+    private final int[][] levels;
+    private final int[] levelWidth;
+    private final int[] levelHeight;
+    // Tile counters already added to the higher levels
+    private final int[] propagated;
+    private final boolean[] dirty;
+    private int[] dirtyTiles = new int[64];
+    private int dirtyCount;
+    // Best field found by the running nearest search
+    private int bestCell;
+    private int bestDistance;
+
+    /**
+     * Index constructor, counts all fields of the plan.
+     *
+     * @param plan game plan
+     */
+    MinesRegionIndex(MinesPlan plan) {
+        this.plan = plan;
+        this.width = plan.getWidth();
+        this.height = plan.getHeight();
+        this.stride = plan.stride();
+        int count = 1;
+        int w = (width + (1 << TILE_BITS) - 1) >> TILE_BITS;
+        int h = (height + (1 << TILE_BITS) - 1) >> TILE_BITS;
+        while (w > 1 || h > 1) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            count++;
+        }
+        levels = new int[count][];
+        levelWidth = new int[count];
+        levelHeight = new int[count];
+        w = (width + (1 << TILE_BITS) - 1) >> TILE_BITS;
+        h = (height + (1 << TILE_BITS) - 1) >> TILE_BITS;
+        for (int level = 0; level < count; level++) {
+            levelWidth[level] = w;
+            levelHeight[level] = h;
+            levels[level] = new int[w * h * KINDS];
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+        }
+        propagated = new int[levels[0].length];
+        dirty = new boolean[levelWidth[0] * levelHeight[0]];
+        rebuild();
+    }
+
+    /**
+     * Counts all fields again, used after changes of the whole plan.
+     */
+    void rebuild() {
+        int[] leaves = levels[0];
+        Arrays.fill(leaves, 0);
+        for (int y = 0; y < height; y++) {
+            int row = (y >> TILE_BITS) * levelWidth[0];
+            int pos = (y + 1) * stride + 1;
+            for (int x = 0; x < width; x++, pos++) {
+                int node = (row + (x >> TILE_BITS)) * KINDS;
+                boolean covered = plan.coveredAt(pos);
+                boolean marked = plan.markedAt(pos);
+                if (covered) {
+                    leaves[node + COVERED]++;
+                    if (!marked) {
+                        leaves[node + FREE]++;
+                    }
+                }
+                if (marked) {
+                    leaves[node + FLAGS]++;
+                }
+            }
+        }
+        System.arraycopy(leaves, 0, propagated, 0, leaves.length);
+        for (int i = 0; i < dirtyCount; i++) {
+            dirty[dirtyTiles[i]] = false;
+        }
+        dirtyCount = 0;
+        for (int level = 1; level < levels.length; level++) {
+            int[] below = levels[level - 1];
+            int[] nodes = levels[level];
+            Arrays.fill(nodes, 0);
+            for (int ny = 0; ny < levelHeight[level - 1]; ny++) {
+                for (int nx = 0; nx < levelWidth[level - 1]; nx++) {
+                    int from = (ny * levelWidth[level - 1] + nx) * KINDS;
+                    int to = ((ny >> 1) * levelWidth[level] + (nx >> 1)) * KINDS;
+                    for (int k = 0; k < KINDS; k++) {
+                        nodes[to + k] += below[from + k];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records uncovering of the field at the position.
+     */
+    void uncovered(int pos) {
+        update(pos, -1, 0, plan.markedAt(pos) ? 0 : -1);
+    }
+
+    /**
+     * Records a changed mark of the field at the position.
+     */
+    void marked(int pos, boolean marked) {
+        int delta = marked ? 1 : -1;
+        update(pos, 0, delta, plan.coveredAt(pos) ? -delta : 0);
+    }
+
+    private void update(int pos, int covered, int flags, int free) {
+        int tile = ((pos / stride - 1) >> TILE_BITS) * levelWidth[0] + ((pos % stride - 1) >> TILE_BITS);
+        int node = tile * KINDS;
+        levels[0][node + COVERED] += covered;
+        levels[0][node + FLAGS] += flags;
+        levels[0][node + FREE] += free;
+        if (!dirty[tile]) {
+            dirty[tile] = true;
+            if (dirtyCount == dirtyTiles.length) {
+                dirtyTiles = Arrays.copyOf(dirtyTiles, dirtyCount * 2);
+            }
+            dirtyTiles[dirtyCount++] = tile;
+        }
+    }
+
+    /**
+     * Adds the changes of listed tiles to the higher levels.
+     */
+    private void flush() {
+        int[] leaves = levels[0];
+        for (int i = 0; i < dirtyCount; i++) {
+            int tile = dirtyTiles[i];
+            dirty[tile] = false;
+            int tx = tile % levelWidth[0];
+            int ty = tile / levelWidth[0];
+            for (int k = 0; k < KINDS; k++) {
+                int delta = leaves[tile * KINDS + k] - propagated[tile * KINDS + k];
+                if (delta == 0) {
+                    continue;
+                }
+                propagated[tile * KINDS + k] += delta;
+                for (int level = 1; level < levels.length; level++) {
+                    levels[level][((ty >> level) * levelWidth[level] + (tx >> level)) * KINDS + k] += delta;
+                }
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Returns number of covered fields in the rectangle.
+     *
+     * @param x x-coord of the left column
+     * @param y y-coord of the top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return int
+     * @throws BadCoordsException if the rectangle is not inside the game plan
+     */
+    public int getNumberOfCovered(int x, int y, int w, int h) {
+        return count(COVERED, x, y, w, h);
+    }
+
+    /**
+     * Returns number of uncovered fields in the rectangle.
+     *
+     * @param x x-coord of the left column
+     * @param y y-coord of the top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return int
+     * @throws BadCoordsException if the rectangle is not inside the game plan
+     */
+    public int getNumberOfUncovered(int x, int y, int w, int h) {
+        return w * h - count(COVERED, x, y, w, h);
+    }
+
+    /**
+     * Returns number of marked fields in the rectangle.
+     *
+     * @param x x-coord of the left column
+     * @param y y-coord of the top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return int
+     * @throws BadCoordsException if the rectangle is not inside the game plan
+     */
+    public int getNumberOfFlags(int x, int y, int w, int h) {
+        return count(FLAGS, x, y, w, h);
+    }
+
+    /**
+     * Checks if there is a covered field in the rectangle.
+     *
+     * @param x x-coord of the left column
+     * @param y y-coord of the top row
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @return boolean
+     * @throws BadCoordsException if the rectangle is not inside the game plan
+     */
+    public boolean hasCovered(int x, int y, int w, int h) {
+        return count(COVERED, x, y, w, h) > 0;
+    }
+
+    /**
+     * Returns the covered field nearest to the given one, measured in king
+     * moves.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return field index, -1 if no field is covered
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public int nearestCovered(int x, int y) {
+        return nearest(COVERED, x, y);
+    }
+
+    /**
+     * Returns the covered field without a flag nearest to the given one,
+     * measured in king moves.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return field index, -1 if there is no such field
+     * @throws BadCoordsException if the coordinates are off the game plan
+     */
+    public int nearestFree(int x, int y) {
+        return nearest(FREE, x, y);
+    }
+
+    private int count(int kind, int x, int y, int w, int h) {
+        if (w < 0 || h < 0 || x < 0 || y < 0 || x > width - w || y > height - h) {
+            throw new BadCoordsException("Rectangle is off the game plan.");
+        }
+        if (w == 0 || h == 0) {
+            return 0;
+        }
+        flush();
+        return sum(kind, levels.length - 1, 0, 0, x, y, x + w, y + h);
+    }
+
+    /**
+     * Sums the kind over the intersection of the node and the rectangle
+     * [x0, x1) x [y0, y1).
+     */
+    private int sum(int kind, int level, int nx, int ny, int x0, int y0, int x1, int y1) {
+        int shift = level + TILE_BITS;
+        int left = nx << shift;
+        int top = ny << shift;
+        int right = Math.min(width, left + (1 << shift));
+        int bottom = Math.min(height, top + (1 << shift));
+        if (left >= x1 || right <= x0 || top >= y1 || bottom <= y0) {
+            return 0;
+        }
+        int value = levels[level][(ny * levelWidth[level] + nx) * KINDS + kind];
+        if (value == 0 || (x0 <= left && right <= x1 && y0 <= top && bottom <= y1)) {
+            return value;
+        }
+        if (level == 0) {
+            return scan(kind, Math.max(x0, left), Math.max(y0, top), Math.min(x1, right), Math.min(y1, bottom));
+        }
+        int sum = 0;
+        for (int cy = ny * 2; cy < Math.min(ny * 2 + 2, levelHeight[level - 1]); cy++) {
+            for (int cx = nx * 2; cx < Math.min(nx * 2 + 2, levelWidth[level - 1]); cx++) {
+                sum += sum(kind, level - 1, cx, cy, x0, y0, x1, y1);
+            }
+        }
+        return sum;
+    }
+
+    private int scan(int kind, int x0, int y0, int x1, int y1) {
+        int sum = 0;
+        for (int y = y0; y < y1; y++) {
+            int pos = (y + 1) * stride + x0 + 1;
+            for (int x = x0; x < x1; x++, pos++) {
+                if (is(kind, pos)) {
+                    sum++;
+                }
+            }
+        }
+        return sum;
+    }
+
+    private boolean is(int kind, int pos) {
+        switch (kind) {
+            case COVERED:
+                return plan.coveredAt(pos);
+            case FLAGS:
+                return plan.markedAt(pos);
+            default:
+                return plan.coveredAt(pos) && !plan.markedAt(pos);
+        }
+    }
+
+    private int nearest(int kind, int x, int y) {
+        plan.index(x, y);
+        flush();
+        bestCell = -1;
+        bestDistance = Integer.MAX_VALUE;
+        search(kind, levels.length - 1, 0, 0, x, y);
+        return bestCell;
+    }
+
+    /**
+     * Branch and bound search, the nearer children first.
+     */
+    private void search(int kind, int level, int nx, int ny, int x, int y) {
+        if (levels[level][(ny * levelWidth[level] + nx) * KINDS + kind] == 0
+                || distance(level, nx, ny, x, y) >= bestDistance) {
+            return;
+        }
+        if (level == 0) {
+            int left = nx << TILE_BITS;
+            int top = ny << TILE_BITS;
+            int right = Math.min(width, left + (1 << TILE_BITS));
+            int bottom = Math.min(height, top + (1 << TILE_BITS));
+            for (int cy = top; cy < bottom; cy++) {
+                int pos = (cy + 1) * stride + left + 1;
+                for (int cx = left; cx < right; cx++, pos++) {
+                    int d = Math.max(Math.abs(cx - x), Math.abs(cy - y));
+                    if (d < bestDistance && is(kind, pos)) {
+                        bestDistance = d;
+                        bestCell = cy * width + cx;
+                    }
+                }
+            }
+            return;
+        }
+        int[] children = new int[4];
+        int[] distances = new int[4];
+        int n = 0;
+        for (int cy = ny * 2; cy < Math.min(ny * 2 + 2, levelHeight[level - 1]); cy++) {
+            for (int cx = nx * 2; cx < Math.min(nx * 2 + 2, levelWidth[level - 1]); cx++) {
+                int d = distance(level - 1, cx, cy, x, y);
+                int i = n++;
+                // Insertion by distance
+                while (i > 0 && distances[i - 1] > d) {
+                    children[i] = children[i - 1];
+                    distances[i] = distances[i - 1];
+                    i--;
+                }
+                children[i] = cy * levelWidth[level - 1] + cx;
+                distances[i] = d;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            search(kind, level - 1, children[i] % levelWidth[level - 1], children[i] / levelWidth[level - 1], x, y);
+        }
+    }
+
+    /**
+     * King move distance of the field from the nearest field of the node.
+     */
+    private int distance(int level, int nx, int ny, int x, int y) {
+        int shift = level + TILE_BITS;
+        int left = nx << shift;
+        int top = ny << shift;
+        int dx = Math.max(0, Math.max(left - x, x - (left + (1 << shift) - 1)));
+        int dy = Math.max(0, Math.max(top - y, y - (top + (1 << shift) - 1)));
+        return Math.max(dx, dy);
+    }
+}
@@ -0,0 +1,565 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless game server.
+ *
+ * Hosts any number of games for clients speaking MinesProtocol over TCP. A
+ * single thread serves all connections with a non-blocking selector loop,
+ * so every game is touched by one thread only and an idle client costs only
+ * its socket and two small buffers. Any client can play any game, games are
+ * removed when the client that created them disconnects or when nobody used
+ * them for the idle time. Games are kept by a GameSessionManager, so their
+ * buffers are reused by the next games.
+ *
+ * Clients watching a game get an update after every change. A watched game
+ * has a listener handing the changes of every move to the watchers. Changes
+ * are merged per watcher until everything sent before has left the socket, so a
+ * slow client gets fewer bigger updates and the server never queues more
+ * than one update per watched game.
+ *
+ * A client can run at most MAX_GAMES_PER_CONNECTION games at once and all
+ * games together have at most the given number of fields, requests over the
+ * limits get ERROR_BAD_NUMBER.
+ *
+ * Requests of a client are not read while more than HIGH_WATER bytes of
+ * answers wait for it, so a client that does not read its answers cannot
+ * make the server buffer more than that and one answer.
+ */
+public class MinesServer {
+
+    private static final Logger LOG = Logger.getLogger(MinesServer.class.getName());
+    private static final int BUFFER_SIZE = 256;
+    // Pending answers above which requests of the client are not read
+    private static final int HIGH_WATER = 64 * 1024;
+    private static final long TICK_MILLIS = 1000;
+    static final int MAX_GAMES_PER_CONNECTION = 16;
+    // Fields of all games when not given, at least one biggest game
+    private static final long MAX_TOTAL_CELLS = 1L << 27;
+
+    private final Map<Integer, Hosted> games = new HashMap<>();
+    private final List<Connection> readyConnections = new ArrayList<>();
+    private final long maxCells;
+    private final GameSessionManager sessions;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    /**
+     * Connection state attached to the selection key.
+     */
+    private static class Connection {
+
+        final SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        final List<Integer> ownGames = new ArrayList<>();
+        final List<Viewer> watching = new ArrayList<>();
+        boolean ready;
+
+        Connection(SelectionKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Hosted game with its watchers.
+     */
+    private static class Hosted {
+
+        final MinesGame game;
+        final Connection owner;
+        final List<Viewer> viewers = new ArrayList<>();
+        // Registered while the game has viewers
+        MinesGameListener listener;
+
+        Hosted(MinesGame game, Connection owner) {
+            this.game = game;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * A game watched by a connection.
+     */
+    private static class Viewer {
+
+        final int id;
+        final Hosted hosted;
+        final Connection connection;
+        final MinesDeltaEncoder encoder = new MinesDeltaEncoder();
+
+        Viewer(int id, Hosted hosted, Connection connection) {
+            this.id = id;
+            this.hosted = hosted;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * Server constructor.
+     *
+     * @param maxCells the biggest board a client can create
+     */
+    public MinesServer(long maxCells) {
+        this(maxCells, 10 * 60 * 1000);
+    }
+
+    /**
+     * Server constructor.
+     *
+     * @param maxCells the biggest board a client can create
+     * @param idleMillis time after which an unused game is removed
+     */
+    public MinesServer(long maxCells, long idleMillis) {
+        this(maxCells, idleMillis, Math.max(maxCells, MAX_TOTAL_CELLS));
+    }
+
+    /**
+     * Server constructor.
+     *
+     * @param maxCells the biggest board a client can create
+     * @param idleMillis time after which an unused game is removed
+     * @param maxTotalCells limit of fields of all games
+     */
+    public MinesServer(long maxCells, long idleMillis, long maxTotalCells) {
+        this.maxCells = maxCells;
+        this.sessions = new GameSessionManager(idleMillis, Math.min(TICK_MILLIS, idleMillis),
+                new BoardBufferPool(1024));
+        this.sessions.setMaxCells(maxTotalCells);
+        this.sessions.setEvictionListener(id -> {
+            Hosted hosted = dropGame(id);
+            if (hosted != null) {
+                hosted.owner.ownGames.remove((Integer) id);
+            }
+        });
+    }
+
+    /**
+     * Binds the server socket.
+     *
+     * @param port port, 0 for any free port
+     * @return bound port
+     * @throws IOException if the socket cannot be bound
+     */
+    public int bind(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves clients until stop() is called. Must be called after bind().
+     *
+     * @throws IOException if the selector fails
+     */
+    public void serve() throws IOException {
+        while (running) {
+            selector.select(TICK_MILLIS);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException ex) {
+                    close(key);
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.WARNING, "Request failed, closing connection.", ex);
+                    close(key);
+                }
+            }
+            publishChanges();
+            sessions.expire();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Stops the server loop.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(key));
+        }
+    }
+
+    private void close(SelectionKey key) {
+        Connection c = (Connection) key.attachment();
+        for (Integer id : c.ownGames) {
+            removeGame(id);
+        }
+        for (Viewer v : c.watching) {
+            unwatch(v);
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Closing connection failed.", ex);
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(c.in) < 0) {
+            close(key);
+            return;
+        }
+        if (handleRequests(c)) {
+            write(key);
+        }
+    }
+
+    /**
+     * Executes the complete requests read so far, until the answers reach
+     * HIGH_WATER.
+     *
+     * @return false if the connection was closed for a broken request
+     */
+    private boolean handleRequests(Connection c) {
+        c.in.flip();
+        while (c.in.remaining() >= 4 && c.out.position() < HIGH_WATER) {
+            int length = c.in.getInt(c.in.position());
+            if (length < 1 || length > MinesProtocol.MAX_REQUEST) {
+                close(c.key);
+                return false;
+            }
+            if (c.in.remaining() < 4 + length) {
+                break;
+            }
+            int end = c.in.position() + 4 + length;
+            c.in.getInt();
+            byte op = c.in.get();
+            handle(c, op, length - 1);
+            c.in.position(end);
+        }
+        c.in.compact();
+        return true;
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        flush(c);
+        // Requests held back above the high-water mark
+        while (c.in.position() > 0 && c.out.position() < HIGH_WATER) {
+            int held = c.in.position();
+            if (!handleRequests(c)) {
+                return;
+            }
+            flush(c);
+            if (c.in.position() == held) {
+                // Only a part of a request
+                break;
+            }
+        }
+        if (c.out.position() == 0 && addUpdates(c)) {
+            flush(c);
+        }
+        int ops = c.out.position() < HIGH_WATER ? SelectionKey.OP_READ : 0;
+        key.interestOps(c.out.position() > 0 ? ops | SelectionKey.OP_WRITE : ops);
+    }
+
+    private void flush(Connection c) throws IOException {
+        c.out.flip();
+        ((SocketChannel) c.key.channel()).write(c.out);
+        c.out.compact();
+        if (c.out.position() == 0 && c.out.capacity() > HIGH_WATER) {
+            // A big snapshot has left, the buffer is not kept
+            c.out = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Adds updates of all changed watched games to the output.
+     *
+     * @return true if there was any update
+     */
+    private boolean addUpdates(Connection c) {
+        boolean added = false;
+        for (Viewer v : c.watching) {
+            if (!v.encoder.hasUpdate()) {
+                continue;
+            }
+            byte[] data = v.encoder.encode(v.hosted.game);
+            c.out = MinesProtocol.ensure(c.out, 10 + data.length);
+            MinesProtocol.header(c.out, MinesProtocol.UPDATE, 5 + data.length);
+            c.out.putInt(v.id).put((byte) v.hosted.game.getState()).put(data);
+            added = true;
+        }
+        return added;
+    }
+
+    /**
+     * Sends updates to the watchers of changed games that have sent
+     * everything before.
+     */
+    private void publishChanges() {
+        // Requests handled while writing may make connections ready again
+        List<Connection> ready = new ArrayList<>(readyConnections);
+        readyConnections.clear();
+        for (Connection c : ready) {
+            c.ready = false;
+            if (!c.key.isValid()) {
+                continue;
+            }
+            try {
+                write(c.key);
+            } catch (IOException ex) {
+                close(c.key);
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "Request failed, closing connection.", ex);
+                close(c.key);
+            }
+        }
+    }
+
+    private void ready(Connection c) {
+        if (!c.ready) {
+            c.ready = true;
+            readyConnections.add(c);
+        }
+    }
+
+    /**
+     * Hands changes of a move to the watchers of the game.
+     */
+    private void changed(Hosted hosted, MinesChangeEvent event) {
+        for (Viewer v : hosted.viewers) {
+            v.encoder.addChanges(event);
+            ready(v.connection);
+        }
+    }
+
+    private void removeGame(Integer id) {
+        dropGame(id);
+        sessions.close(id);
+    }
+
+    /**
+     * Forgets the game and its watchers.
+     *
+     * @return the game or null if there was no such game
+     */
+    private Hosted dropGame(Integer id) {
+        Hosted hosted = games.remove(id);
+        if (hosted == null) {
+            return null;
+        }
+        for (Viewer v : hosted.viewers) {
+            v.connection.watching.remove(v);
+        }
+        if (!hosted.viewers.isEmpty()) {
+            hosted.game.removeListener(hosted.listener);
+        }
+        hosted.viewers.clear();
+        return hosted;
+    }
+
+    private void unwatch(Viewer v) {
+        v.hosted.viewers.remove(v);
+        if (v.hosted.viewers.isEmpty()) {
+            v.hosted.game.removeListener(v.hosted.listener);
+        }
+    }
+
+    /**
+     * Executes one request. The input buffer is positioned at the payload.
+     */
+    private void handle(Connection c, byte op, int payload) {
+        ByteBuffer in = c.in;
+        switch (op) {
+            case MinesProtocol.NEW_GAME: {
+                if (payload < 12) {
+                    error(c, MinesProtocol.ERROR_BAD_REQUEST);
+                    return;
+                }
+                int w = in.getInt();
+                int h = in.getInt();
+                int mines = in.getInt();
+                if ((long) w * h > maxCells || c.ownGames.size() >= MAX_GAMES_PER_CONNECTION) {
+                    error(c, MinesProtocol.ERROR_BAD_NUMBER);
+                    return;
+                }
+                int id;
+                try {
+                    id = sessions.create(w, h, mines);
+                } catch (BadNumberException ex) {
+                    error(c, MinesProtocol.ERROR_BAD_NUMBER);
+                    return;
+                }
+                Hosted hosted = new Hosted(sessions.get(id), c);
+                hosted.listener = event -> changed(hosted, event);
+                games.put(id, hosted);
+                c.ownGames.add(id);
+                c.out = MinesProtocol.ensure(c.out, 17);
+                MinesProtocol.header(c.out, MinesProtocol.GAME, 12);
+                c.out.putInt(id).putInt(w).putInt(h);
+                return;
+            }
+            case MinesProtocol.UNCOVER:
+            case MinesProtocol.MARK: {
+                if (payload < 12) {
+                    error(c, MinesProtocol.ERROR_BAD_REQUEST);
+                    return;
+                }
+                int id = in.getInt();
+                int x = in.getInt();
+                int y = in.getInt();
+                Hosted hosted = sessions.get(id) == null ? null : games.get(id);
+                if (hosted == null) {
+                    error(c, MinesProtocol.ERROR_NO_GAME);
+                    return;
+                }
+                MinesGame game = hosted.game;
+                try {
+                    if (op == MinesProtocol.UNCOVER) {
+                        game.uncover(x, y);
+                    } else {
+                        game.switchMarked(x, y);
+                    }
+                } catch (BadCoordsException ex) {
+                    error(c, MinesProtocol.ERROR_BAD_COORDS);
+                    return;
+                } catch (WrongActionException ex) {
+                    error(c, MinesProtocol.ERROR_WRONG_ACTION);
+                    return;
+                }
+                state(c, id, game);
+                return;
+            }
+            case MinesProtocol.GET: {
+                if (payload < 4) {
+                    error(c, MinesProtocol.ERROR_BAD_REQUEST);
+                    return;
+                }
+                int id = in.getInt();
+                Hosted hosted = sessions.get(id) == null ? null : games.get(id);
+                if (hosted == null) {
+                    error(c, MinesProtocol.ERROR_NO_GAME);
+                    return;
+                }
+                MinesSnapshot snapshot = hosted.game.snapshot();
+                byte[] codes = MinesProtocol.packCodes(snapshot);
+                c.out = MinesProtocol.ensure(c.out, 18 + codes.length);
+                MinesProtocol.header(c.out, MinesProtocol.SNAPSHOT, 13 + codes.length);
+                c.out.putInt(id).putInt(snapshot.getWidth()).putInt(snapshot.getHeight());
+                c.out.put((byte) snapshot.getState()).put(codes);
+                return;
+            }
+            case MinesProtocol.CLOSE_GAME: {
+                if (payload < 4) {
+                    error(c, MinesProtocol.ERROR_BAD_REQUEST);
+                    return;
+                }
+                Integer id = in.getInt();
+                if (c.ownGames.remove(id)) {
+                    removeGame(id);
+                }
+                return;
+            }
+            case MinesProtocol.WATCH:
+            case MinesProtocol.UNWATCH: {
+                if (payload < 4) {
+                    error(c, MinesProtocol.ERROR_BAD_REQUEST);
+                    return;
+                }
+                int id = in.getInt();
+                Hosted hosted = sessions.get(id) == null ? null : games.get(id);
+                if (hosted == null) {
+                    error(c, MinesProtocol.ERROR_NO_GAME);
+                    return;
+                }
+                Viewer viewer = null;
+                for (Viewer v : c.watching) {
+                    if (v.hosted == hosted) {
+                        viewer = v;
+                    }
+                }
+                if (op == MinesProtocol.WATCH && viewer == null) {
+                    viewer = new Viewer(id, hosted, c);
+                    if (hosted.viewers.isEmpty()) {
+                        hosted.game.addListener(hosted.listener);
+                    }
+                    hosted.viewers.add(viewer);
+                    c.watching.add(viewer);
+                    ready(c);
+                } else if (op == MinesProtocol.UNWATCH && viewer != null) {
+                    c.watching.remove(viewer);
+                    unwatch(viewer);
+                }
+                return;
+            }
+            default:
+                error(c, MinesProtocol.ERROR_BAD_REQUEST);
+        }
+    }
+
+    private void state(Connection c, int id, MinesGame game) {
+        c.out = MinesProtocol.ensure(c.out, 10);
+        MinesProtocol.header(c.out, MinesProtocol.STATE, 5);
+        c.out.putInt(id).put((byte) game.getState());
+    }
+
+    private void error(Connection c, byte code) {
+        c.out = MinesProtocol.ensure(c.out, 6);
+        MinesProtocol.header(c.out, MinesProtocol.ERROR, 1);
+        c.out.put(code);
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args [port [max cells per game]]
+     */
+    public static void main(String args[]) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : MinesProtocol.DEFAULT_PORT;
+        long maxCells = args.length > 1 ? Long.parseLong(args[1]) : 1L << 24;
+        MinesServer server = new MinesServer(maxCells);
+        port = server.bind(port);
+        LOG.log(Level.INFO, "Mines server listening on port {0}", port);
+        server.serve();
+    }
+}
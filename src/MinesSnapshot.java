@@ -0,0 +1,122 @@
+
+/**
+ * Immutable render model of a game.
+ *
+ * Holds one display code per field and the game state at the moment the
+ * snapshot was taken. Fields are stored row by row, the field [x, y] is at
+ * index y * width + x.
+ *
+ * The codes are kept in tiles of 4096 fields. A snapshot made by
+ * withChanges() shares the unchanged tiles with the previous one, so it costs
+ * the changed tiles only, not the whole plan.
+ */
+public final class MinesSnapshot {
+
+    /**
+     * Codes 0 - 8 are uncovered fields with given number of mines in the
+     * vicinity.
+     */
+    public static final byte CODE_COVERED = 9;
+    public static final byte CODE_FLAG = 10;
+    public static final byte CODE_MINE = 11;
+    public static final byte CODE_EXPLODED = 12;
+    public static final byte CODE_WRONG_FLAG = 13;
+
+    // Field index bits of the place in a tile
+    static final int TILE_BITS = 12;
+    static final int TILE_MASK = (1 << TILE_BITS) - 1;
+
+    private final int width;
+    private final int height;
+    private final int state;
+    private final byte[][] tiles;
+
+    /**
+     * Snapshot constructor, the tiles are not copied.
+     *
+     * @param width plan width
+     * @param height plan height
+     * @param state game state
+     * @param tiles display codes in tiles made by newTiles()
+     */
+    MinesSnapshot(int width, int height, int state, byte[][] tiles) {
+        this.width = width;
+        this.height = height;
+        this.state = state;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Allocates tiles for the given number of fields.
+     *
+     * @param cells number of fields
+     * @return byte[][]
+     */
+    static byte[][] newTiles(int cells) {
+        byte[][] tiles = new byte[(cells + TILE_MASK) >>> TILE_BITS][];
+        for (int t = 0; t < tiles.length; t++) {
+            tiles[t] = new byte[Math.min(TILE_MASK + 1, cells - (t << TILE_BITS))];
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns a copy of the snapshot with changed fields. Tiles without a
+     * changed field are shared.
+     *
+     * @param state game state
+     * @param cells changed fields, y * width + x
+     * @param newCodes new codes of the fields
+     * @param count number of changed fields
+     * @return MinesSnapshot
+     */
+    MinesSnapshot withChanges(int state, int[] cells, byte[] newCodes, int count) {
+        byte[][] changed = tiles.clone();
+        for (int i = 0; i < count; i++) {
+            int t = cells[i] >>> TILE_BITS;
+            if (changed[t] == tiles[t]) {
+                changed[t] = tiles[t].clone();
+            }
+            changed[t][cells[i] & TILE_MASK] = newCodes[i];
+        }
+        return new MinesSnapshot(width, height, state, changed);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns game state at the time of the snapshot.
+     *
+     * @return one of MinesGame.STATE_* values
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Returns display code of given field without bounds checking.
+     *
+     * @param x x-coord
+     * @param y y-coord
+     * @return display code
+     */
+    public int codeAt(int x, int y) {
+        return codeAt(y * width + x);
+    }
+
+    /**
+     * Returns display code at given flat index.
+     *
+     * @param index y * width + x
+     * @return display code
+     */
+    public int codeAt(int index) {
+        return tiles[index >>> TILE_BITS][index & TILE_MASK];
+    }
+}
@@ -1,6 +1,7 @@
 
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import javax.imageio.ImageIO;
@@ -18,7 +19,8 @@ public class MinesWidget extends JComponent {
     private BufferedImage imageExploded;
     private BufferedImage imageWrongFlag;
     private BufferedImage[] imageBombCount;
-    private MinesGame game;
+    private MinesEngine engine;
+    private MinesSnapshot snapshot;
 
     private double xOffset = 0;
 
@@ -28,7 +30,7 @@ public class MinesWidget extends JComponent {
      * Creates a default game with 5x5 fields and 4 mines.
      */
     public MinesWidget() {
-        this.game = new MinesGame(5, 5, 4);
+        this(new MinesGame(5, 5, 4));
     }
 
     /**
@@ -38,7 +40,8 @@ public class MinesWidget extends JComponent {
      * @throws NullPointerException if game is null.
      */
     public MinesWidget(MinesGame game) {
-        this.game = game;
+        this.engine = new MinesEngine(game, this::snapshotPublished);
+        this.snapshot = engine.getSnapshot();
     }
 
     /**
@@ -51,7 +54,7 @@ public class MinesWidget extends JComponent {
      * @param mines number of mines
      */
     public MinesWidget(int w, int h, int mines) {
-        game = new MinesGame(w, h, mines);
+        this(new MinesGame(w, h, mines));
     }
 
     /**
@@ -63,11 +66,11 @@ public class MinesWidget extends JComponent {
      * @param cell
      */
     private int scaling() {
-        int w = this.getWidth() / game.getPlan().getWidth();
-        int h = this.getHeight() / game.getPlan().getHeight();
+        int w = this.getWidth() / snapshot.getWidth();
+        int h = this.getHeight() / snapshot.getHeight();
         int s = w < h ? w : h;
-        if (h < w && this.getWidth() > game.getPlan().getWidth() * s / 2) {
-            xOffset = (this.getWidth() - game.getPlan().getWidth() * s) / 2;
+        if (h < w && this.getWidth() > snapshot.getWidth() * s / 2) {
+            xOffset = (this.getWidth() - snapshot.getWidth() * s) / 2;
         } else {
             xOffset = 0;
         }
@@ -87,8 +90,15 @@ public class MinesWidget extends JComponent {
         return selected;
     }
 
+    /**
+     * Starts a new game. The game is created on the engine thread.
+     *
+     * @param w width
+     * @param h height
+     * @param mines number of mines
+     */
     public void newGame(int w, int h, int mines) {
-        this.game = new MinesGame(w, h, mines);
+        engine.newGame(w, h, mines);
     }
 
     /**
@@ -98,19 +108,71 @@ public class MinesWidget extends JComponent {
      * @throws NullPointerException if game is null.
      */
     public void setGame(MinesGame game) {
-        if (game == null) {
-            throw new NullPointerException("Setting a null game.");
-        }
-        this.game = game;
+        engine.setGame(game);
+    }
+
+    /**
+     * Restores the saved game and saves the games from now on.
+     *
+     * @param autosave autosave of the games
+     * @throws NullPointerException if autosave is null
+     */
+    public void setAutosave(MinesAutosave autosave) {
+        engine.setAutosave(autosave);
+    }
+
+    /**
+     * Stops the engine of the widget without waiting for it, the engine
+     * closes the autosave. The widget cannot play afterwards. Removing the
+     * widget from its window does not stop it.
+     */
+    public void dispose() {
+        engine.shutdown();
+    }
+
+    /**
+     * Waits for the engine of the disposed widget to end.
+     *
+     * @param millis time limit, 0 waits forever
+     * @return true if the engine ended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        return engine.awaitTermination(millis);
     }
 
     /**
      * Returns the current game.
      *
+     * The game is owned by the engine thread, use getSnapshot() to read the
+     * game state from the event dispatch thread.
+     *
      * @return MinesGame
      */
     public MinesGame getGame() {
-        return this.game;
+        return engine.getGame();
+    }
+
+    /**
+     * Returns the last snapshot published by the engine.
+     *
+     * @return MinesSnapshot
+     */
+    public MinesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Takes new snapshot from the engine, fires "gameState" property change
+     * and repaints the widget.
+     *
+     * @param published new snapshot
+     */
+    private void snapshotPublished(MinesSnapshot published) {
+        int oldState = snapshot.getState();
+        snapshot = published;
+        firePropertyChange("gameState", oldState, published.getState());
+        repaint();
     }
 
     /**
@@ -126,30 +188,75 @@ public class MinesWidget extends JComponent {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        loadImages();
+        if (imageBombCount == null) {
+            loadImages();
+        }
         int s = scaling();
-        for (int x = 0; x < game.getPlan().getWidth(); x++) {
-            for (int y = 0; y < game.getPlan().getHeight(); y++) {
-                if (game.getPlan().isCoveredAt(x, y)) {
-                    g.drawImage(imageCovered, x * s + (int) xOffset, y * s, s, s, this);
-                }
-                if (game.getPlan().isMarkedAt(x, y)) {
-                    g.drawImage(imageFlag, x * s + (int) xOffset, y * s, s, s, this);
-                }
-                if (game.getPlan().isMineAt(x, y) && game.getState() == game.STATE_EXPLODED && !game.getPlan().isMarkedAt(x, y)) {
-                    g.drawImage(imageMine, x * s + (int) xOffset, y * s, s, s, this);
-                }
-                if (!game.getPlan().isMineAt(x, y) && !game.getPlan().isCoveredAt(x, y)) {
-                    g.drawImage(imageBombCount[game.getPlan().getNumberOfMines(x, y)], x * s + (int) xOffset, y * s, s, s, this);
-                }
-                if (game.getState() == game.STATE_EXPLODED && game.getPlan().isMarkedAt(x, y) && !game.getPlan().isMineAt(x, y)) {
-                    g.drawImage(imageWrongFlag, x * s + (int) xOffset, y * s, s, s, this);
-                }
-                if (game.getState() == game.STATE_EXPLODED && !game.getPlan().isCoveredAt(x, y) && game.getPlan().isMineAt(x, y)) {
-                    g.drawImage(imageExploded, x * s + (int) xOffset, y * s, s, s, this);
-                }
+        if (s == 0) {
+            return;
+        }
+        long start = MinesMetrics.ENABLED ? System.nanoTime() : 0;
+        MinesSnapshot snapshot = this.snapshot;
+        // Draw only the fields inside the clip
+        int xFrom = 0;
+        int xTo = snapshot.getWidth();
+        int yFrom = 0;
+        int yTo = snapshot.getHeight();
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            xFrom = Math.max(xFrom, (clip.x - (int) xOffset) / s);
+            xTo = Math.min(xTo, (clip.x + clip.width - (int) xOffset) / s + 1);
+            yFrom = Math.max(yFrom, clip.y / s);
+            yTo = Math.min(yTo, (clip.y + clip.height) / s + 1);
+        }
+        // The range is clamped to the plan, fields are read by index
+        int w = snapshot.getWidth();
+        for (int y = yFrom; y < yTo; y++) {
+            int row = y * w;
+            for (int x = xFrom; x < xTo; x++) {
+                drawField(g, snapshot.codeAt(row + x), x * s + (int) xOffset, y * s, s);
             }
         }
+        if (MinesMetrics.ENABLED) {
+            MinesMetrics.PAINT.recordSince(start);
+            MinesMetrics.PAINT_CELLS.record((long) Math.max(0, xTo - xFrom) * Math.max(0, yTo - yFrom));
+        }
+    }
+
+    /**
+     * Draws one field with given display code.
+     *
+     * @param g
+     * @param code display code from MinesSnapshot
+     * @param px pixel x position
+     * @param py pixel y position
+     * @param s field size in pixels
+     */
+    private void drawField(Graphics g, int code, int px, int py, int s) {
+        switch (code) {
+            case MinesSnapshot.CODE_COVERED:
+                g.drawImage(imageCovered, px, py, s, s, this);
+                break;
+            case MinesSnapshot.CODE_FLAG:
+                g.drawImage(imageCovered, px, py, s, s, this);
+                g.drawImage(imageFlag, px, py, s, s, this);
+                break;
+            case MinesSnapshot.CODE_MINE:
+                g.drawImage(imageCovered, px, py, s, s, this);
+                g.drawImage(imageMine, px, py, s, s, this);
+                break;
+            case MinesSnapshot.CODE_EXPLODED:
+                g.drawImage(imageMine, px, py, s, s, this);
+                g.drawImage(imageExploded, px, py, s, s, this);
+                break;
+            case MinesSnapshot.CODE_WRONG_FLAG:
+                g.drawImage(imageCovered, px, py, s, s, this);
+                g.drawImage(imageFlag, px, py, s, s, this);
+                g.drawImage(imageWrongFlag, px, py, s, s, this);
+                break;
+            default:
+                g.drawImage(imageBombCount[code], px, py, s, s, this);
+        }
     }
 
     /**
@@ -171,7 +278,7 @@ public class MinesWidget extends JComponent {
      */
     public void uncoverPosition(int x_pix, int y_pix) {
         int s = scaling();
-        game.uncover((x_pix - (int) xOffset) / s, y_pix / s);
+        engine.uncover((x_pix - (int) xOffset) / s, y_pix / s);
     }
 
     /**
@@ -182,7 +289,7 @@ public class MinesWidget extends JComponent {
      */
     public void markingPosition(int x_pix, int y_pix) {
         int s = scaling();
-        game.switchMarked((x_pix - (int) xOffset) / s, y_pix / s);
+        engine.switchMarked((x_pix - (int) xOffset) / s, y_pix / s);
     }
 
     /**
@@ -4,12 +4,48 @@ public class MinesWindow extends javax.swing.JFrame {
     private int newWidth = 5;
     private int newHeight = 5;
     private int newMines = 4;
+    // Next game is built in the background for the spinner values
+    private final MinesGameFactory factory = new MinesGameFactory(1);
 
     /**
      * Creates new form MinesWindow
      */
     public MinesWindow() {
         initComponents();
+        minesWidget1.addPropertyChangeListener("gameState", new java.beans.PropertyChangeListener() {
+            public void propertyChange(java.beans.PropertyChangeEvent evt) {
+                smiley1.setSmileyState((int) evt.getNewValue());
+                smiley1.repaint();
+            }
+        });
+        factory.configure(newWidth, newHeight, newMines);
+        // Saved in the home directory unless -Dmines.autosave= gives another file or nothing
+        String autosave = System.getProperty("mines.autosave",
+                java.nio.file.Paths.get(System.getProperty("user.home"), ".mines-autosave").toString());
+        if (!autosave.isEmpty()) {
+            minesWidget1.setAutosave(new MinesAutosave(java.nio.file.Paths.get(autosave)));
+        }
+        // The last moves are saved on a thread of its own, the window is gone meanwhile
+        setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowClosing(java.awt.event.WindowEvent evt) {
+                exit();
+            }
+        });
+    }
+
+    private void exit() {
+        setVisible(false);
+        minesWidget1.dispose();
+        factory.shutdown();
+        new Thread(() -> {
+            try {
+                minesWidget1.awaitTermination(0);
+            } catch (InterruptedException ex) {
+                // Exit anyway
+            }
+            System.exit(0);
+        }, "mines-exit").start();
     }
 
     /**
@@ -127,16 +163,13 @@ public class MinesWindow extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void minesWidget1MouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_minesWidget1MouseReleased
+        // The engine repaints the widget and updates the smiley when the move is done
         if (evt.getButton() == 1) {
             minesWidget1.uncoverPosition(evt.getX(), evt.getY());
-            if (minesWidget1.getGame().getState() != 1) {
-                smiley1.setSmileyState(minesWidget1.getGame().getState());
-            }
         }
         if (evt.getButton() == 3) {
             minesWidget1.markingPosition(evt.getX(), evt.getY());
         }
-        this.repaint();
     }//GEN-LAST:event_minesWidget1MouseReleased
 
     private void minesWidget1KeyReleased(java.awt.event.KeyEvent evt) {//GEN-FIRST:event_minesWidget1KeyReleased
@@ -147,28 +180,34 @@ public class MinesWindow extends javax.swing.JFrame {
         System.out.println("Key released: " + releasedKey);
         System.out.println("Key code: " + keyCode);
         minesWidget1.markingPosition(minesWidget1.getSelected().x, minesWidget1.getSelected().y);
-        this.repaint();
     }//GEN-LAST:event_minesWidget1KeyReleased
 
     private void smiley1MouseReleased(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_smiley1MouseReleased
         if (evt.getX() < smiley1.getxOffset() || evt.getX() > smiley1.getxOffset() + smiley1.getS()) {
             return;
         }
-        minesWidget1.newGame(newWidth, newHeight, newMines);
-        smiley1.setSmileyState(minesWidget1.getGame().STATE_PLAYING);
-        this.repaint();
+        MinesGame game = factory.poll(newWidth, newHeight, newMines);
+        if (game != null) {
+            minesWidget1.setGame(game);
+        } else {
+            // Not prepared yet, the engine builds it
+            minesWidget1.newGame(newWidth, newHeight, newMines);
+        }
     }//GEN-LAST:event_smiley1MouseReleased
 
     private void jSpinner1StateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_jSpinner1StateChanged
         newWidth = (int) jSpinner1.getModel().getValue();
+        factory.configure(newWidth, newHeight, newMines);
     }//GEN-LAST:event_jSpinner1StateChanged
 
     private void jSpinner2StateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_jSpinner2StateChanged
         newHeight = (int) jSpinner2.getModel().getValue();
+        factory.configure(newWidth, newHeight, newMines);
     }//GEN-LAST:event_jSpinner2StateChanged
 
     private void jSpinner3StateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_jSpinner3StateChanged
         newMines = (int) jSpinner3.getModel().getValue();
+        factory.configure(newWidth, newHeight, newMines);
     }//GEN-LAST:event_jSpinner3StateChanged
 
     /**
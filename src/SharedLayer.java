@@ -0,0 +1,98 @@
+
+import java.util.Arrays;
+
+/**
+ * Layer of covered or marked fields shared by a plan and its forks.
+ *
+ * The layer is cut into chunks of 4096 positions. At first all chunks are
+ * parts of the flat layer of the forked plan, which nobody changes since. A
+ * plan copies a chunk before its first change and owns the copy, so a chunk
+ * not owned may be read by other plans and stays unchanged. Sharing the layer
+ * with another fork takes time by the number of chunks, not by the size of
+ * the plan.
+ */
+final class SharedLayer {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    // Flat layer the chunks not copied yet are part of, indexed by position
+    private final boolean[] base;
+    // Chunks indexed from their start, or the base layer
+    private final boolean[][] chunks;
+    // Chunks copied by this plan
+    private final boolean[] owned;
+    private final int size;
+
+    /**
+     * Layer constructor, the flat layer must not be changed afterwards.
+     *
+     * @param base flat layer of the forked plan
+     * @param size number of positions with the border
+     */
+    SharedLayer(boolean[] base, int size) {
+        this.base = base;
+        this.size = size;
+        this.chunks = new boolean[(size + CHUNK_MASK) >>> CHUNK_BITS][];
+        this.owned = new boolean[chunks.length];
+        Arrays.fill(chunks, base);
+    }
+
+    private SharedLayer(SharedLayer layer) {
+        this.base = layer.base;
+        this.size = layer.size;
+        this.chunks = layer.chunks.clone();
+        this.owned = new boolean[chunks.length];
+        // The chunks of the layer are not its own any more
+        Arrays.fill(layer.owned, false);
+    }
+
+    /**
+     * Returns the same layer for a fork. Both layers copy the chunks they
+     * change later.
+     *
+     * @return SharedLayer
+     */
+    SharedLayer share() {
+        return new SharedLayer(this);
+    }
+
+    boolean get(int pos) {
+        boolean[] chunk = chunks[pos >>> CHUNK_BITS];
+        return chunk == base ? chunk[pos] : chunk[pos & CHUNK_MASK];
+    }
+
+    /**
+     * Sets the field, the chunk is copied first if it is not owned.
+     *
+     * @param pos position in the plan
+     * @param value new value
+     * @param pool pool for the copy, may be null
+     */
+    void set(int pos, boolean value, BoardBufferPool pool) {
+        int i = pos >>> CHUNK_BITS;
+        if (!owned[i]) {
+            int start = i << CHUNK_BITS;
+            int length = Math.min(CHUNK_MASK + 1, size - start);
+            boolean[] copy = pool == null ? new boolean[length] : pool.acquire(length);
+            System.arraycopy(chunks[i], chunks[i] == base ? start : 0, copy, 0, length);
+            chunks[i] = copy;
+            owned[i] = true;
+        }
+        chunks[i][pos & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Returns the owned chunks to the pool. The layer must not be used
+     * afterwards.
+     *
+     * @param pool pool the chunks came from
+     */
+    void release(BoardBufferPool pool) {
+        for (int i = 0; i < chunks.length; i++) {
+            if (owned[i]) {
+                pool.release(chunks[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of results by game hash, see MinesGame.getHash().
+ *
+ * Solvers and estimators store results for a visible game and take them back
+ * when the same game comes again, by other moves or in another game of the
+ * same size. The cache is a table of buckets with two entries, the one used
+ * last is first. A new entry pushes out the older one of its bucket, so the
+ * memory is fixed and no operation takes more than two comparisons. Entries
+ * are told apart by the whole 64-bit hash only.
+ *
+ * The cache has a single owner, like a game.
+ *
+ * @param <V> result type
+ */
+public class TranspositionCache<V> {
+
+    private final long[] hashes;
+    private final Object[] values;
+    // Buckets minus 1, a bucket is two neighbouring entries
+    private final int mask;
+    private int size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Cache constructor.
+     *
+     * @param capacity maximum number of entries (min. 2), rounded up to a
+     * power of two
+     * @throws BadNumberException if capacity is less than 2 or more than 2^30
+     */
+    public TranspositionCache(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new BadNumberException("Incorrect cache capacity.");
+        }
+        int entries = Integer.highestOneBit(capacity - 1) << 1;
+        this.hashes = new long[entries];
+        this.values = new Object[entries];
+        this.mask = entries / 2 - 1;
+    }
+
+    private int bucket(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & mask) << 1;
+    }
+
+    /**
+     * Returns the result stored for the game.
+     *
+     * @param hash game hash
+     * @return result, null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long hash) {
+        int i = bucket(hash);
+        if (values[i] != null && hashes[i] == hash) {
+            hits++;
+            return (V) values[i];
+        }
+        if (values[i + 1] != null && hashes[i + 1] == hash) {
+            hits++;
+            swap(i);
+            return (V) values[i];
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores the result for the game, replacing the one stored before.
+     *
+     * @param hash game hash
+     * @param value result
+     * @throws NullPointerException if value is null
+     */
+    public void put(long hash, V value) {
+        if (value == null) {
+            throw new NullPointerException("Value is null");
+        }
+        int i = bucket(hash);
+        if (values[i + 1] != null && hashes[i + 1] == hash) {
+            swap(i);
+        } else if (values[i] == null) {
+            size++;
+        } else if (hashes[i] != hash) {
+            // The older entry of a full bucket falls out
+            if (values[i + 1] == null) {
+                size++;
+            }
+            hashes[i + 1] = hashes[i];
+            values[i + 1] = values[i];
+        }
+        hashes[i] = hash;
+        values[i] = value;
+    }
+
+    private void swap(int i) {
+        long hash = hashes[i];
+        Object value = values[i];
+        hashes[i] = hashes[i + 1];
+        values[i] = values[i + 1];
+        hashes[i + 1] = hash;
+        values[i + 1] = value;
+    }
+
+    /**
+     * Removes all results.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns number of stored results.
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns number of get() calls that found a result.
+     *
+     * @return long
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns number of get() calls that found nothing.
+     *
+     * @return long
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
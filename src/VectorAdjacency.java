@@ -0,0 +1,48 @@
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Counter of mines around fields with the Vector API.
+ *
+ * Every slice of a row is the sum of the eight neighbouring slices of the
+ * mine layer, each loaded as one vector of 0 and 1 bytes. Used by
+ * MinesAdjacency only when jdk.incubator.vector is present.
+ */
+final class VectorAdjacency implements MinesAdjacency.RowCounter {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public void countRows(boolean[] mines, byte[] counts, int width, int from, int to) {
+        int stride = width + 2;
+        int bound = SPECIES.loopBound(width);
+        int step = SPECIES.length();
+        for (int y = from; y < to; y++) {
+            int row = y * stride + 1;
+            int x = 0;
+            for (; x < bound; x += step) {
+                int p = row + x;
+                ByteVector above = ByteVector.fromBooleanArray(SPECIES, mines, p - stride - 1)
+                        .add(ByteVector.fromBooleanArray(SPECIES, mines, p - stride))
+                        .add(ByteVector.fromBooleanArray(SPECIES, mines, p - stride + 1));
+                ByteVector beside = ByteVector.fromBooleanArray(SPECIES, mines, p - 1)
+                        .add(ByteVector.fromBooleanArray(SPECIES, mines, p + 1));
+                ByteVector below = ByteVector.fromBooleanArray(SPECIES, mines, p + stride - 1)
+                        .add(ByteVector.fromBooleanArray(SPECIES, mines, p + stride))
+                        .add(ByteVector.fromBooleanArray(SPECIES, mines, p + stride + 1));
+                above.add(beside).add(below).intoArray(counts, p);
+            }
+            for (; x < width; x++) {
+                int p = row + x;
+                int sum = 0;
+                for (int dy = -stride; dy <= stride; dy += stride) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        sum += mines[p + dy + dx] ? 1 : 0;
+                    }
+                }
+                counts[p] = (byte) (sum - (mines[p] ? 1 : 0));
+            }
+        }
+    }
+}
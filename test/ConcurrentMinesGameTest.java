@@ -0,0 +1,143 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentMinesGameTest {
+
+    @Test
+    public void testPackedPlan() {
+        System.out.println("Testing packed plan");
+        ConcurrentMinesPlan p = new ConcurrentMinesPlan(5, 7);
+        assertEquals("New plan must be covered.", 35, p.getNumberOfCovered());
+        p.setMineAt(4, 6);
+        p.setMineAt(3, 6);
+        assertTrue("Mine not set.", p.isMineAt(4, 6));
+        assertTrue("Mine must stay covered.", p.isCoveredAt(4, 6));
+        assertFalse("Neighbour field changed.", p.isMineAt(2, 6));
+        assertEquals("Wrong number of mines around.", 2, p.getNumberOfMines(3, 5));
+        assertEquals("Wrong number of mines.", 2, p.getNumberOfMines());
+        p.setMineAt(4, 6);
+        assertEquals("Mine counted twice.", 2, p.getNumberOfMines());
+        assertEquals("Covered fields changed.", 35, p.getNumberOfCovered());
+        try {
+            p.isMineAt(5, 0);
+            fail("Wrong coordinates allowed");
+        } catch (BadCoordsException e) {
+        }
+        try {
+            new ConcurrentMinesPlan(1 << 16, 1 << 15);
+            fail("Too big plan allowed");
+        } catch (BadNumberException e) {
+        }
+    }
+
+    @Test
+    public void testGame() {
+        System.out.println("Testing concurrent game");
+        ConcurrentMinesPlan p = new ConcurrentMinesPlan(3, 4);
+        p.setMineAt(1, 2);
+        p.setMineAt(1, 3);
+        p.setMineAt(2, 2);
+        ConcurrentMinesGame g = new ConcurrentMinesGame(p);
+        g.uncover(0, 0);
+        assertFalse("Free area not uncovered.", p.isCoveredAt(2, 1));
+        assertTrue("Field next to mines uncovered.", p.isCoveredAt(0, 3));
+        g.switchMarked(0, 3);
+        g.uncover(0, 3);
+        assertTrue("Marked field uncovered.", p.isCoveredAt(0, 3));
+        try {
+            g.switchMarked(0, 0);
+            fail("Marking uncovered field allowed");
+        } catch (WrongActionException e) {
+        }
+        g.uncover(1, 2);
+        assertEquals("Not exploded after uncovering a mine.", MinesGame.STATE_EXPLODED, g.getState());
+        g.uncover(2, 3);
+        assertTrue("Uncovered after game over.", p.isCoveredAt(2, 3));
+        assertEquals("Wrong snapshot code.", MinesSnapshot.CODE_EXPLODED, g.snapshot().codeAt(1, 2));
+    }
+
+    @Test
+    public void testParallelWin() throws InterruptedException {
+        System.out.println("Testing parallel win");
+        for (int round = 0; round < 5; round++) {
+            ConcurrentMinesGame g = new ConcurrentMinesGame(200, 200, 4000, new Random(round));
+            ConcurrentMinesPlan p = g.getPlan();
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int cell = offset; cell < 200 * 200; cell += 2) {
+                        int x = cell % 200;
+                        int y = cell / 200;
+                        if (!p.isMineAt(x, y)) {
+                            g.uncover(x, y);
+                        }
+                    }
+                }));
+            }
+            for (Thread t : threads) {
+                t.start();
+            }
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertEquals("All free fields uncovered, the game must be won.", MinesGame.STATE_DONE, g.getState());
+            assertEquals("Only mines may stay covered.", 4000, p.getNumberOfCovered());
+        }
+    }
+
+    @Test
+    public void testParallelEnd() throws InterruptedException {
+        System.out.println("Testing parallel end of game");
+        for (int round = 0; round < 20; round++) {
+            ConcurrentMinesGame g = new ConcurrentMinesGame(20, 20, 40, new Random(round));
+            ConcurrentMinesPlan p = g.getPlan();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int offset = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int cell = 399 - offset; cell >= 0; cell -= threads.length) {
+                        g.uncover(cell % 20, cell / 20);
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+            int uncoveredMines = 0;
+            for (int y = 0; y < 20; y++) {
+                for (int x = 0; x < 20; x++) {
+                    if (p.isMineAt(x, y) && !p.isCoveredAt(x, y)) {
+                        uncoveredMines++;
+                    }
+                }
+            }
+            if (g.getState() == MinesGame.STATE_EXPLODED) {
+                assertTrue("Explosion without an uncovered mine.", uncoveredMines >= 1);
+            } else {
+                assertEquals("Game must be over.", MinesGame.STATE_DONE, g.getState());
+                assertEquals("Won game with an uncovered mine.", 0, uncoveredMines);
+            }
+        }
+    }
+}
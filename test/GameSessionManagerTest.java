@@ -0,0 +1,107 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameSessionManagerTest {
+
+    private long now;
+
+    @Test
+    public void testPool() {
+        System.out.println("Testing buffer pool");
+        BoardBufferPool pool = new BoardBufferPool(2);
+        boolean[] a = pool.acquire(100);
+        assertEquals("Buffer must have a size class length.", 128, a.length);
+        pool.release(a);
+        assertSame("Released buffer not reused.", a, pool.acquire(70));
+        pool.release(new boolean[100]);
+        assertEquals("Foreign buffer kept.", 0, pool.getNumberOfFree());
+        pool.release(pool.acquire(10));
+        pool.release(new boolean[64]);
+        pool.release(new boolean[64]);
+        assertEquals("Too many free buffers kept.", 2, pool.getNumberOfFree());
+
+        MinesPlan p = new MinesPlan(10, 10, pool);
+        p.setMineAt(3, 4);
+        p.uncover(5, 5);
+        p.mark(1, 1, true);
+        p.release();
+        p = new MinesPlan(11, 11, pool);
+        assertEquals("Reused plan has mines.", 0, p.getNumberOfMines());
+        assertFalse("Reused plan has a mine.", p.isMineAt(3, 4));
+        assertTrue("Reused plan is not covered.", p.isCoveredAt(5, 5));
+        assertFalse("Reused plan has a mark.", p.isMarkedAt(1, 1));
+    }
+
+    @Test
+    public void testSessions() {
+        System.out.println("Testing sessions");
+        BoardBufferPool pool = new BoardBufferPool(8);
+        GameSessionManager m = new GameSessionManager(1000, 100, pool, () -> now);
+        int a = m.create(10, 10, 10);
+        int b = m.create(10, 10, 10);
+        assertNotEquals("Ids must differ.", a, b);
+        assertNotNull("Session not found.", m.get(a));
+        assertEquals("Wrong number of mines.", 10, m.get(a).getPlan().getNumberOfMines());
+        try {
+            m.create(10, 10, 100);
+            fail("Bad number of mines allowed.");
+        } catch (BadNumberException ex) {
+        }
+        assertEquals("Failed session created.", 2, m.size());
+        assertTrue("Session not closed.", m.close(b));
+        assertNull("Closed session found.", m.get(b));
+        assertFalse("Session closed twice.", m.close(b));
+        // Three layers of the failed session without mines, four of the closed one
+        assertEquals("Buffers not returned.", 7, pool.getNumberOfFree());
+    }
+
+    @Test
+    public void testCellLimit() {
+        System.out.println("Testing limit of fields");
+        GameSessionManager m = new GameSessionManager(1000, 100, new BoardBufferPool(8), () -> now);
+        m.setMaxCells(250);
+        int a = m.create(10, 10, 10);
+        int b = m.create(10, 10, 10);
+        assertEquals("Wrong number of fields.", 200, m.getCells());
+        try {
+            m.create(10, 10, 10);
+            fail("Fields over the limit allowed.");
+        } catch (BadNumberException ex) {
+        }
+        m.create(5, 10, 10);
+        assertEquals("Wrong number of fields.", 250, m.getCells());
+        m.close(a);
+        assertEquals("Closed session counted.", 150, m.getCells());
+        now += 2_000_000_000L;
+        m.get(b);
+        m.expire();
+        m.create(10, 10, 10);
+        assertEquals("Expired session counted.", 200, m.getCells());
+    }
+
+    @Test
+    public void testExpire() {
+        System.out.println("Testing session expiration");
+        GameSessionManager m = new GameSessionManager(1000, 100, new BoardBufferPool(8), () -> now);
+        List<Integer> evicted = new ArrayList<>();
+        m.setEvictionListener(evicted::add);
+        int a = m.create(5, 5, 3);
+        int b = m.create(5, 5, 3);
+        for (int i = 0; i < 15; i++) {
+            now += 100_000_000L;
+            m.get(b);
+            assertFalse("Session used in time expired.", evicted.contains(b));
+            m.expire();
+        }
+        assertEquals("Idle session not expired.", 1, evicted.size());
+        assertEquals("Wrong session expired.", a, (int) evicted.get(0));
+        assertNull("Expired session found.", m.get(a));
+        // Long pause
+        now += 60_000_000_000L;
+        assertEquals("Session not expired after a pause.", 1, m.expire());
+        assertEquals("Sessions left.", 0, m.size());
+    }
+}
@@ -0,0 +1,36 @@
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        System.out.println("Testing histogram buckets");
+        for (long v = 0; v < 100000; v += 7) {
+            int b = LatencyHistogram.bucket(v);
+            assertTrue("Value above bucket bound.", v <= LatencyHistogram.upperBound(b));
+            assertTrue("Bucket too wide.", LatencyHistogram.upperBound(b) - v <= v / 16 + 1);
+        }
+        assertEquals("Wrong bound of the last bucket.", Long.MAX_VALUE,
+                LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        System.out.println("Testing histogram percentiles");
+        LatencyHistogram h = new LatencyHistogram("test");
+        assertEquals("Empty histogram must return 0.", 0, h.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+        assertEquals("Wrong count.", 1000, h.getCount());
+        assertEquals("Wrong max.", 1000, h.getMax());
+        assertEquals("Wrong mean.", 500.5, h.getMean(), 0.001);
+        long p50 = h.getPercentile(50);
+        assertTrue("Wrong median " + p50, p50 >= 500 && p50 <= 532);
+        assertEquals("Percentile 100 must be the max.", 1000, h.getPercentile(100));
+        h.reset();
+        assertEquals("Reset must clear the count.", 0, h.getCount());
+    }
+}
@@ -0,0 +1,93 @@
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MineSetTest {
+
+    @Test
+    public void testAddRemove() {
+        System.out.println("Testing mine set");
+        MineSet set = new MineSet(0);
+        Set<Integer> expected = new HashSet<>();
+        Random r = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            int pos = 1 + r.nextInt(3000);
+            if (r.nextInt(3) == 0) {
+                assertEquals("Wrong remove result.", expected.remove(pos), set.remove(pos));
+            } else {
+                assertEquals("Wrong add result.", expected.add(pos), set.add(pos));
+            }
+            assertEquals("Wrong size.", expected.size(), set.size());
+        }
+        for (int pos = 1; pos <= 3000; pos++) {
+            assertEquals("Wrong content at " + pos, expected.contains(pos), set.contains(pos));
+        }
+        Set<Integer> visited = new HashSet<>();
+        set.forEach(visited::add);
+        assertEquals("Wrong positions visited.", expected, visited);
+    }
+
+    @Test
+    public void testPlanSwitch() {
+        System.out.println("Testing sparse and dense mine layers");
+        int w = 40;
+        int h = 30;
+        MinesPlan p = new MinesPlan(w, h);
+        boolean[][] mines = new boolean[w][h];
+        Random r = new Random(8);
+        // Up to a quarter of the fields, over the dense limit, and back down
+        for (int step = 0; step < 600; step++) {
+            int x = r.nextInt(w);
+            int y = r.nextInt(h);
+            if (step < 300) {
+                p.setMineAt(x, y);
+                mines[x][y] = true;
+            } else {
+                p.clearMineAt(x, y);
+                mines[x][y] = false;
+            }
+            if (step % 50 == 49) {
+                checkPlan(p, mines);
+            }
+        }
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                p.clearMineAt(x, y);
+                mines[x][y] = false;
+            }
+        }
+        checkPlan(p, mines);
+        p.setMineAt(7, 7);
+        p.uncover(7, 7);
+        assertEquals("Uncovered mine not counted.", 1, p.getNumberOfUncoveredMines());
+        p.clearAllMines();
+        assertFalse("Cleared mine found.", p.isMineAt(7, 7));
+    }
+
+    private static void checkPlan(MinesPlan p, boolean[][] mines) {
+        int w = p.getWidth();
+        int h = p.getHeight();
+        int total = 0;
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                assertEquals("Wrong mine at " + x + "," + y, mines[x][y], p.isMineAt(x, y));
+                int around = 0;
+                for (int i = Math.max(0, x - 1); i <= Math.min(w - 1, x + 1); i++) {
+                    for (int j = Math.max(0, y - 1); j <= Math.min(h - 1, y + 1); j++) {
+                        if ((i != x || j != y) && mines[i][j]) {
+                            around++;
+                        }
+                    }
+                }
+                assertEquals("Wrong count at " + x + "," + y, around, p.getNumberOfMines(x, y));
+                if (mines[x][y]) {
+                    total++;
+                }
+            }
+        }
+        assertEquals("Wrong number of mines.", total, p.getNumberOfMines());
+    }
+}
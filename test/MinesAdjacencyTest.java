@@ -0,0 +1,71 @@
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesAdjacencyTest {
+
+    private static boolean[] randomMines(int w, int h, double density, Random r) {
+        boolean[] mines = new boolean[(w + 2) * (h + 2)];
+        for (int y = 1; y <= h; y++) {
+            for (int x = 1; x <= w; x++) {
+                mines[y * (w + 2) + x] = r.nextDouble() < density;
+            }
+        }
+        return mines;
+    }
+
+    private static int bruteForce(boolean[] mines, int w, int x, int y) {
+        int count = 0;
+        for (int j = -1; j <= 1; j++) {
+            for (int i = -1; i <= 1; i++) {
+                if ((i != 0 || j != 0) && mines[(y + j) * (w + 2) + x + i]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testCounters() {
+        System.out.println("Testing bulk mine counting, vectorized " + MinesAdjacency.isVectorized());
+        Random r = new Random(11);
+        int[][] sizes = {{2, 2}, {3, 7}, {31, 5}, {64, 3}, {100, 40}, {1500, 800}};
+        for (int[] size : sizes) {
+            int w = size[0];
+            int h = size[1];
+            boolean[] mines = randomMines(w, h, 0.3, r);
+            byte[] counts = new byte[mines.length];
+            byte[] scalar = new byte[mines.length];
+            MinesAdjacency.count(mines, counts, w, h);
+            MinesAdjacency.countRowsScalar(mines, scalar, w, 1, h + 1);
+            for (int y = 1; y <= h; y++) {
+                for (int x = 1; x <= w; x++) {
+                    int pos = y * (w + 2) + x;
+                    int expected = bruteForce(mines, w, x, y);
+                    assertEquals("Wrong count on " + w + "x" + h + " at " + x + "," + y, expected, counts[pos]);
+                    assertEquals("Wrong scalar count on " + w + "x" + h + " at " + x + "," + y, expected, scalar[pos]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPlanCounts() {
+        System.out.println("Testing plan counts after changes");
+        MinesPlan p = new MinesPlan(6, 5);
+        p.setMineAt(0, 0);
+        p.setMineAt(1, 1);
+        assertEquals("Counted layer wrong.", 2, p.getNumberOfMines(1, 0));
+        p.setMineAt(2, 0);
+        assertEquals("Added mine not counted.", 3, p.getNumberOfMines(1, 0));
+        p.clearMineAt(0, 0);
+        assertEquals("Removed mine counted.", 2, p.getNumberOfMines(1, 0));
+        assertEquals("Corner count wrong.", 1, p.getNumberOfMines(0, 0));
+        p.clearAllMines();
+        p.setMineAt(5, 4);
+        assertEquals("Cleared mines counted.", 0, p.getNumberOfMines(1, 0));
+        assertEquals("New mine not counted.", 1, p.getNumberOfMines(4, 3));
+    }
+}
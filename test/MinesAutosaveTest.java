@@ -0,0 +1,218 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesAutosaveTest {
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private static void assertSame(MinesGame expected, MinesGame restored) {
+        MinesPlan e = expected.getPlan();
+        MinesPlan r = restored.getPlan();
+        assertEquals("Wrong width.", e.getWidth(), r.getWidth());
+        assertEquals("Wrong height.", e.getHeight(), r.getHeight());
+        assertEquals("Wrong state.", expected.getState(), restored.getState());
+        for (int cell = 0; cell < e.getWidth() * e.getHeight(); cell++) {
+            assertEquals("Wrong mine at " + cell, e.isMine(cell), r.isMine(cell));
+            assertEquals("Wrong cover at " + cell, e.isCovered(cell), r.isCovered(cell));
+            assertEquals("Wrong flag at " + cell, e.isMarked(cell), r.isMarked(cell));
+        }
+    }
+
+    /**
+     * Makes random moves of a player not uncovering mines.
+     */
+    private static void play(MinesGame g, Random r, int moves) {
+        MinesPlan p = g.getPlan();
+        int size = p.getWidth() * p.getHeight();
+        for (int i = 0; i < moves && g.getState() == MinesGame.STATE_PLAYING; i++) {
+            int cell = r.nextInt(size);
+            if (!p.isCovered(cell)) {
+                continue;
+            }
+            if (p.isMine(cell) || r.nextInt(4) == 0) {
+                g.switchMarked(cell % p.getWidth(), cell / p.getWidth());
+            } else if (!p.isMarked(cell)) {
+                g.uncover(cell % p.getWidth(), cell / p.getWidth());
+            }
+        }
+    }
+
+    @Test
+    public void testRestore() throws IOException, InterruptedException {
+        System.out.println("Testing autosave restore");
+        Path directory = Files.createTempDirectory("mines");
+        try {
+            Path file = directory.resolve("save");
+            MinesAutosave autosave = new MinesAutosave(file, 10, 1 << 30);
+            assertNull("Nothing saved yet.", autosave.restore());
+            MinesGame g = new MinesGame(40, 30, 150, new Random(1));
+            autosave.attach(g);
+            g.uncover(20, 15);
+            Random r = new Random(2);
+            for (int round = 0; round < 5; round++) {
+                play(g, r, 30);
+                Thread.sleep(30);
+            }
+            autosave.close();
+            assertTrue("Journal expected.", Files.size(directory.resolve("save.journal")) > 12);
+            assertSame(g, new MinesAutosave(file).restore());
+
+            // The next game replaces the save
+            autosave = new MinesAutosave(file, 10, 1 << 30);
+            g = new MinesGame(9, 9, 10, new Random(3));
+            autosave.attach(g);
+            g.uncover(4, 4);
+            play(g, r, 20);
+            autosave.close();
+            assertSame(g, autosave.restore());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testCrash() throws IOException {
+        System.out.println("Testing autosave after a crash");
+        Path directory = Files.createTempDirectory("mines");
+        try {
+            Path file = directory.resolve("save");
+            Path journal = directory.resolve("save.journal");
+            MinesAutosave autosave = new MinesAutosave(file, 10, 1 << 30);
+            MinesGame g = new MinesGame(30, 16, 99, new Random(4));
+            autosave.attach(g);
+            g.uncover(15, 8);
+            autosave.close();
+            long saved = Files.size(journal);
+            // A move written only in part
+            int cell = 0;
+            while (!g.getPlan().isCovered(cell)) {
+                cell++;
+            }
+            ByteBuffer torn = ByteBuffer.allocate(11);
+            torn.putInt(5).putInt(123).putShort((short) cell).put((byte) 0);
+            Files.write(journal, torn.array(), StandardOpenOption.APPEND);
+            assertSame(g, autosave.restore());
+            // A record with a garbage length
+            ByteBuffer garbage = ByteBuffer.allocate((int) saved + 13);
+            garbage.put(Files.readAllBytes(journal), 0, (int) saved);
+            garbage.putInt(Integer.MAX_VALUE / 5 * 5).putInt(123).putInt(cell).put((byte) 0);
+            Files.write(journal, garbage.array());
+            assertSame(g, autosave.restore());
+            // A record with a wrong checksum
+            ByteBuffer broken = ByteBuffer.allocate((int) saved + 13);
+            broken.put(Files.readAllBytes(journal), 0, (int) saved);
+            broken.putInt(5).putInt(123).putInt(cell).put((byte) 0);
+            Files.write(journal, broken.array());
+            assertSame(g, autosave.restore());
+            // A journal of an older snapshot
+            ByteBuffer old = ByteBuffer.wrap(Files.readAllBytes(journal));
+            old.putLong(4, old.getLong(4) - 1);
+            Files.write(journal, old.array());
+            assertSame(g, autosave.restore());
+            // A broken snapshot is reported
+            byte[] snapshot = Files.readAllBytes(file);
+            snapshot[30] ^= 1;
+            Files.write(file, snapshot);
+            try {
+                autosave.restore();
+                fail("Broken snapshot must be reported.");
+            } catch (IOException ex) {
+                // expected
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testEngineShutdown() throws IOException, InterruptedException {
+        System.out.println("Testing autosave closed by the engine");
+        Path directory = Files.createTempDirectory("mines");
+        try {
+            Path file = directory.resolve("save");
+            // Nothing is written before the autosave is closed
+            MinesAutosave autosave = new MinesAutosave(file, 60_000, 1 << 30);
+            MinesEngine engine = new MinesEngine(new MinesGame(30, 16, 99, new Random(6)), null);
+            engine.setAutosave(autosave);
+            engine.uncover(15, 8);
+            // Queued moves are discarded by the shutdown
+            while (engine.getSnapshot().codeAt(15, 8) == MinesSnapshot.CODE_COVERED) {
+                Thread.sleep(10);
+            }
+            engine.shutdown();
+            assertTrue("Engine must end.", engine.awaitTermination(10000));
+            MinesGame g = new MinesGame(30, 16, 99, new Random(6));
+            g.uncover(15, 8);
+            assertSame(g, new MinesAutosave(file).restore());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testDispose() throws IOException, InterruptedException {
+        System.out.println("Testing widget dispose with a pending save");
+        Path directory = Files.createTempDirectory("mines");
+        try {
+            Path file = directory.resolve("save");
+            MinesWidget widget = new MinesWidget(10, 10, 10);
+            widget.setAutosave(new MinesAutosave(file, 60_000, 1 << 30));
+            widget.setGame(new MinesGame(2000, 2000, 400000, new Random(8)));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (widget.getSnapshot().getWidth() != 2000) {
+                assertTrue("Game not set.", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            // The whole plan waits for the writer
+            long start = System.nanoTime();
+            widget.dispose();
+            long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue("Dispose must not wait for the save: " + millis, millis < 100);
+            assertTrue("Engine must end.", widget.awaitTermination(30000));
+            assertSame(new MinesGame(2000, 2000, 400000, new Random(8)), new MinesAutosave(file).restore());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRate() throws IOException, InterruptedException {
+        System.out.println("Testing autosave write rate");
+        Path directory = Files.createTempDirectory("mines");
+        try {
+            Path file = directory.resolve("save");
+            // Snapshot of about 1 MB, at most 1 MB per second
+            long rate = 1 << 20;
+            MinesAutosave autosave = new MinesAutosave(file, 5, rate);
+            MinesGame g = new MinesGame(1000, 1000, 150000, new Random(5));
+            autosave.attach(g);
+            g.uncover(500, 500);
+            Random r = new Random(6);
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < 1_500_000_000L && g.getState() == MinesGame.STATE_PLAYING) {
+                play(g, r, 1000);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long written = autosave.getBytesWritten();
+            autosave.close();
+            // One snapshot at once and the rate afterwards
+            assertTrue("Write rate exceeded: " + written, written <= 1_000_024 + rate * seconds + 1_000_024);
+            assertSame(g, autosave.restore());
+        } finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesBoardMetricsTest {
+
+    /**
+     * Returns openings, isolated numbers and mine clusters found by flood
+     * fills.
+     */
+    private static int[] bruteForce(MinesPlan p) {
+        int w = p.getWidth();
+        int h = p.getHeight();
+        boolean[] done = new boolean[w * h];
+        int[] result = new int[3];
+        for (int cell = 0; cell < w * h; cell++) {
+            boolean mine = p.isMine(cell);
+            boolean zero = !mine && p.getNumberOfMinesAround(cell) == 0;
+            if (!mine && !zero) {
+                boolean isolated = true;
+                for (int y = Math.max(0, cell / w - 1); y <= Math.min(h - 1, cell / w + 1); y++) {
+                    for (int x = Math.max(0, cell % w - 1); x <= Math.min(w - 1, cell % w + 1); x++) {
+                        isolated &= p.isMineAt(x, y) || p.getNumberOfMines(x, y) != 0;
+                    }
+                }
+                if (isolated) {
+                    result[1]++;
+                }
+                continue;
+            }
+            if (done[cell]) {
+                continue;
+            }
+            result[mine ? 2 : 0]++;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(cell);
+            done[cell] = true;
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                for (int y = Math.max(0, current / w - 1); y <= Math.min(h - 1, current / w + 1); y++) {
+                    for (int x = Math.max(0, current % w - 1); x <= Math.min(w - 1, current % w + 1); x++) {
+                        int next = p.index(x, y);
+                        boolean same = mine ? p.isMine(next) : !p.isMine(next) && p.getNumberOfMinesAround(next) == 0;
+                        if (same && !done[next]) {
+                            done[next] = true;
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void check(MinesPlan p) {
+        int[] expected = bruteForce(p);
+        MinesBoardMetrics m = MinesBoardMetrics.compute(p);
+        String size = p.getWidth() + "x" + p.getHeight();
+        assertEquals("Wrong openings on " + size, expected[0], m.getOpenings());
+        assertEquals("Wrong isolated numbers on " + size, expected[1], m.getIsolatedNumbers());
+        assertEquals("Wrong mine clusters on " + size, expected[2], m.getMineClusters());
+        assertEquals("Wrong 3BV on " + size, expected[0] + expected[1], m.get3BV());
+    }
+
+    @Test
+    public void testSmall() {
+        System.out.println("Testing board metrics");
+        // Mines in the corners: one opening, no isolated number
+        MinesPlan p = new MinesPlan(5, 4);
+        p.setMineAt(0, 0);
+        p.setMineAt(4, 3);
+        MinesBoardMetrics m = MinesBoardMetrics.compute(p);
+        assertEquals("One opening expected.", 1, m.getOpenings());
+        assertEquals("No isolated number expected.", 0, m.getIsolatedNumbers());
+        assertEquals("Two clusters expected.", 2, m.getMineClusters());
+        assertEquals("One click should clear the plan.", 1, m.get3BV());
+        // A wall of mines makes two openings
+        p = new MinesPlan(5, 4);
+        for (int y = 0; y < 4; y++) {
+            p.setMineAt(2, y);
+        }
+        m = MinesBoardMetrics.compute(p);
+        assertEquals("Two openings expected.", 2, m.getOpenings());
+        assertEquals("One cluster expected.", 1, m.getMineClusters());
+        // Checkerboard of mines has only isolated numbers
+        p = new MinesPlan(4, 4);
+        for (int cell = 0; cell < 16; cell++) {
+            if ((cell % 4 + cell / 4) % 2 == 0) {
+                p.setMineAt(cell % 4, cell / 4);
+            }
+        }
+        m = MinesBoardMetrics.compute(p);
+        assertEquals("No opening expected.", 0, m.getOpenings());
+        assertEquals("Every number is isolated.", 8, m.get3BV());
+        assertEquals("Diagonal mines are one cluster.", 1, m.getMineClusters());
+        assertEquals("Clicks per 3BV expected.", 1.5, m.getEfficiency(12), 0);
+    }
+
+    @Test
+    public void testRandom() {
+        System.out.println("Testing board metrics on random plans");
+        Random r = new Random(8);
+        int[][] sizes = {{2, 2}, {9, 9}, {16, 16}, {30, 16}, {2, 50}, {200, 3}, {100, 100}};
+        for (int[] size : sizes) {
+            for (int i = 0; i < 10; i++) {
+                MinesPlan p = new MinesPlan(size[0], size[1]);
+                double density = r.nextDouble() * 0.4;
+                for (int cell = 0; cell < size[0] * size[1]; cell++) {
+                    if (r.nextDouble() < density) {
+                        p.setMineAt(cell % size[0], cell / size[0]);
+                    }
+                }
+                check(p);
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        System.out.println("Testing board metrics of a big plan");
+        // Long snakes of mines and openings cross many bands
+        MinesGame g = new MinesGame(1100, 1000, 180000, new Random(3));
+        check(g.getPlan());
+        MinesPlan p = new MinesPlan(1030, 1030);
+        for (int y = 0; y < 1030; y++) {
+            for (int x = 0; x < 1030; x++) {
+                if (x % 4 == 0 && y % 200 != (x % 8 == 0 ? 0 : 199)) {
+                    p.setMineAt(x, y);
+                }
+            }
+        }
+        check(p);
+    }
+}
@@ -0,0 +1,56 @@
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesBotTest {
+
+    @Test
+    public void testSolve() {
+        System.out.println("Testing bot solve");
+        MinesPlan p = new MinesPlan(6, 6);
+        p.setMineAt(0, 0);
+        MinesGame g = new MinesGame(p);
+        MinesBot bot = new MinesBot(g);
+        assertEquals("Board with one mine must be solved.", MinesGame.STATE_DONE, bot.solve());
+        assertEquals("Only the first click should be needed.", 1, bot.getClicks());
+
+        for (int seed = 0; seed < 20; seed++) {
+            g = new MinesGame(30, 20, 90, new Random(seed));
+            bot = new MinesBot(g);
+            int state = bot.solve();
+            assertTrue("Bot must finish the game.", state == MinesGame.STATE_DONE || state == MinesGame.STATE_EXPLODED);
+            assertTrue("Bot must click at least once.", bot.getClicks() > 0);
+        }
+    }
+
+    @Test
+    public void testDeduction() {
+        System.out.println("Testing bot deduction");
+        // The field between the mines is uncovered after marking the left one
+        MinesPlan p = new MinesPlan(8, 8);
+        p.setMineAt(5, 7);
+        p.setMineAt(7, 7);
+        MinesGame g = new MinesGame(p);
+        MinesBot bot = new MinesBot(g);
+        assertEquals("Board must be solved without guessing.", MinesGame.STATE_DONE, bot.solve());
+        assertEquals("No guess should be needed.", 0, bot.getGuesses());
+        assertTrue("Deduced mine should be marked.", p.isMarkedAt(5, 7));
+    }
+
+    @Test
+    public void testPatterns() {
+        System.out.println("Testing bot deduction by patterns");
+        // Uncovered 1 1 2 1 1 over mines at x = 1 and 3 need a pair of numbers
+        MinesPlan p = new MinesPlan(5, 3);
+        for (int x = 0; x < 5; x++) {
+            p.uncover(x, 0);
+            p.uncover(x, 1);
+        }
+        p.setMineAt(1, 2);
+        p.setMineAt(3, 2);
+        MinesBot bot = new MinesBot(new MinesGame(p));
+        assertEquals("Board must be solved.", MinesGame.STATE_DONE, bot.solve());
+        assertEquals("No guess should be needed.", 0, bot.getGuesses());
+    }
+}
@@ -0,0 +1,93 @@
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesDeltaEncoderTest {
+
+    @Test
+    public void testChanges() {
+        System.out.println("Testing changes from events");
+        MinesPlan p = new MinesPlan(20, 20);
+        for (int x = 0; x < 20; x++) {
+            p.setMineAt(x, 2);
+        }
+        MinesGame g = new MinesGame(p);
+        List<MinesChangeEvent> events = new ArrayList<>();
+        g.addListener(events::add);
+        MinesDeltaEncoder encoder = new MinesDeltaEncoder();
+        encoder.encode(g);
+        g.switchMarked(5, 2);
+        assertArrayEquals("Marked field not reported.", new int[]{45}, events.get(0).getCells());
+        encoder.addChanges(events.get(0));
+        assertEquals("Mark must be a delta.", MinesDeltaEncoder.DELTA, encoder.encode(g)[0]);
+        g.uncover(2, 0);
+        assertEquals("Free area not reported.", 40, events.get(1).getCells().length);
+        g.uncover(0, 2);
+        // The exploded mine and the covered mines without a flag
+        assertEquals("Explosion must show the mines.", 19, events.get(2).getCells().length);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        System.out.println("Testing delta round trip");
+        MinesGame g = new MinesGame(40, 30, 150, new Random(7));
+        MinesDeltaEncoder encoder = new MinesDeltaEncoder();
+        g.addListener(encoder::addChanges);
+        byte[] codes = new byte[40 * 30];
+        byte[] data = encoder.encode(g);
+        assertEquals("First update must be full.", MinesDeltaEncoder.FULL, data[0]);
+        MinesDeltaEncoder.apply(codes, ByteBuffer.wrap(data));
+        g.uncover(20, 15);
+        Random r = new Random(3);
+        boolean delta = false;
+        while (g.getState() == MinesGame.STATE_PLAYING) {
+            int x = r.nextInt(40);
+            int y = r.nextInt(30);
+            if (g.getPlan().isMineAt(x, y)) {
+                if (g.getPlan().isCoveredAt(x, y)) {
+                    g.switchMarked(x, y);
+                }
+            } else if (!g.getPlan().isMarkedAt(x, y)) {
+                g.uncover(x, y);
+            }
+            // Some moves are merged into one update
+            if (r.nextInt(3) == 0) {
+                continue;
+            }
+            if (!encoder.hasUpdate()) {
+                continue;
+            }
+            data = encoder.encode(g);
+            delta |= data[0] == MinesDeltaEncoder.DELTA;
+            MinesDeltaEncoder.apply(codes, ByteBuffer.wrap(data));
+            MinesSnapshot s = g.snapshot();
+            for (int i = 0; i < codes.length; i++) {
+                assertEquals("Field " + i + " differs.", s.codeAt(i), codes[i]);
+            }
+        }
+        assertTrue("No delta was used.", delta);
+    }
+
+    @Test
+    public void testFull() {
+        System.out.println("Testing full update choice");
+        MinesDeltaEncoder encoder = new MinesDeltaEncoder();
+        MinesGame g = new MinesGame(10, 10, 5, new Random(1));
+        encoder.encode(g);
+        assertFalse("Update without changes.", encoder.hasUpdate());
+        encoder.addChanges(new int[]{1, 2, 3}, 100);
+        assertEquals("Small change must be a delta.", MinesDeltaEncoder.DELTA, encoder.encode(g)[0]);
+        int[] many = new int[40];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = i * 2;
+        }
+        encoder.addChanges(many, 100);
+        assertEquals("Big change must be full.", MinesDeltaEncoder.FULL, encoder.encode(g)[0]);
+        encoder.addChanges(null, 100);
+        assertEquals("Unknown change must be full.", MinesDeltaEncoder.FULL, encoder.encode(g)[0]);
+    }
+}
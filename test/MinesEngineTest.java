@@ -0,0 +1,113 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesEngineTest {
+
+    private static boolean same(MinesSnapshot a, MinesSnapshot b) {
+        if (a.getState() != b.getState() || a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return false;
+        }
+        for (int i = 0; i < a.getWidth() * a.getHeight(); i++) {
+            if (a.codeAt(i) != b.codeAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testSnapshots() throws InterruptedException {
+        System.out.println("Testing engine moves and published snapshots");
+        MinesGame reference = new MinesGame(30, 20, 80, new Random(1));
+        List<MinesSnapshot> published = new ArrayList<>();
+        MinesEngine engine = new MinesEngine(new MinesGame(30, 20, 80, new Random(1)), snapshot -> {
+            synchronized (published) {
+                published.add(snapshot);
+                published.notifyAll();
+            }
+        });
+        try {
+            engine.setProgressive(false);
+            assertTrue("First snapshot is the new game.", same(reference.snapshot(), engine.getSnapshot()));
+            Random r = new Random(2);
+            for (int i = 0; i < 30 && reference.getState() == MinesGame.STATE_PLAYING; i++) {
+                int x = r.nextInt(30);
+                int y = r.nextInt(20);
+                if (i % 3 == 2 && reference.getPlan().isCoveredAt(x, y)) {
+                    reference.switchMarked(x, y);
+                    engine.switchMarked(x, y);
+                } else {
+                    reference.uncover(x, y);
+                    engine.uncover(x, y);
+                }
+            }
+            MinesSnapshot expected = reference.snapshot();
+            synchronized (published) {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (published.isEmpty() || !same(expected, published.get(published.size() - 1))) {
+                    assertTrue("Last published snapshot differs.", System.currentTimeMillis() < deadline);
+                    published.wait(100);
+                }
+            }
+            assertTrue("Engine snapshot differs.", same(expected, engine.getSnapshot()));
+
+            engine.newGame(8, 6, 5);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (engine.getSnapshot().getWidth() != 8) {
+                assertTrue("New game not published.", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            assertEquals("New game should be in play.", MinesGame.STATE_PLAYING, engine.getSnapshot().getState());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        System.out.println("Testing engine shutdown");
+        MinesEngine engine = new MinesEngine(new MinesGame(10, 10, 10, new Random(3)), null);
+        engine.uncover(5, 5);
+        // A long move is not waited for
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicBoolean released = new AtomicBoolean();
+        engine.submit(() -> {
+            started.set(true);
+            while (!released.get()) {
+                Thread.onSpinWait();
+            }
+        });
+        while (!started.get()) {
+            Thread.sleep(1);
+        }
+        long start = System.nanoTime();
+        engine.shutdown();
+        assertTrue("Shutdown must not wait for the move.", System.nanoTime() - start < 500_000_000L);
+        assertFalse("Engine must finish the move.", engine.awaitTermination(50));
+        released.set(true);
+        assertTrue("Engine must end.", engine.awaitTermination(5000));
+        MinesSnapshot last = engine.getSnapshot();
+        try {
+            engine.uncover(0, 0);
+            fail("Stopped engine must not take moves.");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertSame("Stopped engine must not publish.", last, engine.getSnapshot());
+
+        MinesWidget widget = new MinesWidget(10, 10, 10);
+        widget.dispose();
+        assertTrue("Widget engine must end.", widget.awaitTermination(5000));
+        try {
+            widget.newGame(5, 5, 4);
+            fail("Disposed widget must not take moves.");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,114 @@
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesEstimatorTest {
+
+    @Test
+    public void testCoinFlip() {
+        System.out.println("Testing estimate of a coin flip");
+        // 1 1 ? / 1 1 ? with the mine at (2, 0) or (2, 1)
+        MinesPlan p = new MinesPlan(3, 2);
+        p.setMineAt(2, 0);
+        p.uncover(0, 0);
+        p.uncover(1, 0);
+        p.uncover(0, 1);
+        p.uncover(1, 1);
+        MinesGame g = new MinesGame(p);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MinesEstimate e = new MinesEstimator(pool).estimate(g, 2000, 20000);
+            assertTrue("Run should be finished.", e.isFinished());
+            assertEquals("All samples should be made.", 2000, e.getSamples());
+            assertTrue("Interval should hold the estimate.", e.getWinLow() <= e.getWinProbability() && e.getWinProbability() <= e.getWinHigh());
+            // Six standard deviations of 2000 samples
+            assertEquals("Win probability should be about 1/2.", 0.5, e.getWinProbability(), 0.07);
+            assertTrue("Interval should be narrow.", e.getWinHigh() - e.getWinLow() < 0.1);
+            assertEquals("Mine probabilities should add up.", 1.0, e.getMineProbability(2) + e.getMineProbability(5), 1e-9);
+            assertEquals("Mine probability should be about 1/2.", 0.5, e.getMineProbability(2), 0.07);
+            assertTrue("Interval should hold the mine probability.", e.getMineLow(2) <= e.getMineProbability(2) && e.getMineProbability(2) <= e.getMineHigh(2));
+            assertEquals("Uncovered field has no mine.", 0.0, e.getMineProbability(0), 0);
+            int best = e.getBestMove();
+            assertTrue("Best move should be covered.", best == 2 || best == 5);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testExactProbabilities() {
+        System.out.println("Testing estimate against exact mine probabilities");
+        // ? ? ? 1 / ? 2 2 ? / ? ? ? ? with three mines has 12 layouts, the
+        // mine of the 1 is at (3, 1) in 9 of them and at (2, 0) in 3
+        MinesPlan p = new MinesPlan(4, 3);
+        p.setMineAt(0, 0);
+        p.setMineAt(3, 1);
+        p.setMineAt(1, 2);
+        p.uncover(3, 0);
+        p.uncover(1, 1);
+        p.uncover(2, 1);
+        MinesGame g = new MinesGame(p);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MinesEstimate e = new MinesEstimator(pool).estimate(g, 20000, 20000);
+            assertEquals("All samples should be made.", 20000, e.getSamples());
+            double[] exact = {4 / 12.0, 3 / 12.0, 3 / 12.0, 0, 4 / 12.0, 0, 0, 9 / 12.0, 4 / 12.0, 3 / 12.0, 3 / 12.0, 3 / 12.0};
+            for (int cell = 0; cell < exact.length; cell++) {
+                assertEquals("Wrong mine probability of field " + cell + ".", exact[cell], e.getMineProbability(cell), 0.02);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSafeMove() {
+        System.out.println("Testing estimate of a decided game");
+        // Only the top left corner is covered, the zeros at (2, 0) and (0, 2)
+        // leave the mine in the corner
+        MinesPlan p = new MinesPlan(3, 3);
+        p.setMineAt(0, 0);
+        for (int cell = 0; cell < 9; cell++) {
+            if (cell != 0 && cell != 1 && cell != 3) {
+                p.uncover(cell);
+            }
+        }
+        MinesGame g = new MinesGame(p);
+        MinesEstimate e = new MinesEstimator().estimate(g, 500, 20000);
+        assertEquals("All samples should be made.", 500, e.getSamples());
+        assertEquals("Mine in the corner is known.", 1.0, e.getMineProbability(0), 0);
+        assertEquals("Field next to the mine is safe.", 0.0, e.getMineProbability(1), 0);
+        assertEquals("Field below the mine is safe.", 0.0, e.getMineProbability(3), 0);
+        assertTrue("Best move should be safe.", e.getBestMove() == 1 || e.getBestMove() == 3);
+        assertEquals("Bot should always win.", 500, e.getWins());
+        assertEquals("Interval should reach 1.", 1.0, e.getWinHigh(), 1e-9);
+        assertTrue("Interval should be narrow.", e.getWinLow() > 0.99);
+    }
+
+    @Test
+    public void testBudget() {
+        System.out.println("Testing estimate time limit");
+        MinesGame g = new MinesGame(300, 300, 18000, new Random(5));
+        g.uncover(150, 150);
+        while (g.getState() != MinesGame.STATE_PLAYING) {
+            g = new MinesGame(300, 300, 18000);
+            g.uncover(150, 150);
+        }
+        AtomicInteger reports = new AtomicInteger();
+        long start = System.nanoTime();
+        MinesEstimate e = new MinesEstimator().estimate(g, Integer.MAX_VALUE, 500, estimate -> {
+            assertFalse("Report should not be final.", estimate.isFinished());
+            reports.incrementAndGet();
+        });
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("Time limit should be kept: " + millis, millis < 3000);
+        assertTrue("Run should be finished.", e.isFinished());
+        assertTrue("Some samples should be made.", e.getSamples() > 0);
+        assertTrue("Not all samples can be made.", e.getSamples() < Integer.MAX_VALUE);
+        assertTrue("Progress should be reported.", reports.get() > 0);
+        assertTrue("Interval should hold the estimate.", e.getWinLow() <= e.getWinProbability() && e.getWinProbability() <= e.getWinHigh());
+    }
+}
@@ -0,0 +1,90 @@
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesFrontierTest {
+
+    private static int[] bruteFrontier(MinesPlan p) {
+        int w = p.getWidth();
+        int h = p.getHeight();
+        int[] result = new int[w * h];
+        int count = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (!p.isCoveredAt(x, y) || p.isMarkedAt(x, y)) {
+                    continue;
+                }
+                boolean next = false;
+                for (int j = Math.max(0, y - 1); j <= Math.min(h - 1, y + 1); j++) {
+                    for (int i = Math.max(0, x - 1); i <= Math.min(w - 1, x + 1); i++) {
+                        next |= !p.isCoveredAt(i, j);
+                    }
+                }
+                if (next) {
+                    result[count++] = p.index(x, y);
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static void check(MinesGame g) {
+        int[] frontier = g.getFrontier().toArray();
+        Arrays.sort(frontier);
+        assertArrayEquals("Frontier differs from the plan.", bruteFrontier(g.getPlan()), frontier);
+        for (int cell : frontier) {
+            assertTrue("Frontier field not found.", g.getFrontier().contains(cell));
+        }
+    }
+
+    @Test
+    public void testGames() {
+        System.out.println("Testing frontier during games");
+        Random r = new Random(4);
+        for (int seed = 0; seed < 10; seed++) {
+            MinesGame g = new MinesGame(24, 17, 50, new Random(seed));
+            assertEquals("Frontier of a new game must be empty.", 0, g.getFrontier().size());
+            g.startUncover(r.nextInt(24), r.nextInt(17));
+            while (g.revealStep(5) > 0) {
+                check(g);
+            }
+            while (g.getState() == MinesGame.STATE_PLAYING) {
+                MinesFrontier frontier = g.getFrontier();
+                int cell = frontier.get(r.nextInt(frontier.size()));
+                int x = cell % 24;
+                int y = cell / 24;
+                if (g.getPlan().isMineAt(x, y) && r.nextInt(4) > 0) {
+                    g.switchMarked(x, y);
+                    if (r.nextBoolean()) {
+                        g.switchMarked(x, y);
+                    }
+                } else {
+                    g.uncover(x, y);
+                }
+                check(g);
+            }
+        }
+    }
+
+    @Test
+    public void testSetPlan() {
+        System.out.println("Testing frontier of a new plan");
+        MinesGame g = new MinesGame(10, 10, 10, new Random(1));
+        g.uncover(5, 5);
+        MinesFrontier frontier = g.getFrontier();
+        MinesPlan p = new MinesPlan(6, 6);
+        p.setMineAt(0, 0);
+        p.uncover(5, 5);
+        p.uncover(2, 0);
+        g.setPlan(p);
+        assertSame("Frontier must stay the same object.", frontier, g.getFrontier());
+        check(g);
+        try {
+            frontier.get(frontier.size());
+            fail("Place after the last field allowed.");
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+}
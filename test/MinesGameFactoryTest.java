@@ -0,0 +1,58 @@
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesGameFactoryTest {
+
+    private static void waitReady(MinesGameFactory f, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (f.getNumberOfReady() < count) {
+            assertTrue("Games not prepared.", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testPrepare() throws InterruptedException {
+        System.out.println("Testing game factory");
+        MinesGameFactory f = new MinesGameFactory(2);
+        f.configure(12, 8, 20);
+        waitReady(f, 2);
+        MinesGame g = f.poll(12, 8, 20);
+        assertNotNull("Ready game not returned.", g);
+        assertEquals("Wrong width.", 12, g.getPlan().getWidth());
+        assertEquals("Wrong height.", 8, g.getPlan().getHeight());
+        assertEquals("Wrong number of mines.", 20, g.getPlan().getNumberOfMines());
+        assertNotSame("Game returned twice.", g, f.poll(12, 8, 20));
+        waitReady(f, 2);
+
+        // A big game is given up when the settings change during its build
+        f.configure(5000, 5000, 10000000);
+        assertEquals("Games of old settings kept.", 0, f.getNumberOfReady());
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        assertNull("Game of old settings returned.", f.poll(6, 5, 3));
+        waitReady(f, 2);
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("Old build must be given up: " + millis, millis < 300);
+        Thread.sleep(100);
+        assertEquals("Too many games prepared.", 2, f.getNumberOfReady());
+        for (int i = 0; i < 2; i++) {
+            g = f.poll(6, 5, 3);
+            assertEquals("Game of old settings returned.", 6, g.getPlan().getWidth());
+        }
+        f.shutdown();
+    }
+
+    @Test
+    public void testBadSettings() throws InterruptedException {
+        System.out.println("Testing game factory with bad settings");
+        MinesGameFactory f = new MinesGameFactory(1);
+        f.configure(5, 5, 30);
+        Thread.sleep(100);
+        assertNull("Game with too many mines prepared.", f.poll(5, 5, 30));
+        f.configure(5, 5, 3);
+        waitReady(f, 1);
+        f.shutdown();
+    }
+}
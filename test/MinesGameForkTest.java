@@ -0,0 +1,92 @@
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesGameForkTest {
+
+    private static void assertSnapshot(String message, MinesSnapshot expected, MinesSnapshot actual) {
+        assertEquals(message, expected.getState(), actual.getState());
+        for (int i = 0; i < expected.getWidth() * expected.getHeight(); i++) {
+            assertEquals(message + " Field " + i, expected.codeAt(i), actual.codeAt(i));
+        }
+    }
+
+    private static void play(MinesGame g, Random r, int moves) {
+        int w = g.getPlan().getWidth();
+        int h = g.getPlan().getHeight();
+        for (int i = 0; i < moves && g.getState() == MinesGame.STATE_PLAYING; i++) {
+            int x = r.nextInt(w);
+            int y = r.nextInt(h);
+            if (!g.getPlan().isCoveredAt(x, y)) {
+                continue;
+            }
+            if (r.nextInt(4) == 0) {
+                g.switchMarked(x, y);
+            } else if (!g.getPlan().isMarkedAt(x, y) && !g.getPlan().isMineAt(x, y)) {
+                g.uncover(x, y);
+            }
+        }
+    }
+
+    @Test
+    public void testIndependent() {
+        System.out.println("Testing independent forks");
+        // Bigger than one chunk of the shared layers
+        MinesGame g = new MinesGame(150, 100, 1500, new Random(1));
+        g.uncover(75, 50);
+        MinesSnapshot before = g.snapshot();
+        MinesGame f = g.fork();
+        assertSnapshot("Fork differs.", before, f.snapshot());
+        play(f, new Random(2), 300);
+        assertSnapshot("Parent changed by the fork.", before, g.snapshot());
+        MinesSnapshot forked = f.snapshot();
+        MinesGame f2 = f.fork();
+        play(g, new Random(3), 300);
+        play(f2, new Random(4), 300);
+        assertSnapshot("Fork changed by the parent.", forked, f.snapshot());
+
+        // The same moves give the same game on a fork and a copy
+        MinesGame copy = new MinesGame(150, 100, 1500, new Random(1));
+        copy.uncover(75, 50);
+        play(copy, new Random(2), 300);
+        assertSnapshot("Fork plays differently.", copy.snapshot(), forked);
+        assertEquals("Wrong number of covered fields.", copy.getPlan().getNumberOfCovered(), f.getPlan().getNumberOfCovered());
+        assertEquals("Wrong frontier.", copy.getFrontier().size(), f.getFrontier().size());
+    }
+
+    @Test
+    public void testFirstClick() {
+        System.out.println("Testing fork before the first click");
+        MinesGame g = new MinesGame(20, 20, 390, new Random(5));
+        MinesPlan p = g.getPlan();
+        boolean[] mines = new boolean[400];
+        for (int i = 0; i < 400; i++) {
+            mines[i] = p.isMine(i);
+        }
+        MinesGame f = g.fork();
+        f.uncover(10, 10);
+        assertFalse("First click on a mine.", f.getPlan().isMine(210));
+        for (int i = 0; i < 400; i++) {
+            assertEquals("Mine of the parent moved.", mines[i], p.isMine(i));
+            assertTrue("Parent uncovered.", p.isCovered(i));
+        }
+        assertEquals("Wrong number of mines.", 390, f.getPlan().getNumberOfMines());
+    }
+
+    @Test
+    public void testRelease() {
+        System.out.println("Testing fork of a pooled plan");
+        BoardBufferPool pool = new BoardBufferPool(8);
+        MinesGame g = new MinesGame(new MinesPlan(100, 100, pool), 300, new Random(6));
+        g.uncover(50, 50);
+        MinesGame f = g.fork();
+        MinesSnapshot forked = f.snapshot();
+        g.getPlan().release();
+        // New plans get the free buffers and change them
+        MinesGame other = new MinesGame(new MinesPlan(100, 100, pool), 9000, new Random(7));
+        other.getPlan().uncoverAll();
+        assertSnapshot("Fork changed by the released parent.", forked, f.snapshot());
+        play(f, new Random(8), 100);
+    }
+}
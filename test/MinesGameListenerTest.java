@@ -0,0 +1,214 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesGameListenerTest {
+
+    /**
+     * Display codes kept up to date by events only.
+     */
+    private static class Mirror implements MinesGameListener {
+
+        final byte[] codes;
+        int state;
+        int events;
+        int fullEvents;
+
+        Mirror(MinesSnapshot s) {
+            codes = new byte[s.getWidth() * s.getHeight()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = (byte) s.codeAt(i);
+            }
+            state = s.getState();
+        }
+
+        @Override
+        public void gameChanged(MinesChangeEvent event) {
+            events++;
+            assertEquals("Old state differs.", state, event.getOldState());
+            if (event.isFull()) {
+                fullEvents++;
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = (byte) event.getSnapshot().codeAt(i);
+                }
+            } else {
+                int[] cells = event.getCells();
+                for (int i = 0; i < cells.length; i++) {
+                    assertEquals("Old code differs.", codes[cells[i]], event.getOldCodes()[i]);
+                    codes[cells[i]] = event.getNewCodes()[i];
+                }
+            }
+            state = event.getNewState();
+        }
+
+        void check(MinesSnapshot s) {
+            assertEquals("State differs.", s.getState(), state);
+            for (int i = 0; i < codes.length; i++) {
+                assertEquals("Code differs at " + i, s.codeAt(i), codes[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testEvents() {
+        System.out.println("Testing change events");
+        Random r = new Random(2);
+        for (int seed = 0; seed < 10; seed++) {
+            MinesGame g = new MinesGame(30, 20, 60, new Random(seed));
+            Mirror mirror = new Mirror(g.snapshot());
+            g.addListener(mirror);
+            g.startUncover(15, 10);
+            int steps = 0;
+            while (g.revealStep(20) > 0) {
+                steps++;
+            }
+            assertEquals("Every part must be one event.", steps + 1, mirror.events);
+            mirror.check(g.snapshot());
+            while (g.getState() == MinesGame.STATE_PLAYING) {
+                int x = r.nextInt(30);
+                int y = r.nextInt(20);
+                int events = mirror.events;
+                if (!g.getPlan().isCoveredAt(x, y)) {
+                    continue;
+                }
+                if (r.nextInt(3) == 0) {
+                    g.switchMarked(x, y);
+                    assertEquals("Mark must be one event.", events + 1, mirror.events);
+                } else if (!g.getPlan().isMarkedAt(x, y)) {
+                    g.uncover(x, y);
+                    assertEquals("Uncover must be one event.", events + 1, mirror.events);
+                }
+                mirror.check(g.snapshot());
+            }
+            int events = mirror.events;
+            g.uncover(0, 0);
+            assertEquals("Finished game must not change.", events, mirror.events);
+        }
+    }
+
+    @Test
+    public void testFull() {
+        System.out.println("Testing full change events");
+        MinesGame g = new MinesGame(300, 200, 10, new Random(3));
+        Mirror mirror = new Mirror(g.snapshot());
+        g.addListener(mirror);
+        g.uncover(150, 100);
+        assertEquals("Big cascade must be a full event.", 1, mirror.fullEvents);
+        mirror.check(g.snapshot());
+        MinesPlan p = new MinesPlan(300, 200);
+        p.setMineAt(5, 5);
+        g.setPlan(p);
+        assertEquals("New plan must be a full event.", 2, mirror.fullEvents);
+        mirror.check(g.snapshot());
+        g.removeListener(mirror);
+        g.switchMarked(0, 0);
+        assertEquals("Removed listener called.", 2, mirror.events);
+    }
+
+    @Test
+    public void testDispatcher() throws InterruptedException {
+        System.out.println("Testing event dispatcher");
+        MinesGame g = new MinesGame(30, 20, 1, new Random(4));
+        Mirror mirror = new Mirror(g.snapshot());
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<MinesChangeEvent> received = new ArrayList<>();
+        MinesEventDispatcher dispatcher = new MinesEventDispatcher(event -> {
+            try {
+                taken.countDown();
+                start.await();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            synchronized (received) {
+                mirror.gameChanged(event);
+                received.add(event);
+                received.notifyAll();
+            }
+        }, 2);
+        g.addListener(dispatcher);
+        g.switchMarked(0, 19);
+        // The first event is held by the listener, the rest fills the queue
+        assertTrue("Event not taken.", taken.await(5, TimeUnit.SECONDS));
+        for (int x = 1; x < 30; x++) {
+            g.switchMarked(x, 19);
+        }
+        MinesSnapshot expected = g.snapshot();
+        start.countDown();
+        synchronized (received) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.isEmpty() || !received.get(received.size() - 1).isFull()) {
+                assertTrue("Events not dispatched.", System.currentTimeMillis() < deadline);
+                received.wait(100);
+            }
+            assertTrue("Events must be merged.", received.size() <= 3);
+            mirror.check(expected);
+        }
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testEngine() throws InterruptedException {
+        System.out.println("Testing engine snapshots from events");
+        MinesGame reference = new MinesGame(40, 30, 150, new Random(5));
+        MinesEngine engine = new MinesEngine(new MinesGame(40, 30, 150, new Random(5)), null);
+        engine.setProgressive(false);
+        Random r = new Random(6);
+        for (int i = 0; i < 40; i++) {
+            int x = r.nextInt(40);
+            int y = r.nextInt(30);
+            if (i % 4 == 3 && reference.getPlan().isCoveredAt(x, y)) {
+                reference.switchMarked(x, y);
+                engine.switchMarked(x, y);
+            } else {
+                reference.uncover(x, y);
+                engine.uncover(x, y);
+            }
+        }
+        MinesSnapshot expected = reference.snapshot();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!same(expected, engine.getSnapshot())) {
+            assertTrue("Engine snapshot differs.", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        engine.shutdown();
+    }
+
+    @Test
+    public void testSnapshotChanges() {
+        System.out.println("Testing snapshot with changes");
+        MinesGame g = new MinesGame(300, 200, 500, new Random(7));
+        MinesSnapshot before = g.snapshot();
+        // Fields in the first, a middle and the last tile, one twice
+        int[] cells = {0, 4095, 4096, 30000, 59999, 30000};
+        byte[] codes = {1, 2, 3, 4, 5, 6};
+        MinesSnapshot after = before.withChanges(MinesGame.STATE_PLAYING, cells, codes, cells.length);
+        for (int i = 0; i < 300 * 200; i++) {
+            assertEquals("Old snapshot changed.", MinesSnapshot.CODE_COVERED, before.codeAt(i));
+        }
+        assertEquals("Wrong code.", 1, after.codeAt(0));
+        assertEquals("Wrong code.", 2, after.codeAt(4095));
+        assertEquals("Wrong code.", 3, after.codeAt(196, 13));
+        assertEquals("Last change must win.", 6, after.codeAt(30000));
+        assertEquals("Wrong code.", 5, after.codeAt(299, 199));
+        assertEquals("Unchanged field differs.", MinesSnapshot.CODE_COVERED, after.codeAt(4097));
+        assertEquals("Unchanged field differs.", MinesSnapshot.CODE_COVERED, after.codeAt(50000));
+    }
+
+    private static boolean same(MinesSnapshot a, MinesSnapshot b) {
+        if (a.getState() != b.getState()) {
+            return false;
+        }
+        for (int i = 0; i < a.getWidth() * a.getHeight(); i++) {
+            if (a.codeAt(i) != b.codeAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
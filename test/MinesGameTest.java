@@ -236,5 +236,79 @@ public class MinesGameTest {
         g.uncover(1, 3);
         assertTrue("It should be not allowed to uncover field after game is over.",p.isCoveredAt(2, 3));
     }
-    
+
+    @Test
+    public void testSnapshot() {
+        System.out.println("snapshot");
+        MinesPlan p = new MinesPlan(3, 3);
+        p.coverAll();
+        p.clearAllMarks();
+        p.clearAllMines();
+        p.setMineAt(0, 0);
+        p.setMineAt(2, 2);
+        MinesGame g = new MinesGame(p);
+        g.uncover(1, 1);
+        g.switchMarked(0, 0);
+        MinesSnapshot s = g.snapshot();
+        assertEquals("Wrong snapshot width", 3, s.getWidth());
+        assertEquals("Wrong snapshot height", 3, s.getHeight());
+        assertEquals("Wrong snapshot state", MinesGame.STATE_PLAYING, s.getState());
+        assertEquals("Uncovered field must show number of mines", 2, s.codeAt(1, 1));
+        assertEquals("Marked field must show flag", MinesSnapshot.CODE_FLAG, s.codeAt(0, 0));
+        assertEquals("Covered field must be covered", MinesSnapshot.CODE_COVERED, s.codeAt(2, 2));
+        assertEquals("Flat index must match coordinates", s.codeAt(1, 1), s.codeAt(4));
+
+        g.switchMarked(0, 0);
+        g.switchMarked(1, 0);
+        g.uncover(2, 2);
+        s = g.snapshot();
+        assertEquals("Wrong snapshot state", MinesGame.STATE_EXPLODED, s.getState());
+        assertEquals("Uncovered mine must be exploded", MinesSnapshot.CODE_EXPLODED, s.codeAt(2, 2));
+        assertEquals("Covered mine must be shown after explosion", MinesSnapshot.CODE_MINE, s.codeAt(0, 0));
+        assertEquals("Wrong flag must be shown after explosion", MinesSnapshot.CODE_WRONG_FLAG, s.codeAt(1, 0));
+    }
+
+    @Test
+    public void testRevealStep() {
+        System.out.println("revealStep");
+        MinesPlan p = new MinesPlan(30, 30);
+        p.coverAll();
+        p.clearAllMarks();
+        p.clearAllMines();
+        p.setMineAt(29, 29);
+        MinesGame g = new MinesGame(p);
+        g.startUncover(0, 0);
+        assertTrue("Free area should be queued.", g.isRevealing());
+        assertEquals("Only the clicked field should be uncovered.", 899, p.getNumberOfCovered());
+        int steps = 0;
+        while (g.isRevealing()) {
+            assertTrue("Step must not take more fields than allowed.", g.revealStep(10) <= 10);
+            assertTrue("Game must not explode between steps.", g.getState() != MinesGame.STATE_EXPLODED);
+            steps++;
+        }
+        assertTrue("Big area should take several steps.", steps > 1);
+        assertEquals("All free fields should be uncovered.", MinesGame.STATE_DONE, g.getState());
+        assertEquals("Step with empty queue should do nothing.", 0, g.revealStep(10));
+    }
+
+    @Test
+    public void testRevealStopsOnExplosion() {
+        System.out.println("revealStep after explosion");
+        MinesPlan p = new MinesPlan(30, 30);
+        p.coverAll();
+        p.clearAllMarks();
+        p.clearAllMines();
+        p.setMineAt(29, 29);
+        p.setMineAt(29, 0);
+        MinesGame g = new MinesGame(p);
+        g.startUncover(0, 0);
+        g.revealStep(10);
+        assertTrue("Free area should still be queued.", g.isRevealing());
+        g.startUncover(29, 29);
+        assertEquals("Game should be exploded.", MinesGame.STATE_EXPLODED, g.getState());
+        assertFalse("Queue should be dropped after explosion.", g.isRevealing());
+        int covered = p.getNumberOfCovered();
+        assertEquals("Step after explosion should do nothing.", 0, g.revealStep(10));
+        assertEquals("No field may be uncovered after explosion.", covered, p.getNumberOfCovered());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesPatternsTest {
+
+    @Test
+    public void testResource() throws IOException {
+        System.out.println("Testing pattern resource");
+        int[] table = MinesPatternGenerator.build();
+        MinesPatterns patterns = MinesPatterns.getDefault();
+        for (int key = 0; key < table.length; key++) {
+            assertEquals("Resource differs from the generator at " + key, table[key], patterns.get(key));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MinesPatternGenerator.write(table, out);
+        MinesPatterns read = MinesPatterns.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("Written table differs.", table[0x1234], read.get(0x1234));
+    }
+
+    @Test
+    public void testWall() {
+        System.out.println("Testing 1-2-1 wall");
+        // Two top rows uncovered: 1 1 2 1 1 above mines at x = 1 and 3
+        for (boolean vertical : new boolean[]{false, true}) {
+            MinesPlan p = vertical ? new MinesPlan(3, 5) : new MinesPlan(5, 3);
+            for (int i = 0; i < 5; i++) {
+                if (vertical) {
+                    p.uncover(0, i);
+                    p.uncover(1, i);
+                } else {
+                    p.uncover(i, 0);
+                    p.uncover(i, 1);
+                }
+            }
+            p.setMineAt(vertical ? 2 : 1, vertical ? 1 : 2);
+            p.setMineAt(vertical ? 2 : 3, vertical ? 3 : 2);
+            int[] result = new int[10];
+            int first = vertical ? 1 * 3 + 1 : 1 * 5 + 1;
+            assertEquals("Wrong number of forced fields.", 2, MinesPatterns.getDefault().deduce(p, first, vertical, result));
+            int safe = vertical ? 0 * 3 + 2 : 2 * 5 + 0;
+            int mine = vertical ? 3 * 3 + 2 : 2 * 5 + 3;
+            assertEquals("Safe field not found.", safe, result[0]);
+            assertEquals("Mine not found.", -1 - mine, result[1]);
+            assertEquals("Single number is no pair.", 0, MinesPatterns.getDefault().deduce(p, first + (vertical ? 9 : 3), vertical, result));
+        }
+    }
+
+    @Test
+    public void testSound() {
+        System.out.println("Testing forced fields in games");
+        Random r = new Random(1);
+        int[] result = new int[10];
+        int found = 0;
+        for (int seed = 0; seed < 30; seed++) {
+            MinesGame g = new MinesGame(30, 16, 99, new Random(seed));
+            MinesPlan p = g.getPlan();
+            g.uncover(15, 8);
+            for (int i = 0; i < 40 && g.getState() == MinesGame.STATE_PLAYING; i++) {
+                int cell = r.nextInt(30 * 16);
+                if (!p.isCovered(cell)) {
+                    continue;
+                }
+                // Only right flags, taken for mines by the patterns
+                if (p.isMine(cell)) {
+                    g.switchMarked(cell % 30, cell / 30);
+                } else {
+                    g.uncover(cell % 30, cell / 30);
+                }
+            }
+            for (int cell = 0; cell < 30 * 16; cell++) {
+                for (boolean vertical : new boolean[]{false, true}) {
+                    int count = MinesPatterns.getDefault().deduce(p, cell, vertical, result);
+                    for (int i = 0; i < count; i++) {
+                        int field = result[i] >= 0 ? result[i] : -1 - result[i];
+                        assertTrue("Forced field is not covered.", p.isCovered(field) && !p.isMarked(field));
+                        assertEquals("Wrong forced field.", result[i] < 0, p.isMine(field));
+                        found++;
+                    }
+                }
+            }
+        }
+        assertTrue("No forced field found.", found > 100);
+    }
+}
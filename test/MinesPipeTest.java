@@ -0,0 +1,130 @@
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesPipeTest {
+
+    private static void assertCodes(MinesGame expected, byte[] codes) {
+        MinesSnapshot snapshot = expected.snapshot();
+        for (int cell = 0; cell < codes.length; cell++) {
+            assertEquals("Wrong code at " + cell, snapshot.codeAt(cell), codes[cell]);
+        }
+    }
+
+    /**
+     * Applies a text answer to the codes of a 9x9 board.
+     */
+    private static void apply(String line, byte[] codes) {
+        String[] words = line.split(" ");
+        if (words[0].equals("board")) {
+            for (int cell = 0; cell < codes.length; cell++) {
+                codes[cell] = (byte) Character.digit(words[4].charAt(cell), 16);
+            }
+            return;
+        }
+        for (int i = 2; i + 2 < words.length; i += 3) {
+            codes[Integer.parseInt(words[i + 1]) * 9 + Integer.parseInt(words[i])] = Byte.parseByte(words[i + 2]);
+        }
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        System.out.println("Testing binary pipe");
+        // The same generator gives the same game
+        MinesGame expected = new MinesGame(new MinesPlan(20, 10), 30, new Random(5));
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        out.writeInt(13);
+        out.writeByte(MinesProtocol.NEW_GAME);
+        out.writeInt(20);
+        out.writeInt(10);
+        out.writeInt(30);
+        // Empty batch
+        out.writeInt(1);
+        out.writeByte(MinesProtocol.MOVES);
+        expected.uncover(10, 5);
+        int mark = -1;
+        for (int cell = 0; cell < 200 && mark < 0; cell++) {
+            if (expected.getPlan().isCovered(cell)) {
+                mark = cell;
+            }
+        }
+        expected.switchMarked(mark % 20, mark / 20);
+        int free = mark;
+        while (!expected.getPlan().isCovered(free) || expected.getPlan().isMine(free)) {
+            free++;
+        }
+        expected.uncover(free % 20, free / 20);
+        assertEquals("Game should go on.", MinesGame.STATE_PLAYING, expected.getState());
+        int[] moves = {5 * 20 + 10, -1 - mark, free};
+        out.writeInt(1 + 4 * moves.length);
+        out.writeByte(MinesProtocol.MOVES);
+        for (int move : moves) {
+            out.writeInt(move);
+        }
+        // Marking an uncovered field stops the batch
+        out.writeInt(9);
+        out.writeByte(MinesProtocol.MOVES);
+        out.writeInt(-1 - (5 * 20 + 10));
+        out.writeInt(0);
+        out.writeInt(1);
+        out.writeByte(MinesProtocol.GET);
+        out.writeInt(1);
+        out.writeByte(99);
+
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        new MinesPipe(new Random(5), 1000).serveBinary(new ByteArrayInputStream(requests.toByteArray()), answers);
+        ByteBuffer in = ByteBuffer.wrap(answers.toByteArray());
+        byte[] codes = new byte[200];
+        byte[] ops = {MinesProtocol.UPDATE, MinesProtocol.UPDATE, MinesProtocol.UPDATE, MinesProtocol.ERROR, MinesProtocol.UPDATE, MinesProtocol.ERROR};
+        byte[] kinds = {MinesDeltaEncoder.FULL, MinesDeltaEncoder.DELTA, MinesDeltaEncoder.DELTA, 0, MinesDeltaEncoder.FULL, 0};
+        for (int i = 0; i < ops.length; i++) {
+            int length = in.getInt();
+            assertEquals("Wrong answer " + i, ops[i], in.get());
+            if (ops[i] == MinesProtocol.ERROR) {
+                assertEquals("Wrong error " + i, i == 3 ? MinesProtocol.ERROR_WRONG_ACTION : MinesProtocol.ERROR_BAD_REQUEST, in.get());
+                continue;
+            }
+            assertEquals("Wrong state " + i, MinesGame.STATE_PLAYING, in.get());
+            ByteBuffer update = in.slice();
+            update.limit(length - 2);
+            in.position(in.position() + length - 2);
+            assertEquals("Wrong update kind " + i, kinds[i], update.get(0));
+            MinesDeltaEncoder.apply(codes, update);
+            if (i == 0) {
+                assertEquals("New game must be covered.", MinesSnapshot.CODE_COVERED, codes[0]);
+            }
+        }
+        assertFalse("No more answers expected.", in.hasRemaining());
+        assertCodes(expected, codes);
+    }
+
+    @Test
+    public void testText() throws IOException {
+        System.out.println("Testing text pipe");
+        MinesGame expected = new MinesGame(new MinesPlan(9, 9), 10, new Random(2));
+        expected.uncover(4, 4);
+        String requests = "new 9 9 10\nu 4 4\nu 4 4 m 4\nfoo\nget\n";
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        new MinesPipe(new Random(2), 1000).serveText(new ByteArrayInputStream(requests.getBytes(StandardCharsets.US_ASCII)), answers);
+        String[] lines = new String(answers.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals("Every request needs an answer.", 5, lines.length);
+        assertTrue("Board expected.", lines[0].startsWith("board 9 9 1 "));
+        byte[] codes = new byte[81];
+        apply(lines[0], codes);
+        // The first click may move mines, so it can change the whole board
+        assertTrue("Update expected.", lines[1].startsWith("update " + expected.getState()) || lines[1].startsWith("board 9 9 " + expected.getState()));
+        apply(lines[1], codes);
+        assertCodes(expected, codes);
+        assertEquals("Incomplete move.", "error Incomplete move.", lines[2]);
+        assertEquals("Unknown request.", "error Unknown request.", lines[3]);
+        assertTrue("Board expected.", lines[4].startsWith("board 9 9 "));
+    }
+}
@@ -336,5 +336,63 @@ public class MinesPlanTest {
         assertEquals("Wrong number of mines in surrounding area!",2, instance.getNumberOfMines(0,0));
     }
 
-    
-}
\ No newline at end of file
+    @Test
+    public void testCounters() {
+        System.out.println("Testing counters");
+        MinesPlan p = new MinesPlan(4, 4);
+        p.setMineAt(0, 0);
+        p.setMineAt(0, 0);
+        p.setMineAt(3, 3);
+        assertEquals("Setting a mine twice must count once.", 2, p.getNumberOfMines());
+        p.uncover(1, 1);
+        p.uncover(1, 1);
+        assertEquals("Uncovering twice must count once.", 15, p.getNumberOfCovered());
+        assertEquals("No mine is uncovered.", 0, p.getNumberOfUncoveredMines());
+        p.setMineAt(1, 1);
+        assertEquals("Mine set on uncovered field.", 1, p.getNumberOfUncoveredMines());
+        p.clearMineAt(1, 1);
+        p.clearMineAt(1, 1);
+        assertEquals("Clearing a mine twice must count once.", 2, p.getNumberOfMines());
+        assertEquals("Cleared mine is not uncovered.", 0, p.getNumberOfUncoveredMines());
+        p.uncoverAll();
+        assertEquals("All mines are uncovered.", 2, p.getNumberOfUncoveredMines());
+        p.coverAll();
+        assertEquals("All fields are covered.", 16, p.getNumberOfCovered());
+        assertEquals("No mine is uncovered after covering.", 0, p.getNumberOfUncoveredMines());
+        p.clearAllMines();
+        assertEquals("No mines after clearing.", 0, p.getNumberOfMines());
+    }
+
+    @Test
+    public void testCellIndex() {
+        System.out.println("cell index");
+        MinesPlan p = new MinesPlan(5, 4);
+        int cell = p.index(3, 2);
+        assertEquals("Wrong index.", 13, cell);
+        assertEquals("Wrong x.", 3, p.x(cell));
+        assertEquals("Wrong y.", 2, p.y(cell));
+        p.setMineAt(4, 3);
+        p.setMineAt(2, 1);
+        assertTrue("Mine not found by index.", p.isMine(p.index(4, 3)));
+        assertEquals("Wrong count by index.", 2, p.getNumberOfMinesAround(cell));
+        assertEquals("Count differs from coordinates.", p.getNumberOfMines(3, 2), p.getNumberOfMinesAround(cell));
+        p.uncover(cell);
+        assertFalse("Field not uncovered by index.", p.isCoveredAt(3, 2));
+        p.mark(0, true);
+        assertTrue("Field not marked by index.", p.isMarked(0));
+        int[] around = new int[8];
+        assertEquals("Corner has 3 neighbours.", 3, p.neighbours(0, around));
+        assertEquals("Inner field has 8 neighbours.", 8, p.neighbours(cell, around));
+        assertEquals("Edge field has 5 neighbours.", 5, p.neighbours(p.index(2, 0), around));
+        try {
+            p.isCovered(20);
+            fail("Index off the plan allowed.");
+        } catch (BadCoordsException e) {
+        }
+        try {
+            p.index(5, 0);
+            fail("Coordinates off the plan allowed.");
+        } catch (BadCoordsException e) {
+        }
+    }
+}
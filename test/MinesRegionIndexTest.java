@@ -0,0 +1,98 @@
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesRegionIndexTest {
+
+    private static int bruteCount(MinesPlan p, int x0, int y0, int w, int h, boolean flags) {
+        int count = 0;
+        for (int y = y0; y < y0 + h; y++) {
+            for (int x = x0; x < x0 + w; x++) {
+                if (flags ? p.isMarkedAt(x, y) : p.isCoveredAt(x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int bruteNearest(MinesPlan p, int x0, int y0, boolean free) {
+        int best = Integer.MAX_VALUE;
+        for (int y = 0; y < p.getHeight(); y++) {
+            for (int x = 0; x < p.getWidth(); x++) {
+                if (p.isCoveredAt(x, y) && !(free && p.isMarkedAt(x, y))) {
+                    best = Math.min(best, Math.max(Math.abs(x - x0), Math.abs(y - y0)));
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int distance(MinesPlan p, int cell, int x, int y) {
+        return Math.max(Math.abs(p.x(cell) - x), Math.abs(p.y(cell) - y));
+    }
+
+    @Test
+    public void testQueries() {
+        System.out.println("Testing region index queries");
+        Random r = new Random(3);
+        MinesPlan p = new MinesPlan(75, 41);
+        MinesRegionIndex index = p.getRegionIndex();
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < 300; i++) {
+                int x = r.nextInt(p.getWidth());
+                int y = r.nextInt(p.getHeight());
+                if (r.nextBoolean()) {
+                    p.uncover(x, y);
+                } else {
+                    p.mark(x, y, r.nextBoolean());
+                }
+            }
+            for (int i = 0; i < 50; i++) {
+                int x = r.nextInt(p.getWidth());
+                int y = r.nextInt(p.getHeight());
+                int w = r.nextInt(p.getWidth() - x + 1);
+                int h = r.nextInt(p.getHeight() - y + 1);
+                int covered = bruteCount(p, x, y, w, h, false);
+                assertEquals("Wrong covered count.", covered, index.getNumberOfCovered(x, y, w, h));
+                assertEquals("Wrong uncovered count.", w * h - covered, index.getNumberOfUncovered(x, y, w, h));
+                assertEquals("Wrong flag count.", bruteCount(p, x, y, w, h, true), index.getNumberOfFlags(x, y, w, h));
+                assertEquals("Wrong covered check.", covered > 0, index.hasCovered(x, y, w, h));
+                int cell = index.nearestCovered(x, y);
+                assertEquals("Wrong nearest covered.", bruteNearest(p, x, y, false), distance(p, cell, x, y));
+                assertTrue("Nearest field not covered.", p.isCovered(cell));
+                cell = index.nearestFree(x, y);
+                assertEquals("Wrong nearest free.", bruteNearest(p, x, y, true), distance(p, cell, x, y));
+                assertFalse("Nearest free field marked.", p.isMarked(cell));
+            }
+        }
+        assertEquals("Index differs from the plan.", p.getNumberOfCovered(), index.getNumberOfCovered(0, 0, 75, 41));
+        p.uncoverAll();
+        assertFalse("Covered field after uncovering all.", index.hasCovered(0, 0, 75, 41));
+        assertEquals("Covered field found.", -1, index.nearestCovered(10, 10));
+        p.coverAll();
+        p.clearAllMarks();
+        assertEquals("Index not rebuilt.", 75 * 41, index.getNumberOfCovered(0, 0, 75, 41));
+        assertEquals("Nearest field must be the given one.", p.index(20, 30), index.nearestFree(20, 30));
+        try {
+            index.getNumberOfFlags(70, 0, 10, 1);
+            fail("Rectangle off the plan allowed.");
+        } catch (BadCoordsException ex) {
+        }
+    }
+
+    @Test
+    public void testGame() {
+        System.out.println("Testing region index during a game");
+        MinesGame g = new MinesGame(200, 150, 300, new Random(6));
+        MinesRegionIndex index = g.getPlan().getRegionIndex();
+        MinesPlan p = g.getPlan();
+        g.uncover(100, 75);
+        int cell = index.nearestFree(100, 75);
+        g.switchMarked(p.x(cell), p.y(cell));
+        assertEquals("Index differs after a game move.", p.getNumberOfCovered(), index.getNumberOfCovered(0, 0, 200, 150));
+        assertEquals("Wrong flag count.", 1, index.getNumberOfFlags(0, 0, 200, 150));
+        assertNotEquals("Marked field is not free.", cell, index.nearestFree(p.x(cell), p.y(cell)));
+    }
+}
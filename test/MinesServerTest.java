@@ -0,0 +1,195 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinesServerTest {
+
+    private static ByteBuffer request(byte op, int... values) {
+        ByteBuffer b = ByteBuffer.allocate(5 + 4 * values.length);
+        MinesProtocol.header(b, op, 4 * values.length);
+        for (int v : values) {
+            b.putInt(v);
+        }
+        b.flip();
+        return b;
+    }
+
+    private static ByteBuffer answer(SocketChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (length.hasRemaining()) {
+            assertTrue("Connection closed.", channel.read(length) >= 0);
+        }
+        ByteBuffer b = ByteBuffer.allocate(length.getInt(0));
+        while (b.hasRemaining()) {
+            assertTrue("Connection closed.", channel.read(b) >= 0);
+        }
+        b.flip();
+        return b;
+    }
+
+    @Test
+    public void testProtocol() throws Exception {
+        System.out.println("Testing server protocol");
+        MinesServer server = new MinesServer(10_000);
+        int port = server.bind(0);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        thread.start();
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port))) {
+            channel.write(request(MinesProtocol.NEW_GAME, 10, 8, 5));
+            ByteBuffer b = answer(channel);
+            assertEquals("Game not created.", MinesProtocol.GAME, b.get());
+            int id = b.getInt();
+            assertEquals("Wrong width.", 10, b.getInt());
+            assertEquals("Wrong height.", 8, b.getInt());
+
+            channel.write(request(MinesProtocol.UNCOVER, id, 5, 4));
+            b = answer(channel);
+            assertEquals("State expected.", MinesProtocol.STATE, b.get());
+            assertEquals("Wrong game.", id, b.getInt());
+            assertNotEquals("First click must not explode.", MinesGame.STATE_EXPLODED, b.get());
+
+            channel.write(request(MinesProtocol.GET, id));
+            b = answer(channel);
+            assertEquals("Snapshot expected.", MinesProtocol.SNAPSHOT, b.get());
+            assertEquals("Wrong game.", id, b.getInt());
+            assertEquals("Wrong width.", 10, b.getInt());
+            assertEquals("Wrong height.", 8, b.getInt());
+            b.get();
+            byte[] codes = new byte[b.remaining()];
+            b.get(codes);
+            assertEquals("Wrong snapshot size.", 40, codes.length);
+            assertTrue("Clicked field not uncovered.", MinesProtocol.unpackCode(codes, 4 * 10 + 5) < MinesSnapshot.CODE_COVERED);
+
+            channel.write(request(MinesProtocol.UNCOVER, id, 10, 0));
+            b = answer(channel);
+            assertEquals("Error expected.", MinesProtocol.ERROR, b.get());
+            assertEquals("Wrong error.", MinesProtocol.ERROR_BAD_COORDS, b.get());
+
+            channel.write(request(MinesProtocol.NEW_GAME, 1000, 1000, 5));
+            b = answer(channel);
+            assertEquals("Too big game allowed.", MinesProtocol.ERROR, b.get());
+
+            channel.write(request(MinesProtocol.CLOSE_GAME, id));
+            channel.write(request(MinesProtocol.GET, id));
+            b = answer(channel);
+            assertEquals("Closed game found.", MinesProtocol.ERROR, b.get());
+            assertEquals("Wrong error.", MinesProtocol.ERROR_NO_GAME, b.get());
+
+            for (int i = 0; i < MinesServer.MAX_GAMES_PER_CONNECTION; i++) {
+                channel.write(request(MinesProtocol.NEW_GAME, 10, 8, 5));
+                assertEquals("Game not created.", MinesProtocol.GAME, answer(channel).get());
+            }
+            channel.write(request(MinesProtocol.NEW_GAME, 10, 8, 5));
+            b = answer(channel);
+            assertEquals("Too many games allowed.", MinesProtocol.ERROR, b.get());
+            assertEquals("Wrong error.", MinesProtocol.ERROR_BAD_NUMBER, b.get());
+        } finally {
+            server.stop();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        System.out.println("Testing watching a game");
+        MinesServer server = new MinesServer(10_000);
+        int port = server.bind(0);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        thread.start();
+        try (SocketChannel player = SocketChannel.open(new InetSocketAddress("localhost", port));
+                SocketChannel viewer = SocketChannel.open(new InetSocketAddress("localhost", port))) {
+            player.write(request(MinesProtocol.NEW_GAME, 30, 20, 60));
+            ByteBuffer b = answer(player);
+            b.get();
+            int id = b.getInt();
+            byte[] codes = new byte[30 * 20];
+
+            viewer.write(request(MinesProtocol.WATCH, id));
+            b = answer(viewer);
+            assertEquals("Update expected.", MinesProtocol.UPDATE, b.get());
+            assertEquals("Wrong game.", id, b.getInt());
+            b.get();
+            assertEquals("First update must be full.", MinesDeltaEncoder.FULL, b.get(b.position()));
+            MinesDeltaEncoder.apply(codes, b);
+
+            player.write(request(MinesProtocol.UNCOVER, id, 15, 10));
+            answer(player);
+            player.write(request(MinesProtocol.GET, id));
+            b = answer(player);
+            b.position(14);
+            byte[] packed = new byte[b.remaining()];
+            b.get(packed);
+            while (true) {
+                b = answer(viewer);
+                assertEquals("Update expected.", MinesProtocol.UPDATE, b.get());
+                b.getInt();
+                b.get();
+                MinesDeltaEncoder.apply(codes, b);
+                boolean same = true;
+                for (int i = 0; i < codes.length; i++) {
+                    same &= codes[i] == MinesProtocol.unpackCode(packed, i);
+                }
+                if (same) {
+                    break;
+                }
+            }
+        } finally {
+            server.stop();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testSlowReader() throws Exception {
+        System.out.println("Testing a client not reading its answers");
+        MinesServer server = new MinesServer(1 << 20);
+        int port = server.bind(0);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        thread.start();
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port))) {
+            channel.write(request(MinesProtocol.NEW_GAME, 1000, 1000, 100));
+            ByteBuffer b = answer(channel);
+            b.get();
+            int id = b.getInt();
+            // Answers of about 50 MB, held back by the server until read
+            for (int i = 0; i < 100; i++) {
+                channel.write(request(MinesProtocol.GET, id));
+            }
+            channel.write(request(MinesProtocol.UNCOVER, id, 500, 500));
+            Thread.sleep(200);
+            for (int i = 0; i < 100; i++) {
+                b = answer(channel);
+                assertEquals("Snapshot expected.", MinesProtocol.SNAPSHOT, b.get());
+                assertEquals("Wrong game.", id, b.getInt());
+                assertEquals("Wrong snapshot size.", 14 + 500_000, b.limit());
+            }
+            b = answer(channel);
+            assertEquals("State expected after the snapshots.", MinesProtocol.STATE, b.get());
+        } finally {
+            server.stop();
+            thread.join();
+        }
+    }
+}
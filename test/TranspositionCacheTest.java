@@ -0,0 +1,91 @@
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TranspositionCacheTest {
+
+    @Test
+    public void testHash() {
+        System.out.println("Testing game hash");
+        Random r = new Random(1);
+        for (int seed = 0; seed < 5; seed++) {
+            MinesGame g = new MinesGame(40, 30, 200, new Random(seed));
+            long start = g.getHash();
+            g.switchMarked(3, 3);
+            assertNotEquals("Flag not hashed.", start, g.getHash());
+            g.switchMarked(3, 3);
+            assertEquals("Removed flag still hashed.", start, g.getHash());
+            g.uncover(20, 15);
+            while (g.getState() == MinesGame.STATE_PLAYING) {
+                int x = r.nextInt(40);
+                int y = r.nextInt(30);
+                if (!g.getPlan().isCoveredAt(x, y)) {
+                    continue;
+                }
+                long before = g.getHash();
+                if (r.nextInt(3) == 0) {
+                    g.switchMarked(x, y);
+                } else if (!g.getPlan().isMarkedAt(x, y)) {
+                    g.uncover(x, y);
+                }
+                assertNotEquals("Move not hashed.", before, g.getHash());
+                // The same fields hashed from scratch
+                assertEquals("Wrong hash.", new MinesGame(g.getPlan()).getHash(), g.getHash());
+            }
+        }
+        assertNotEquals("Size not hashed.", new MinesGame(10, 20, 5).getHash(), new MinesGame(20, 10, 5).getHash());
+    }
+
+    @Test
+    public void testTransposition() {
+        System.out.println("Testing hash of transposed moves");
+        MinesGame g = new MinesGame(30, 30, 100, new Random(2));
+        g.uncover(15, 15);
+        MinesGame f = g.fork();
+        int[] cells = g.getFrontier().toArray();
+        g.switchMarked(cells[0] % 30, cells[0] / 30);
+        g.switchMarked(cells[1] % 30, cells[1] / 30);
+        f.switchMarked(cells[1] % 30, cells[1] / 30);
+        assertNotEquals("Different games hashed the same.", g.getHash(), f.getHash());
+        f.switchMarked(cells[0] % 30, cells[0] / 30);
+        assertEquals("Same games hashed differently.", g.getHash(), f.getHash());
+
+        TranspositionCache<String> cache = new TranspositionCache<>(16);
+        cache.put(g.getHash(), "two flags");
+        assertEquals("Result not found.", "two flags", cache.get(f.getHash()));
+        f.switchMarked(cells[0] % 30, cells[0] / 30);
+        assertNull("Result of another game found.", cache.get(f.getHash()));
+        assertEquals("Wrong hits.", 1, cache.getHits());
+        assertEquals("Wrong misses.", 1, cache.getMisses());
+    }
+
+    @Test
+    public void testBounded() {
+        System.out.println("Testing bounded transposition cache");
+        TranspositionCache<Long> cache = new TranspositionCache<>(100);
+        Random r = new Random(3);
+        long[] hashes = new long[1000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = r.nextLong();
+            cache.put(hashes[i], hashes[i]);
+            assertEquals("Last result lost.", Long.valueOf(hashes[i]), cache.get(hashes[i]));
+            assertTrue("Too many results.", cache.size() <= 128);
+        }
+        int found = 0;
+        for (long hash : hashes) {
+            Long value = cache.get(hash);
+            if (value != null) {
+                assertEquals("Wrong result.", hash, value.longValue());
+                found++;
+            }
+        }
+        assertEquals("Wrong size.", found, cache.size());
+        cache.put(hashes[999], -1L);
+        assertEquals("Result not replaced.", Long.valueOf(-1), cache.get(hashes[999]));
+        assertEquals("Size changed by replacing.", found, cache.size());
+        cache.clear();
+        assertEquals("Cache not cleared.", 0, cache.size());
+        assertNull("Result after clear.", cache.get(hashes[999]));
+    }
+}